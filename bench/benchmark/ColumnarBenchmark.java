@@ -0,0 +1,221 @@
+package benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import model.ColumnarTaskList;
+import model.Deadlines;
+import model.Priority;
+import model.TaskPage;
+import model.TaskQuery;
+import model.ToDoList;
+
+/**
+ * Compares a large ToDoList, which keeps its Tasks on the heap, with a
+ * ColumnarTaskList, which keeps them off the heap, holding the same Tasks. For
+ * each it reports the time to add the Tasks, the heap and off-heap memory they
+ * take, the time to count and to page the incomplete HIGH priority Tasks due in
+ * a month, and the garbage collection pauses taken while the application
+ * allocates short-lived objects with the Tasks in memory, as well as the time of
+ * a full collection.
+ *
+ * The heap has to hold the heap-based list, about 250 bytes per Task, and is
+ * best fixed in size so that both lists are collected with the same young
+ * generation:
+ *
+ * javac -d out $(find src bench -name '*.java')
+ * java -Xms4g -Xmx4g -cp out benchmark.ColumnarBenchmark [tasks=2000000]
+ * [stores=heap,columnar]
+ */
+public class ColumnarBenchmark {
+
+	private static final int QUERY_RUNS = 5;
+	private static final int CHURN_ROUNDS = 2000;
+
+	/**
+	 * Consumes results so the JIT can not drop the work producing them.
+	 */
+	private static long sink;
+
+	/*
+	 * Pauses of the collections that ended since the last reset, in milliseconds.
+	 */
+	private static final List<Long> pauses = new ArrayList<>();
+
+	public static void main(String[] args) {
+		int tasks = 2_000_000;
+		String[] stores = { "heap", "columnar" };
+		for (String arg : args) {
+			if (arg.startsWith("tasks="))
+				tasks = Integer.parseInt(arg.substring(6));
+			else if (arg.startsWith("stores="))
+				stores = arg.substring(7).split(",");
+		}
+		listenToCollections();
+
+		System.out.printf("%-9s %10s %9s %9s %9s %9s %9s %7s %9s %9s %9s%n", "store", "tasks", "add ms", "heap MB",
+				"off MB", "count ms", "page ms", "pauses", "total ms", "max ms", "full ms");
+		for (String store : stores) {
+			fullGc();
+			long start = System.nanoTime();
+			Object list = store.equals("heap") ? heapList(tasks) : columnarList(tasks);
+			long addMs = (System.nanoTime() - start) / 1_000_000;
+			fullGc();
+			long heap = usedHeap();
+			long offHeap = list instanceof ColumnarTaskList ? ((ColumnarTaskList) list).getOffHeapBytes() : 0;
+
+			long from = Deadlines.parse("06/01/2024 00:00");
+			TaskQuery month = TaskQuery.all().completed(false).withPriority(Priority.HIGH)
+					.dueBetween(from, from + 30 * 24 * 60);
+			TaskQuery page = month.orderBy(TaskQuery.Order.DEADLINE).limit(50);
+			double countMs = median(() -> count(list, month));
+			double pageMs = median(() -> page(list, page).getTasks().size());
+
+			synchronized (pauses) {
+				pauses.clear();
+			}
+			churn();
+			long[] churned;
+			synchronized (pauses) {
+				churned = pauses.stream().mapToLong(Long::longValue).toArray();
+			}
+			long fullStart = System.nanoTime();
+			fullGc();
+			long fullMs = (System.nanoTime() - fullStart) / 1_000_000;
+
+			System.out.printf("%-9s %10d %9d %9d %9d %9.3f %9.3f %7d %9d %9d %9d%n", store, tasks, addMs,
+					heap >> 20, offHeap >> 20, countMs, pageMs, churned.length, Arrays.stream(churned).sum(),
+					Arrays.stream(churned).max().orElse(0), fullMs);
+			sink += list.hashCode();
+		}
+		if (sink == 42)
+			System.out.println();
+	}
+
+	/**
+	 * Adds tasks with spread out deadlines and priorities to a new ToDoList.
+	 */
+	private static ToDoList heapList(int size) {
+		ToDoList list = new ToDoList("benchmark");
+		Random random = new Random(1);
+		for (int i = 1; i <= size; i++) {
+			list.addTask("task " + i, i % 3 == 0 ? null : "description of task " + i, deadline(random), i,
+					priority(random));
+			if (random.nextInt(4) == 0)
+				list.setTaskCompleted(i);
+		}
+		return list;
+	}
+
+	/**
+	 * Adds the same tasks as heapList to a new ColumnarTaskList.
+	 */
+	private static ColumnarTaskList columnarList(int size) {
+		ColumnarTaskList list = new ColumnarTaskList("benchmark");
+		Random random = new Random(1);
+		for (int i = 1; i <= size; i++) {
+			list.addTask("task " + i, i % 3 == 0 ? null : "description of task " + i, deadline(random), i,
+					priority(random));
+			if (random.nextInt(4) == 0)
+				list.setTaskCompleted(i);
+		}
+		return list;
+	}
+
+	private static long deadline(Random random) {
+		if (random.nextInt(4) == 0)
+			return Deadlines.NONE;
+		return Deadlines.parse(String.format("%02d/%02d/2024 %02d:00", 1 + random.nextInt(12), 1 + random.nextInt(28),
+				random.nextInt(24)));
+	}
+
+	private static Priority priority(Random random) {
+		Priority[] priorities = Priority.values();
+		return priorities[random.nextInt(priorities.length)];
+	}
+
+	private static long count(Object list, TaskQuery query) {
+		if (list instanceof ColumnarTaskList)
+			return ((ColumnarTaskList) list).count(query);
+		return ((ToDoList) list).query(query).getTasks().size();
+	}
+
+	private static TaskPage<?> page(Object list, TaskQuery query) {
+		if (list instanceof ColumnarTaskList)
+			return ((ColumnarTaskList) list).query(query);
+		return ((ToDoList) list).query(query);
+	}
+
+	/**
+	 * Allocates short-lived objects, keeping a sliding window of them alive long
+	 * enough for some to be promoted, as a busy application would.
+	 */
+	private static void churn() {
+		Object[] window = new Object[1 << 16];
+		Random random = new Random(2);
+		for (int round = 0; round < CHURN_ROUNDS; round++) {
+			for (int i = 0; i < 50_000; i++) {
+				byte[] garbage = new byte[16 + random.nextInt(256)];
+				window[random.nextInt(window.length)] = garbage;
+				sink += garbage.length;
+			}
+		}
+	}
+
+	/**
+	 * Returns the median time of QUERY_RUNS runs of the operation, in
+	 * milliseconds, after as many runs to warm up.
+	 */
+	private static double median(LongSupplier operation) {
+		for (int i = 0; i < QUERY_RUNS; i++)
+			sink += operation.getAsLong();
+		long[] times = new long[QUERY_RUNS];
+		for (int i = 0; i < QUERY_RUNS; i++) {
+			long start = System.nanoTime();
+			sink += operation.getAsLong();
+			times[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(times);
+		return times[QUERY_RUNS / 2] / 1e6;
+	}
+
+	/**
+	 * Records the pause of every stop-the-world collection.
+	 */
+	private static void listenToCollections() {
+		NotificationListener listener = (notification, handback) -> {
+			if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+				return;
+			GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+					.from((CompositeData) notification.getUserData());
+			if (info.getGcName().contains("Concurrent"))
+				return;
+			synchronized (pauses) {
+				pauses.add(info.getGcInfo().getDuration());
+			}
+		};
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+			if (collector instanceof NotificationEmitter)
+				((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+	}
+
+	private static void fullGc() {
+		System.gc();
+		System.gc();
+	}
+
+	private static long usedHeap() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+}
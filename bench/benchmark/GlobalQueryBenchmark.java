@@ -0,0 +1,129 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import model.Deadlines;
+import model.ListedTask;
+import model.Priority;
+import model.TDLModel;
+import model.TaskQuery;
+
+/**
+ * Measures how a query over every list scales with the number of threads it
+ * runs on, over a model with many small lists: every incomplete HIGH priority
+ * task due in a week, by deadline, first 100.
+ *
+ * Every thread count is warmed up before it is measured, and reports the median
+ * time of one query and its speedup over the first thread count, one thread
+ * by default.
+ *
+ * javac -d out $(find src bench -name '*.java')
+ * java -cp out benchmark.GlobalQueryBenchmark [lists=20000] [tasks=50]
+ * [threads=1,2,4,...]
+ */
+public class GlobalQueryBenchmark {
+
+	private static final int WARMUP = 5;
+	private static final int MEASURED = 11;
+
+	/**
+	 * Consumes results so the JIT can not drop the work producing them.
+	 */
+	private static long sink;
+
+	public static void main(String[] args) {
+		int lists = 20_000;
+		int tasksPerList = 50;
+		int[] threads = null;
+		for (String arg : args) {
+			if (arg.startsWith("lists="))
+				lists = Integer.parseInt(arg.substring(6));
+			else if (arg.startsWith("tasks="))
+				tasksPerList = Integer.parseInt(arg.substring(6));
+			else if (arg.startsWith("threads="))
+				threads = Arrays.stream(arg.substring(8).split(",")).mapToInt(Integer::parseInt).toArray();
+		}
+		if (threads == null)
+			threads = powersOfTwo(Runtime.getRuntime().availableProcessors());
+
+		TDLModel model = model(lists, tasksPerList);
+		long from = Deadlines.parse("06/01/2024 00:00");
+		TaskQuery week = TaskQuery.all().completed(false).withPriority(Priority.HIGH).dueBetween(from, from + 7 * 24 * 60)
+				.orderBy(TaskQuery.Order.DEADLINE).limit(100);
+
+		System.out.printf("%-14s %10s %6s %8s %14s %8s%n", "benchmark", "tasks", "lists", "threads", "ms/op",
+				"speedup");
+		double first = 0;
+		for (int count : threads) {
+			ForkJoinPool pool = new ForkJoinPool(count);
+			try {
+				double ms = run(model, week, pool);
+				if (first == 0)
+					first = ms;
+				System.out.printf("%-14s %10d %6d %8d %14.3f %8.2f%n", "queryAllLists", lists * tasksPerList, lists,
+						count, ms, first / ms);
+			} finally {
+				pool.shutdown();
+			}
+		}
+		if (sink == 42)
+			System.out.println();
+	}
+
+	/**
+	 * Returns the median time of one query on the pool, in milliseconds.
+	 */
+	private static double run(TDLModel model, TaskQuery query, ForkJoinPool pool) {
+		for (int i = 0; i < WARMUP; i++)
+			sink += model.query(query, pool).size();
+		long[] times = new long[MEASURED];
+		for (int i = 0; i < MEASURED; i++) {
+			long start = System.nanoTime();
+			List<ListedTask> found = model.query(query, pool);
+			times[i] = System.nanoTime() - start;
+			sink += found.size();
+		}
+		Arrays.sort(times);
+		return times[MEASURED / 2] / 1e6;
+	}
+
+	/**
+	 * Creates a model of lists holding tasks with spread out deadlines and
+	 * priorities, a quarter of them completed.
+	 */
+	private static TDLModel model(int lists, int tasksPerList) {
+		Random random = new Random(1);
+		Priority[] priorities = Priority.values();
+		TDLModel model = new TDLModel();
+		long id = 1;
+		for (int i = 0; i < lists; i++) {
+			String name = "list " + i;
+			model.newList(name);
+			for (int j = 0; j < tasksPerList; j++, id++) {
+				long deadline = Deadlines.NONE;
+				if (random.nextInt(4) != 0)
+					deadline = Deadlines.parse(String.format("%02d/%02d/2024 %02d:00", 1 + random.nextInt(12),
+							1 + random.nextInt(28), random.nextInt(24)));
+				model.addTask(name, "task " + id, null, deadline, id, priorities[random.nextInt(priorities.length)]);
+				if (random.nextInt(4) == 0)
+					model.setTaskCompleted(name, id);
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * Returns 1, 2, 4 and so on up to the passed number, which is included.
+	 */
+	private static int[] powersOfTwo(int max) {
+		int[] counts = new int[32 - Integer.numberOfLeadingZeros(max) + (Integer.bitCount(max) == 1 ? 0 : 1)];
+		int n = 0;
+		for (int count = 1; count < max; count *= 2)
+			counts[n++] = count;
+		counts[n++] = max;
+		return Arrays.copyOf(counts, n);
+	}
+}
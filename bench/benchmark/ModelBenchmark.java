@@ -0,0 +1,235 @@
+package benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import controller.TDLController;
+import model.DeadlineSorter;
+import model.Deadlines;
+import model.Priority;
+import model.PrioritySorter;
+import model.TDLModel;
+import model.Task;
+import model.TaskQuery;
+import model.ToDoList;
+
+/**
+ * Measures the hot paths of the model, the sorters and persistence over
+ * datasets of increasing size, so that changes to them can be compared against
+ * the results in bench/baseline.txt.
+ *
+ * Every benchmark is warmed up before it is measured, and reports the median
+ * time of one operation together with the bytes it allocated, read from the
+ * allocation counter of the running thread.
+ *
+ * Compile and run from an empty directory, as saving and loading use the data
+ * files of the working directory:
+ *
+ * javac -d out $(find src bench -name '*.java')
+ * java -cp out benchmark.ModelBenchmark [sizes=1000,10000,...] [lists=1,100]
+ */
+public class ModelBenchmark {
+
+	private static final int WARMUP = 3;
+	private static final int MEASURED = 5;
+
+	/**
+	 * Consumes results so the JIT can not drop the work producing them.
+	 */
+	private static long sink;
+
+	public static void main(String[] args) {
+		int[] sizes = { 1_000, 10_000, 100_000, 1_000_000 };
+		int[] listCounts = { 1, 100 };
+		for (String arg : args) {
+			if (arg.startsWith("sizes="))
+				sizes = parse(arg.substring(6));
+			else if (arg.startsWith("lists="))
+				listCounts = parse(arg.substring(6));
+		}
+		if (new File("listdata").exists() || new File("listdata.journal").exists()) {
+			System.err.println("Run the benchmark from an empty directory, it overwrites listdata");
+			return;
+		}
+
+		System.out.printf("%-14s %10s %6s %14s %16s%n", "benchmark", "tasks", "lists", "ms/op", "bytes/op");
+		for (int size : sizes) {
+			List<Task> tasks = tasks(size);
+			inMemory(tasks);
+			for (int lists : listCounts)
+				onDisk(tasks, lists);
+		}
+		if (sink == 42)
+			System.out.println();
+	}
+
+	/**
+	 * Runs the benchmarks of a ToDoList held in memory. The list is only reachable
+	 * from here, so it can be collected before the models of onDisk are built.
+	 */
+	private static void inMemory(List<Task> tasks) {
+		int size = tasks.size();
+		ToDoList filled = fill(tasks);
+		Random random = new Random(size);
+		long[] ids = new long[Math.min(size, 100_000)];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = 1 + random.nextInt(size);
+
+		run("addTask", size, 1, () -> fill(tasks).getAllTasks().size());
+		run("getTask", ids.length, 1, () -> {
+			long found = 0;
+			for (long id : ids)
+				found += filled.getTask(id).getId();
+			return found;
+		});
+		run("sortPriority", size, 1, () -> {
+			List<Task> copy = new ArrayList<>(tasks);
+			copy.sort(new PrioritySorter());
+			return copy.get(0).getId();
+		});
+		run("sortDeadline", size, 1, () -> {
+			List<Task> copy = new ArrayList<>(tasks);
+			copy.sort(new DeadlineSorter());
+			return copy.get(0).getId();
+		});
+		TaskQuery firstPage = TaskQuery.all().completed(false).withPriority(Priority.HIGH)
+				.orderBy(TaskQuery.Order.DEADLINE).limit(50);
+		run("queryPage", size, 1, () -> filled.query(firstPage).getTasks().size());
+	}
+
+	/**
+	 * Runs the benchmarks saving and loading a model of the tasks spread over the
+	 * passed number of lists, and deletes its data files.
+	 */
+	private static void onDisk(List<Task> tasks, int lists) {
+		int size = tasks.size();
+		save(tasks, lists);
+		run("loadData", size, lists, () -> {
+			TDLModel loaded = new TDLModel();
+			new TDLController(loaded).loadData();
+			return loaded.getAllLists().size();
+		});
+		run("loadAllLists", size, lists, () -> {
+			TDLModel loaded = new TDLModel();
+			new TDLController(loaded).loadData();
+			long read = 0;
+			for (ToDoList list : loaded.getAllLists().values())
+				read += list.getAllTasks().size();
+			return read;
+		});
+		File[] shards = new File("listdata").listFiles();
+		for (File shard : shards == null ? new File[0] : shards)
+			shard.delete();
+		new File("listdata").delete();
+		new File("listdata.journal").delete();
+	}
+
+	/**
+	 * Runs the benchmarks saving a model of the tasks spread over the passed number
+	 * of lists, leaving its data files for the load benchmarks. The model is only
+	 * reachable from here, so it can be collected before they load another one.
+	 */
+	private static void save(List<Task> tasks, int lists) {
+		int size = tasks.size();
+		TDLModel model = model(tasks, lists);
+		TDLController controller = new TDLController(model);
+		run("saveData", size, lists, () -> {
+			for (int i = 0; i < lists; i++)
+				touch(model, tasks, lists, i);
+			return controller.compactData() ? 1 : 0;
+		});
+		run("saveOneList", size, lists, () -> {
+			touch(model, tasks, lists, 0);
+			return controller.compactData() ? 1 : 0;
+		});
+	}
+
+	/**
+	 * Runs one benchmark and prints the median time and the average allocation of
+	 * its measured iterations.
+	 */
+	private static void run(String name, int tasks, int lists, LongSupplier operation) {
+		for (int i = 0; i < WARMUP; i++)
+			sink += operation.getAsLong();
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long[] times = new long[MEASURED];
+		long allocated = 0;
+		for (int i = 0; i < MEASURED; i++) {
+			long bytes = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			sink += operation.getAsLong();
+			times[i] = System.nanoTime() - start;
+			allocated += threads.getThreadAllocatedBytes(thread) - bytes;
+		}
+		Arrays.sort(times);
+		System.out.printf("%-14s %10d %6d %14.3f %16d%n", name, tasks, lists, times[MEASURED / 2] / 1e6,
+				allocated / MEASURED);
+	}
+
+	/**
+	 * Creates tasks with spread out deadlines and priorities.
+	 */
+	private static List<Task> tasks(int size) {
+		Random random = new Random(1);
+		Priority[] priorities = Priority.values();
+		List<Task> tasks = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			long deadline = Deadlines.NONE;
+			if (random.nextInt(4) != 0)
+				deadline = Deadlines.parse(String.format("%02d/%02d/2024 %02d:00", 1 + random.nextInt(12),
+						1 + random.nextInt(28), random.nextInt(24)));
+			tasks.add(new Task(i % 3 == 0 ? null : "description of task " + i, deadline,
+					priorities[random.nextInt(priorities.length)], "task " + i, i + 1));
+		}
+		return tasks;
+	}
+
+	/**
+	 * Adds the tasks to a new ToDoList.
+	 */
+	private static ToDoList fill(List<Task> tasks) {
+		ToDoList list = new ToDoList("benchmark");
+		for (Task task : tasks)
+			list.addTask(task.getName(), task.getDescription(), task.getDeadlineMinute(), task.getId(),
+					task.getPriority());
+		return list;
+	}
+
+	/**
+	 * Spreads the tasks over the passed number of lists of a new model.
+	 */
+	private static TDLModel model(List<Task> tasks, int lists) {
+		TDLModel model = new TDLModel();
+		for (int i = 0; i < lists; i++)
+			model.newList("list " + i);
+		for (Task task : tasks)
+			model.addTask("list " + (task.getId() % lists), task.getName(), task.getDescription(),
+					task.getDeadlineMinute(), task.getId(), task.getPriority());
+		return model;
+	}
+
+	/**
+	 * Edits a task of the passed list without changing it, so that the list has to
+	 * be saved again.
+	 */
+	private static void touch(TDLModel model, List<Task> tasks, int lists, int list) {
+		// task ids start at 1 and task i is in list i % lists
+		int id = list == 0 ? lists : list;
+		if (id > tasks.size())
+			return;
+		Task task = tasks.get(id - 1);
+		model.editTask("list " + list, task.getId(), task.getName(), task.getDescription(),
+				task.getDeadlineMinute(), task.getPriority());
+	}
+
+	private static int[] parse(String values) {
+		return Arrays.stream(values.split(",")).mapToInt(Integer::parseInt).toArray();
+	}
+}
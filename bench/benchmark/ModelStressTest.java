@@ -0,0 +1,398 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.ChangeLog;
+import model.Deadlines;
+import model.ListSnapshot;
+import model.ModelEvent;
+import model.Priority;
+import model.TDLModel;
+import model.TDLStats;
+import model.Task;
+import model.TaskQuery;
+import model.TaskSnapshot;
+import model.ToDoList;
+
+/**
+ * Changes and reads one TDLModel from several threads at once, then checks that
+ * the model is still consistent: the statistics of every list and of the model
+ * match its Tasks, every index of a list holds each of its Tasks once, the
+ * Tasks are those the threads left, and a second model fed by the ChangeLog of
+ * the first holds the same Tasks, so that every change reached the ChangeLog in
+ * the order it was applied in.
+ *
+ * Every thread adds, edits, completes and removes its own Tasks in lists shared
+ * by all the threads, while reading snapshots, queries and statistics of them.
+ * Deadlines are spread around the current minute so that the DeadlineScheduler
+ * is rescheduled and fires while the Tasks change. One more thread adds, renames
+ * and removes lists of its own. Prints the failures found, if any, and exits
+ * with a non-zero status when there are.
+ *
+ * javac -d out $(find src bench -name '*.java')
+ * java -cp out benchmark.ModelStressTest [threads=4] [ops=50000] [lists=8]
+ */
+public class ModelStressTest {
+
+	/**
+	 * State of a Task as the thread owning it last left it.
+	 */
+	private static class Expected {
+		final long id;
+		String name;
+		long deadline;
+		Priority priority;
+		boolean complete;
+
+		Expected(long id, String name, long deadline, Priority priority) {
+			this.id = id;
+			this.name = name;
+			this.deadline = deadline;
+			this.priority = priority;
+		}
+	}
+
+	private static final List<String> failures = new ArrayList<>();
+
+	public static void main(String[] args) throws Exception {
+		int threads = 4;
+		int ops = 50_000;
+		int lists = 8;
+		for (String arg : args) {
+			if (arg.startsWith("threads="))
+				threads = Integer.parseInt(arg.substring(8));
+			else if (arg.startsWith("ops="))
+				ops = Integer.parseInt(arg.substring(4));
+			else if (arg.startsWith("lists="))
+				lists = Integer.parseInt(arg.substring(6));
+		}
+
+		TDLModel model = new TDLModel();
+		TDLModel mirror = new TDLModel();
+		model.attachChangeLog(() -> new MirrorLog(mirror));
+		AtomicLong notified = new AtomicLong();
+		model.subscribe(new CountingSubscriber(notified));
+		String[] names = new String[lists];
+		for (int i = 0; i < lists; i++) {
+			names[i] = "list " + i;
+			model.newList(names[i]);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+		List<Map<String, Map<Long, Expected>>> owned = new ArrayList<>();
+		List<Future<?>> workers = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			Map<String, Map<Long, Expected>> tasks = new HashMap<>();
+			owned.add(tasks);
+			Random random = new Random(t);
+			int operations = ops;
+			workers.add(executor.submit(() -> work(model, names, tasks, random, operations)));
+		}
+		AtomicBoolean done = new AtomicBoolean();
+		Future<?> structure = executor.submit(() -> changeLists(model, done));
+		for (Future<?> worker : workers)
+			worker.get();
+		done.set(true);
+		structure.get();
+		executor.shutdown();
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		Map<String, Map<Long, Expected>> expected = new HashMap<>();
+		for (Map<String, Map<Long, Expected>> tasks : owned)
+			for (Map.Entry<String, Map<Long, Expected>> list : tasks.entrySet())
+				expected.computeIfAbsent(list.getKey(), name -> new HashMap<>()).putAll(list.getValue());
+		long total = 0;
+		long completed = 0;
+		for (String name : names) {
+			ToDoList list = model.getList(name);
+			checkList(list);
+			checkExpected(list, expected.getOrDefault(name, Map.of()));
+			checkMirror(list.snapshot(), mirror.getList(name).snapshot());
+			total += list.getStats().getTaskCount();
+			completed += list.getStats().getCompletedCount();
+		}
+		check(model.getAllLists().size() == lists, "model holds " + model.getAllLists().size() + " lists");
+		check(model.getStats().getTaskCount() == total,
+				"model counts " + model.getStats().getTaskCount() + " tasks, its lists " + total);
+		check(model.getStats().getCompletedCount() == completed,
+				"model counts " + model.getStats().getCompletedCount() + " completed, its lists " + completed);
+
+		System.out.printf("%d threads, %d ops each, %d lists: %d tasks left, %d notifications, %d ms%n", threads,
+				ops, lists, total, notified.get(), elapsedMs);
+		if (failures.isEmpty()) {
+			System.out.println("OK");
+			return;
+		}
+		for (String failure : failures)
+			System.out.println("FAILED: " + failure);
+		System.exit(1);
+	}
+
+	/**
+	 * Makes random changes to Tasks owned by the calling thread, and random reads.
+	 */
+	private static void work(TDLModel model, String[] names, Map<String, Map<Long, Expected>> owned,
+			Random random, int operations) {
+		Priority[] priorities = Priority.values();
+		for (int i = 0; i < operations; i++) {
+			String name = names[random.nextInt(names.length)];
+			Map<Long, Expected> tasks = owned.computeIfAbsent(name, key -> new HashMap<>());
+			Expected task = tasks.isEmpty() ? null : any(tasks, random);
+			int operation = random.nextInt(10);
+			if (task == null || operation < 3) {
+				Priority priority = priorities[random.nextInt(priorities.length)];
+				long deadline = deadline(random);
+				long id = model.addTask(name, "task " + i, random.nextBoolean() ? null : "stress", deadline, priority);
+				tasks.put(id, new Expected(id, "task " + i, deadline, priority));
+			} else if (operation == 3) {
+				task.name = "edited " + i;
+				task.deadline = deadline(random);
+				task.priority = priorities[random.nextInt(priorities.length)];
+				model.editTask(name, task.id, task.name, "edited", task.deadline, task.priority);
+			} else if (operation == 4) {
+				model.setTaskCompleted(name, task.id);
+				task.complete = true;
+			} else if (operation == 5) {
+				model.removeTask(name, task.id);
+				tasks.remove(task.id);
+			} else if (operation == 6) {
+				checkSnapshot(model.getList(name).snapshot());
+			} else if (operation == 7) {
+				model.query(name, TaskQuery.all().completed(false).orderBy(TaskQuery.Order.DEADLINE).limit(20));
+			} else if (operation == 8) {
+				int percent = model.getList(name).getStats().getPercentCompleted();
+				check(percent >= 0 && percent <= 100, name + " is " + percent + "% completed");
+			} else {
+				ToDoList list = model.getList(name);
+				list.readLock().lock();
+				try {
+					long previous = Long.MIN_VALUE;
+					for (Task due : list.getTasksByDeadline()) {
+						check(due.getDeadlineMinute() >= previous, name + " read out of deadline order");
+						previous = due.getDeadlineMinute();
+					}
+				} finally {
+					list.readLock().unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds, renames and removes lists that no worker uses until told to stop.
+	 */
+	private static void changeLists(TDLModel model, AtomicBoolean done) {
+		Random random = new Random(-1);
+		for (int i = 0; !done.get(); i++) {
+			String name = "extra " + i;
+			model.newList(name);
+			model.addTask(name, "extra task", null, deadline(random), Priority.LOW);
+			model.editList(name, "renamed " + i);
+			model.removeList("renamed " + i);
+		}
+	}
+
+	/**
+	 * Returns a deadline within a few minutes of now, or none.
+	 */
+	private static long deadline(Random random) {
+		if (random.nextInt(4) == 0)
+			return Deadlines.NONE;
+		return Deadlines.now() - 2 + random.nextInt(5);
+	}
+
+	private static Expected any(Map<Long, Expected> tasks, Random random) {
+		int skip = random.nextInt(Math.min(tasks.size(), 16));
+		for (Expected task : tasks.values())
+			if (skip-- == 0)
+				return task;
+		return null;
+	}
+
+	/**
+	 * Checks that a snapshot counts its completed Tasks right.
+	 */
+	private static void checkSnapshot(ListSnapshot snapshot) {
+		int completed = 0;
+		for (TaskSnapshot task : snapshot.getTasks())
+			if (task.isComplete())
+				completed++;
+		check(snapshot.getCompleted() == completed, snapshot.getName() + " snapshot counts "
+				+ snapshot.getCompleted() + " completed tasks, holds " + completed);
+	}
+
+	/**
+	 * Checks the statistics and the indexes of a list against its Tasks.
+	 */
+	private static void checkList(ToDoList list) {
+		list.readLock().lock();
+		try {
+			String name = list.getName();
+			int size = list.getAllTasks().size();
+			long completed = 0;
+			long[] counts = new long[Priority.values().length];
+			long[] completedCounts = new long[counts.length];
+			for (Task task : list.getAllTasks()) {
+				counts[task.getPriority().ordinal()]++;
+				if (task.isComplete()) {
+					completed++;
+					completedCounts[task.getPriority().ordinal()]++;
+				}
+			}
+			TDLStats stats = list.getStats();
+			check(stats.getTaskCount() == size, name + " counts " + stats.getTaskCount() + " tasks, holds " + size);
+			check(stats.getCompletedCount() == completed,
+					name + " counts " + stats.getCompletedCount() + " completed, holds " + completed);
+			int prioritized = 0;
+			for (Priority priority : Priority.values()) {
+				int bucket = list.getTasksWithPriority(priority).size();
+				prioritized += bucket;
+				check(stats.getTaskCount(priority) == counts[priority.ordinal()],
+						name + " counts " + stats.getTaskCount(priority) + " " + priority + " tasks");
+				check(stats.getCompletedCount(priority) == completedCounts[priority.ordinal()],
+						name + " counts " + stats.getCompletedCount(priority) + " completed " + priority + " tasks");
+				check(bucket == counts[priority.ordinal()], name + " holds " + bucket + " " + priority + " tasks");
+			}
+			check(prioritized == size, name + " priority buckets hold " + prioritized + " tasks of " + size);
+			int indexed = list.getTasksByDeadline().size() + list.getTasksWithoutDeadline().size();
+			check(indexed == size, name + " deadline index holds " + indexed + " tasks of " + size);
+			checkSnapshot(list.snapshot());
+		} finally {
+			list.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Checks that a list holds the Tasks the threads left in it, as they left them.
+	 */
+	private static void checkExpected(ToDoList list, Map<Long, Expected> expected) {
+		ListSnapshot snapshot = list.snapshot();
+		check(snapshot.size() == expected.size(),
+				list.getName() + " holds " + snapshot.size() + " tasks, " + expected.size() + " expected");
+		for (Expected task : expected.values()) {
+			TaskSnapshot actual = snapshot.getTask(task.id);
+			if (actual == null) {
+				check(false, list.getName() + " lost task " + task.id);
+				continue;
+			}
+			check(actual.getName().equals(task.name) && actual.getDeadlineMinute() == task.deadline
+					&& actual.getPriority() == task.priority && actual.isComplete() == task.complete,
+					list.getName() + " holds task " + task.id + " in another state than it was left in");
+		}
+	}
+
+	/**
+	 * Checks that the mirror built from the ChangeLog holds the same Tasks.
+	 */
+	private static void checkMirror(ListSnapshot list, ListSnapshot mirror) {
+		check(list.size() == mirror.size(),
+				list.getName() + " holds " + list.size() + " tasks, its mirror " + mirror.size());
+		for (TaskSnapshot task : list.getTasks()) {
+			TaskSnapshot copy = mirror.getTask(task.getId());
+			check(copy != null && copy.getName().equals(task.getName())
+					&& copy.getDeadlineMinute() == task.getDeadlineMinute()
+					&& copy.getPriority() == task.getPriority() && copy.isComplete() == task.isComplete(),
+					list.getName() + " task " + task.getId() + " differs from its mirror");
+		}
+	}
+
+	private static void check(boolean condition, String failure) {
+		if (condition)
+			return;
+		synchronized (failures) {
+			if (failures.size() < 50)
+				failures.add(failure);
+		}
+	}
+
+	/**
+	 * Applies every change logged by one model to another.
+	 */
+	private static class MirrorLog implements ChangeLog {
+		private final TDLModel mirror;
+
+		MirrorLog(TDLModel mirror) {
+			this.mirror = mirror;
+		}
+
+		@Override
+		public void newList(String listName) {
+			mirror.newList(listName);
+		}
+
+		@Override
+		public void removeList(String listName) {
+			mirror.removeList(listName);
+		}
+
+		@Override
+		public void editList(String oldName, String newName) {
+			mirror.editList(oldName, newName);
+		}
+
+		@Override
+		public void addTask(String listName, Task task) {
+			mirror.addTask(listName, task.getName(), task.getDescription(), task.getDeadlineMinute(), task.getId(),
+					task.getPriority());
+			if (task.isComplete())
+				mirror.setTaskCompleted(listName, task.getId());
+		}
+
+		@Override
+		public void editTask(String listName, Task task) {
+			mirror.editTask(listName, task.getId(), task.getName(), task.getDescription(), task.getDeadlineMinute(),
+					task.getPriority());
+		}
+
+		@Override
+		public void removeTask(String listName, long id) {
+			mirror.removeTask(listName, id);
+		}
+
+		@Override
+		public void setTaskCompleted(String listName, long id) {
+			mirror.setTaskCompleted(listName, id);
+		}
+	}
+
+	/**
+	 * Counts the notifications of the model, deadline notifications included.
+	 */
+	private static class CountingSubscriber implements Flow.Subscriber<List<ModelEvent>> {
+		private final AtomicLong notified;
+
+		CountingSubscriber(AtomicLong notified) {
+			this.notified = notified;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(List<ModelEvent> events) {
+			notified.incrementAndGet();
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			check(false, "notification failed: " + throwable);
+		}
+
+		@Override
+		public void onComplete() {
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package controller;
+
+import java.io.File;
+
+/**
+ * Formats lists and tasks are exported to and imported from in bulk. Both hold
+ * one record per task, with the columns list, id, name, description, deadline,
+ * priority and completed, and one record with only the list for every list
+ * without tasks. Files are encoded in UTF-8.
+ *
+ * Deadlines are written as "MM/DD/YYYY HR:MN" and left empty when there is
+ * none, priorities by name, and completion as true or false. Missing
+ * descriptions are left empty. The id only identifies a task within the file:
+ * imported tasks are given new ids, so that a file can be imported into a model
+ * already holding tasks.
+ */
+public enum BulkFormat {
+	/**
+	 * Comma separated values as in RFC 4180, starting with a header naming the
+	 * columns. Fields holding commas, quotes or line breaks are quoted, quotes
+	 * within them doubled. On import the header may list the columns in any
+	 * order and leave out all but list.
+	 */
+	CSV,
+	/**
+	 * One JSON object per line, holding a member per column. The id is a number,
+	 * completed a boolean and a missing description null. On import members may
+	 * come in any order, unknown ones are ignored and missing ones are taken as
+	 * empty.
+	 */
+	JSON_LINES;
+
+	static final int LIST = 0;
+	static final int ID = 1;
+	static final int NAME = 2;
+	static final int DESCRIPTION = 3;
+	static final int DEADLINE = 4;
+	static final int PRIORITY = 5;
+	static final int COMPLETED = 6;
+
+	/**
+	 * Names of the columns, by index.
+	 */
+	static final String[] COLUMNS = { "list", "id", "name", "description", "deadline", "priority", "completed" };
+
+	/**
+	 * Returns the format of a file by its extension: JSON_LINES for .jsonl and
+	 * .json, CSV otherwise.
+	 *
+	 * @param file the file
+	 * @return the format
+	 */
+	public static BulkFormat of(File file) {
+		String name = file.getName().toLowerCase();
+		return name.endsWith(".jsonl") || name.endsWith(".json") ? JSON_LINES : CSV;
+	}
+
+	/**
+	 * Returns the index of the column with the passed name, or -1 if there is
+	 * none.
+	 */
+	static int column(String name) {
+		for (int i = 0; i < COLUMNS.length; i++)
+			if (COLUMNS[i].equals(name))
+				return i;
+		return -1;
+	}
+}
@@ -0,0 +1,162 @@
+package controller;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import model.Deadlines;
+import model.Priority;
+import model.TDLModel;
+
+/**
+ * Imports the records decoded by a BulkReader into a TDLModel. Records are
+ * checked as they are read and gathered BATCH_SIZE at a time, then added to the
+ * Model as one batch, so the view is notified once per batch and the memory
+ * taken does not depend on the size of the file. A record that can not be
+ * imported is reported with its line and skipped.
+ *
+ * Every task is given a new id, and lists are created as their first record is
+ * met. Tasks of lists that already exist are added to them.
+ */
+final class BulkImporter {
+
+	/**
+	 * Number of records added to the Model at once.
+	 */
+	static final int BATCH_SIZE = 4096;
+
+	private final TDLModel model;
+	private final ImportReport report = new ImportReport();
+
+	/*
+	 * Records of the batch being gathered, by index. A record without a task name
+	 * only creates its list.
+	 */
+	private final long[] lines = new long[BATCH_SIZE];
+	private final String[] lists = new String[BATCH_SIZE];
+	private final String[] names = new String[BATCH_SIZE];
+	private final String[] descriptions = new String[BATCH_SIZE];
+	private final long[] deadlines = new long[BATCH_SIZE];
+	private final Priority[] priorities = new Priority[BATCH_SIZE];
+	private final boolean[] completed = new boolean[BATCH_SIZE];
+	private int pending;
+
+	/**
+	 * Creates an importer adding to the passed Model.
+	 *
+	 * @param model the Model to import into
+	 */
+	BulkImporter(TDLModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * Imports every record of the reader. The records gathered so far are added
+	 * even if reading fails.
+	 *
+	 * @param reader the records to import
+	 * @throws IOException if the records could not be read
+	 */
+	void run(BulkReader reader) throws IOException {
+		try {
+			while (true) {
+				try {
+					if (!reader.next())
+						break;
+					gather(reader);
+				} catch (IllegalArgumentException e) {
+					report.error(reader.getLine(), e.getMessage());
+				}
+				report.record();
+				if (pending == BATCH_SIZE)
+					flush();
+			}
+		} finally {
+			flush();
+		}
+	}
+
+	/**
+	 * Returns the report of what was imported so far.
+	 *
+	 * @return the report
+	 */
+	ImportReport getReport() {
+		return report;
+	}
+
+	/**
+	 * Checks the current record of the reader and adds it to the batch.
+	 */
+	private void gather(BulkReader reader) {
+		String list = reader.get(BulkFormat.LIST);
+		if (list == null || list.isEmpty())
+			throw new IllegalArgumentException("Record without a list");
+		String name = reader.get(BulkFormat.NAME);
+		String description = reader.get(BulkFormat.DESCRIPTION);
+		String deadline = reader.get(BulkFormat.DEADLINE);
+		String priority = reader.get(BulkFormat.PRIORITY);
+		String complete = reader.get(BulkFormat.COMPLETED);
+		boolean task = false;
+		for (int column = 0; column < BulkFormat.COLUMNS.length && !task; column++)
+			task = column != BulkFormat.LIST && reader.get(column) != null && !reader.get(column).isEmpty();
+
+		int i = pending;
+		lines[i] = reader.getLine();
+		lists[i] = list;
+		if (task) {
+			names[i] = name == null ? "" : name;
+			descriptions[i] = description == null || description.isEmpty() ? null : description;
+			deadlines[i] = deadline == null || deadline.isEmpty() ? Deadlines.NONE : Deadlines.parse(deadline);
+			priorities[i] = parsePriority(priority);
+			completed[i] = parseCompleted(complete);
+		} else {
+			names[i] = null;
+		}
+		pending++;
+	}
+
+	/**
+	 * Adds the records of the batch to the Model.
+	 */
+	private void flush() {
+		if (pending == 0)
+			return;
+		model.batch(() -> {
+			for (int i = 0; i < pending; i++) {
+				try {
+					if (model.getList(lists[i]) == null && model.newList(lists[i]))
+						report.listCreated();
+					if (names[i] == null)
+						continue;
+					long id = model.addTask(lists[i], names[i], descriptions[i], deadlines[i], priorities[i]);
+					if (completed[i])
+						model.setTaskCompleted(lists[i], id);
+					report.taskAdded();
+				} catch (RuntimeException e) {
+					report.error(lines[i], e.toString());
+				}
+			}
+		});
+		Arrays.fill(lists, 0, pending, null);
+		Arrays.fill(names, 0, pending, null);
+		Arrays.fill(descriptions, 0, pending, null);
+		pending = 0;
+	}
+
+	private static Priority parsePriority(String text) {
+		if (text == null || text.isEmpty())
+			return Priority.MEDIUM;
+		for (Priority priority : Priority.values())
+			if (priority.name().equalsIgnoreCase(text))
+				return priority;
+		throw new IllegalArgumentException("Unknown priority: " + text);
+	}
+
+	private static boolean parseCompleted(String text) {
+		if (text == null || text.isEmpty() || text.equalsIgnoreCase("false"))
+			return false;
+		if (text.equalsIgnoreCase("true"))
+			return true;
+		throw new IllegalArgumentException("Completed is neither true nor false: " + text);
+	}
+}
@@ -0,0 +1,460 @@
+package controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes the records of a file in a BulkFormat, reading it through a
+ * fixed-size byte buffer and decoding UTF-8 by hand, so an import takes the same
+ * memory however large the file is. Only the fields of the current record are
+ * kept, each at most MAX_FIELD characters long.
+ *
+ * A record that can not be decoded is skipped up to the end of its line and
+ * reported by an IllegalArgumentException, after which the next record can be
+ * read, so that one bad record does not stop an import.
+ */
+final class BulkReader implements Closeable {
+
+	/**
+	 * Longest field kept, in characters. Longer fields make their record fail.
+	 */
+	static final int MAX_FIELD = 1 << 20;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final InputStream in;
+	private final BulkFormat format;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	private long bytesRead;
+
+	/*
+	 * Last byte read, or -1 at the end of the stream.
+	 */
+	private int last;
+	/*
+	 * Line of the next byte, and line the current record started at.
+	 */
+	private long line = 1;
+	private long recordLine;
+
+	/*
+	 * Field being decoded; the characters past MAX_FIELD are dropped.
+	 */
+	private char[] field = new char[256];
+	private int length;
+	private boolean truncated;
+
+	/*
+	 * Fields of the current record by column, null if absent.
+	 */
+	private final String[] fields = new String[BulkFormat.COLUMNS.length];
+	/*
+	 * Column of each field of a CSV record, -1 for those ignored, read from the
+	 * header.
+	 */
+	private int[] header;
+
+	/**
+	 * Creates a reader decoding records from the passed stream.
+	 *
+	 * @param in     the stream, closed with the reader
+	 * @param format the format to read
+	 */
+	BulkReader(InputStream in, BulkFormat format) {
+		this.in = in;
+		this.format = format;
+	}
+
+	/**
+	 * Reads the next record, skipping empty lines, and in JSON Lines blank ones.
+	 *
+	 * @return false at the end of the stream
+	 * @throws IOException              if the stream could not be read, or a CSV
+	 *                                  header does not name the list column
+	 * @throws IllegalArgumentException if the record could not be decoded; it is
+	 *                                  skipped and the next one can be read
+	 */
+	boolean next() throws IOException {
+		Arrays.fill(fields, null);
+		if (format == BulkFormat.CSV && header == null)
+			readHeader();
+		int c;
+		while ((c = peek()) == '\n' || c == '\r' || format == BulkFormat.JSON_LINES && (c == ' ' || c == '\t'))
+			read();
+		if (c < 0)
+			return false;
+		recordLine = line;
+		try {
+			if (format == BulkFormat.CSV)
+				readCsv();
+			else
+				readJson();
+		} catch (IllegalArgumentException e) {
+			if (last != '\n')
+				skipLine();
+			throw e;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a field of the current record.
+	 *
+	 * @param column index of the column, as in BulkFormat.COLUMNS
+	 * @return the field, or null if the record does not have it
+	 */
+	String get(int column) {
+		return fields[column];
+	}
+
+	/**
+	 * Returns the line the current record starts at, counting from 1.
+	 *
+	 * @return the line
+	 */
+	long getLine() {
+		return recordLine;
+	}
+
+	/**
+	 * Returns the number of bytes read from the stream.
+	 *
+	 * @return number of bytes
+	 */
+	long getBytesRead() {
+		return bytesRead;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Reads the names of the columns of a CSV file from its first line.
+	 */
+	private void readHeader() throws IOException {
+		if (peek() < 0) {
+			header = new int[0];
+			return;
+		}
+		if (peek() == 0xef) {
+			// byte order mark
+			read();
+			read();
+			read();
+		}
+		List<Integer> columns = new ArrayList<>();
+		boolean hasList = false;
+		int end;
+		do {
+			try {
+				end = csvField();
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid CSV header: " + e.getMessage());
+			}
+			int column = BulkFormat.column(new String(field, 0, length).trim().toLowerCase());
+			hasList |= column == BulkFormat.LIST;
+			columns.add(column);
+		} while (end == ',');
+		if (!hasList)
+			throw new IOException("CSV header does not name the " + BulkFormat.COLUMNS[BulkFormat.LIST] + " column");
+		header = columns.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private void readCsv() throws IOException {
+		int index = 0;
+		int end;
+		do {
+			end = csvField();
+			if (index < header.length && header[index] >= 0)
+				fields[header[index]] = value();
+			index++;
+		} while (end == ',');
+	}
+
+	/**
+	 * Decodes a CSV field and the delimiter following it, returning the
+	 * delimiter: ',', '\n' or -1 at the end of the stream.
+	 */
+	private int csvField() throws IOException {
+		length = 0;
+		truncated = false;
+		int c = read();
+		if (c == '"') {
+			while (true) {
+				c = read();
+				if (c < 0)
+					throw new IllegalArgumentException("Quoted field is not closed");
+				if (c == '"') {
+					c = read();
+					if (c != '"')
+						break;
+				}
+				append(c);
+			}
+			if (c == '\r')
+				c = read();
+			if (c != ',' && c != '\n' && c >= 0)
+				throw new IllegalArgumentException("Characters after a quoted field");
+			return c;
+		}
+		while (c != ',' && c != '\n' && c >= 0) {
+			if (c != '\r' || peek() != '\n')
+				append(c);
+			c = read();
+		}
+		return c;
+	}
+
+	private void readJson() throws IOException {
+		space();
+		if (read() != '{')
+			throw new IllegalArgumentException("Record is not a JSON object");
+		space();
+		if (peek() == '}') {
+			read();
+		} else {
+			while (true) {
+				space();
+				if (read() != '"')
+					throw new IllegalArgumentException("Member name is not a string");
+				jsonString();
+				int column = BulkFormat.column(new String(field, 0, length));
+				space();
+				if (read() != ':')
+					throw new IllegalArgumentException("Member name is not followed by ':'");
+				space();
+				if (column >= 0)
+					fields[column] = jsonScalar();
+				else
+					skipJson(0);
+				space();
+				int c = read();
+				if (c == '}')
+					break;
+				if (c != ',')
+					throw new IllegalArgumentException("Members are not separated by ','");
+			}
+		}
+		space();
+		int c = read();
+		if (c != '\n' && c >= 0)
+			throw new IllegalArgumentException("Characters after the JSON object");
+	}
+
+	/**
+	 * Decodes a string, a number, a boolean or null into its text, or null.
+	 */
+	private String jsonScalar() throws IOException {
+		int c = peek();
+		if (c == '"') {
+			read();
+			jsonString();
+			return value();
+		}
+		if (c == '{' || c == '[')
+			throw new IllegalArgumentException("Field is not a string, a number or a boolean");
+		length = 0;
+		truncated = false;
+		while ((c = peek()) >= 0 && c != ',' && c != '}' && c != ' ' && c != '\t' && c != '\r' && c != '\n')
+			append(read());
+		String text = value();
+		if (text.equals("null"))
+			return null;
+		if (text.isEmpty())
+			throw new IllegalArgumentException("Member without a value");
+		return text;
+	}
+
+	/**
+	 * Decodes a JSON string up to its closing quote, the opening one being read.
+	 */
+	private void jsonString() throws IOException {
+		length = 0;
+		truncated = false;
+		while (true) {
+			int c = read();
+			if (c == '"')
+				return;
+			if (c < 0x20)
+				throw new IllegalArgumentException("String is not closed");
+			if (c != '\\') {
+				append(c);
+				continue;
+			}
+			c = read();
+			switch (c) {
+			case '"':
+			case '\\':
+			case '/':
+				put((char) c);
+				break;
+			case 'b':
+				put('\b');
+				break;
+			case 'f':
+				put('\f');
+				break;
+			case 'n':
+				put('\n');
+				break;
+			case 'r':
+				put('\r');
+				break;
+			case 't':
+				put('\t');
+				break;
+			case 'u':
+				int unit = 0;
+				for (int i = 0; i < 4; i++) {
+					int digit = Character.digit(read(), 16);
+					if (digit < 0)
+						throw new IllegalArgumentException("Invalid \\u escape");
+					unit = unit << 4 | digit;
+				}
+				put((char) unit);
+				break;
+			default:
+				throw new IllegalArgumentException("Invalid escape");
+			}
+		}
+	}
+
+	/**
+	 * Skips a JSON value of an unknown member, nested values included.
+	 */
+	private void skipJson(int depth) throws IOException {
+		do {
+			int c = peek();
+			if (c < 0 || c == '\n')
+				throw new IllegalArgumentException("Value is not closed");
+			if (c == '"') {
+				read();
+				jsonString();
+			} else if (c == '{' || c == '[') {
+				read();
+				depth++;
+			} else if (c == '}' || c == ']') {
+				if (depth == 0)
+					return;
+				read();
+				depth--;
+			} else if (c == ',' && depth == 0) {
+				return;
+			} else {
+				read();
+			}
+		} while (depth > 0 || peek() != ',' && peek() != '}');
+	}
+
+	private void space() throws IOException {
+		int c;
+		while ((c = peek()) == ' ' || c == '\t' || c == '\r')
+			read();
+	}
+
+	/**
+	 * Returns the field decoded, or fails if it was too long.
+	 */
+	private String value() {
+		if (truncated)
+			throw new IllegalArgumentException("Field is longer than " + MAX_FIELD + " characters");
+		return new String(field, 0, length);
+	}
+
+	/**
+	 * Appends the character starting with the passed byte to the field, decoding
+	 * the rest of its UTF-8 sequence. Malformed sequences decode to U+FFFD.
+	 */
+	private void append(int c) throws IOException {
+		if (c < 0x80) {
+			put((char) c);
+			return;
+		}
+		int extra;
+		int codePoint;
+		if (c >= 0xf0 && c < 0xf8) {
+			extra = 3;
+			codePoint = c & 0x07;
+		} else if (c >= 0xe0) {
+			extra = 2;
+			codePoint = c & 0x0f;
+		} else if (c >= 0xc0) {
+			extra = 1;
+			codePoint = c & 0x1f;
+		} else {
+			put('\ufffd');
+			return;
+		}
+		for (int i = 0; i < extra; i++) {
+			int next = peek();
+			if ((next & 0xc0) != 0x80) {
+				put('\ufffd');
+				return;
+			}
+			codePoint = codePoint << 6 | read() & 0x3f;
+		}
+		if (codePoint < (extra == 1 ? 0x80 : extra == 2 ? 0x800 : 0x10000) || codePoint > Character.MAX_CODE_POINT
+				|| Character.isSurrogate((char) codePoint) && extra == 2) {
+			put('\ufffd');
+		} else if (codePoint >= 0x10000) {
+			put(Character.highSurrogate(codePoint));
+			put(Character.lowSurrogate(codePoint));
+		} else {
+			put((char) codePoint);
+		}
+	}
+
+	private void put(char c) {
+		if (length == field.length) {
+			if (length == MAX_FIELD) {
+				truncated = true;
+				return;
+			}
+			field = Arrays.copyOf(field, Math.min(length * 2, MAX_FIELD));
+		}
+		field[length++] = c;
+	}
+
+	/**
+	 * Skips the rest of the current line.
+	 */
+	private void skipLine() throws IOException {
+		int c;
+		do
+			c = read();
+		while (c != '\n' && c >= 0);
+	}
+
+	private int read() throws IOException {
+		if (position == limit && !fill())
+			return last = -1;
+		last = buffer[position++] & 0xff;
+		if (last == '\n')
+			line++;
+		return last;
+	}
+
+	private int peek() throws IOException {
+		if (position == limit && !fill())
+			return -1;
+		return buffer[position] & 0xff;
+	}
+
+	private boolean fill() throws IOException {
+		int read = in.read(buffer, 0, buffer.length);
+		if (read <= 0)
+			return false;
+		bytesRead += read;
+		position = 0;
+		limit = read;
+		return true;
+	}
+}
@@ -0,0 +1,312 @@
+package controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import model.Deadlines;
+import model.Task;
+
+/**
+ * Encodes lists and tasks in a BulkFormat into a fixed-size byte buffer that is
+ * written to the stream whenever it fills, so an export takes the same memory
+ * however many tasks it writes. Text is encoded to UTF-8 and escaped by hand
+ * rather than through a Writer, and ids and deadlines are formatted in place
+ * without creating Strings.
+ */
+final class BulkWriter implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final byte[] HEX = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e',
+			'f' };
+
+	private final OutputStream out;
+	private final BulkFormat format;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int count;
+	/*
+	 * Bytes written to the stream so far.
+	 */
+	private long written;
+	/*
+	 * Deadline being formatted, and digits of a number being formatted.
+	 */
+	private final char[] deadline = new char[Deadlines.LENGTH];
+	private final byte[] digits = new byte[20];
+
+	/**
+	 * Creates a writer encoding records to the passed stream, starting with the
+	 * header in CSV.
+	 *
+	 * @param out    the stream, closed with the writer
+	 * @param format the format to write
+	 * @throws IOException if the header could not be written
+	 */
+	BulkWriter(OutputStream out, BulkFormat format) throws IOException {
+		this.out = out;
+		this.format = format;
+		if (format == BulkFormat.CSV) {
+			for (int i = 0; i < BulkFormat.COLUMNS.length; i++) {
+				if (i > 0)
+					put(',');
+				ascii(BulkFormat.COLUMNS[i]);
+			}
+			ascii("\r\n");
+		}
+	}
+
+	/**
+	 * Writes the record of a list without tasks.
+	 *
+	 * @param listName name of the list
+	 * @throws IOException if the record could not be written
+	 */
+	void writeList(String listName) throws IOException {
+		if (format == BulkFormat.CSV) {
+			csv(listName);
+			ascii(",,,,,,\r\n");
+		} else {
+			ascii("{\"list\":");
+			json(listName);
+			ascii("}\n");
+		}
+	}
+
+	/**
+	 * Writes the record of a task.
+	 *
+	 * @param listName name of the list holding the task
+	 * @param task     the task
+	 * @throws IOException if the record could not be written
+	 */
+	void writeTask(String listName, Task task) throws IOException {
+		if (format == BulkFormat.CSV) {
+			csv(listName);
+			put(',');
+			number(task.getId());
+			put(',');
+			csv(task.getName());
+			put(',');
+			csv(task.getDescription());
+			put(',');
+			if (task.hasDeadline())
+				deadline(task.getDeadlineMinute());
+			put(',');
+			ascii(task.getPriority().name());
+			ascii(task.isComplete() ? ",true\r\n" : ",false\r\n");
+		} else {
+			ascii("{\"list\":");
+			json(listName);
+			ascii(",\"id\":");
+			number(task.getId());
+			ascii(",\"name\":");
+			json(task.getName());
+			ascii(",\"description\":");
+			json(task.getDescription());
+			ascii(",\"deadline\":");
+			if (task.hasDeadline()) {
+				put('"');
+				deadline(task.getDeadlineMinute());
+				put('"');
+			} else {
+				ascii("null");
+			}
+			ascii(",\"priority\":\"");
+			ascii(task.getPriority().name());
+			ascii(task.isComplete() ? "\",\"completed\":true}\n" : "\",\"completed\":false}\n");
+		}
+	}
+
+	/**
+	 * Returns the number of bytes written, including those still buffered.
+	 *
+	 * @return number of bytes
+	 */
+	long getBytesWritten() {
+		return written + count;
+	}
+
+	/**
+	 * Writes the buffered bytes to the stream.
+	 *
+	 * @throws IOException if they could not be written
+	 */
+	void flush() throws IOException {
+		out.write(buffer, 0, count);
+		written += count;
+		count = 0;
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes a CSV field, quoted if it holds a comma, a quote or a line break.
+	 * Nothing is written for null.
+	 */
+	private void csv(String text) throws IOException {
+		if (text == null)
+			return;
+		boolean quoted = false;
+		for (int i = 0; i < text.length() && !quoted; i++) {
+			char c = text.charAt(i);
+			quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+		}
+		if (!quoted) {
+			text(text, false);
+			return;
+		}
+		put('"');
+		int from = 0;
+		for (int quote = text.indexOf('"'); quote >= 0; quote = text.indexOf('"', from)) {
+			text(text.substring(from, quote + 1), false);
+			put('"');
+			from = quote + 1;
+		}
+		text(from == 0 ? text : text.substring(from), false);
+		put('"');
+	}
+
+	/**
+	 * Writes a JSON string, or null.
+	 */
+	private void json(String text) throws IOException {
+		if (text == null) {
+			ascii("null");
+			return;
+		}
+		put('"');
+		text(text, true);
+		put('"');
+	}
+
+	/**
+	 * Encodes text to UTF-8. In JSON, quotes, backslashes and control characters
+	 * are escaped, and so are surrogates without their pair, which UTF-8 can not
+	 * encode; outside JSON those are replaced by '?'.
+	 */
+	private void text(String text, boolean json) throws IOException {
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				if (json && (c < 0x20 || c == '"' || c == '\\'))
+					escape(c);
+				else
+					put(c);
+			} else if (c < 0x800) {
+				ensure(2);
+				buffer[count++] = (byte) (0xc0 | c >> 6);
+				buffer[count++] = (byte) (0x80 | c & 0x3f);
+			} else if (Character.isSurrogate(c)) {
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, text.charAt(++i));
+					ensure(4);
+					buffer[count++] = (byte) (0xf0 | codePoint >> 18);
+					buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+					buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+					buffer[count++] = (byte) (0x80 | codePoint & 0x3f);
+				} else if (json) {
+					escape(c);
+				} else {
+					put('?');
+				}
+			} else {
+				ensure(3);
+				buffer[count++] = (byte) (0xe0 | c >> 12);
+				buffer[count++] = (byte) (0x80 | c >> 6 & 0x3f);
+				buffer[count++] = (byte) (0x80 | c & 0x3f);
+			}
+		}
+	}
+
+	/**
+	 * Writes the JSON escape of a character.
+	 */
+	private void escape(char c) throws IOException {
+		ensure(6);
+		buffer[count++] = '\\';
+		switch (c) {
+		case '"':
+		case '\\':
+			buffer[count++] = (byte) c;
+			break;
+		case '\n':
+			buffer[count++] = 'n';
+			break;
+		case '\r':
+			buffer[count++] = 'r';
+			break;
+		case '\t':
+			buffer[count++] = 't';
+			break;
+		default:
+			buffer[count++] = 'u';
+			buffer[count++] = HEX[c >> 12];
+			buffer[count++] = HEX[c >> 8 & 0xf];
+			buffer[count++] = HEX[c >> 4 & 0xf];
+			buffer[count++] = HEX[c & 0xf];
+		}
+	}
+
+	private void deadline(long minute) throws IOException {
+		Deadlines.format(minute, deadline, 0);
+		ensure(Deadlines.LENGTH);
+		for (char c : deadline)
+			buffer[count++] = (byte) c;
+	}
+
+	private void number(long value) throws IOException {
+		ensure(digits.length + 1);
+		if (value < 0) {
+			buffer[count++] = '-';
+			if (value == Long.MIN_VALUE) {
+				ascii("9223372036854775808");
+				return;
+			}
+			value = -value;
+		}
+		int n = digits.length;
+		do {
+			digits[--n] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value != 0);
+		System.arraycopy(digits, n, buffer, count, digits.length - n);
+		count += digits.length - n;
+	}
+
+	/**
+	 * Writes text known to be ASCII.
+	 */
+	private void ascii(String text) throws IOException {
+		for (int i = 0; i < text.length(); i++)
+			put(text.charAt(i));
+	}
+
+	private void put(char c) throws IOException {
+		if (count == buffer.length)
+			drain();
+		buffer[count++] = (byte) c;
+	}
+
+	/**
+	 * Makes room for the passed number of bytes in the buffer.
+	 */
+	private void ensure(int bytes) throws IOException {
+		if (count + bytes > buffer.length)
+			drain();
+	}
+
+	private void drain() throws IOException {
+		out.write(buffer, 0, count);
+		written += count;
+		count = 0;
+	}
+}
@@ -0,0 +1,120 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: how many records were read, how many tasks and new
+ * lists they added, and the records that could not be imported. Only the first
+ * MAX_ERRORS errors are kept, each with the line of its record, so that a file
+ * full of bad records does not fill the memory; all of them are counted.
+ */
+public final class ImportReport {
+
+	/**
+	 * Number of error messages kept.
+	 */
+	static final int MAX_ERRORS = 100;
+
+	private long records;
+	private long tasks;
+	private long lists;
+	private long errorCount;
+	private final List<String> errors = new ArrayList<>();
+
+	/**
+	 * Returns the number of records read, imported or not.
+	 *
+	 * @return number of records
+	 */
+	public long getRecordCount() {
+		return records;
+	}
+
+	/**
+	 * Returns the number of tasks added.
+	 *
+	 * @return number of tasks
+	 */
+	public long getTaskCount() {
+		return tasks;
+	}
+
+	/**
+	 * Returns the number of lists created, the lists already in the model not
+	 * included.
+	 *
+	 * @return number of lists
+	 */
+	public long getListCount() {
+		return lists;
+	}
+
+	/**
+	 * Returns the number of records that could not be imported, and of errors that
+	 * stopped the import.
+	 *
+	 * @return number of errors
+	 */
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Returns the first MAX_ERRORS errors, in the order they occurred.
+	 *
+	 * @return read-only List of the error messages
+	 */
+	public List<String> getErrors() {
+		return Collections.unmodifiableList(errors);
+	}
+
+	/**
+	 * Returns whether every record was imported.
+	 *
+	 * @return true if there was no error
+	 */
+	public boolean isComplete() {
+		return errorCount == 0;
+	}
+
+	void record() {
+		records++;
+	}
+
+	void taskAdded() {
+		tasks++;
+	}
+
+	void listCreated() {
+		lists++;
+	}
+
+	/**
+	 * Reports a record that could not be imported.
+	 *
+	 * @param line    line the record starts at
+	 * @param message why it could not be imported
+	 */
+	void error(long line, String message) {
+		error("line " + line + ": " + message);
+	}
+
+	/**
+	 * Reports an error.
+	 *
+	 * @param message the error
+	 */
+	void error(String message) {
+		if (errors.size() < MAX_ERRORS)
+			errors.add(message);
+		errorCount++;
+	}
+
+	@Override
+	public String toString() {
+		return "Imported " + tasks + " tasks and " + lists + " new lists from " + records + " records, " + errorCount
+				+ " errors";
+	}
+}
@@ -0,0 +1,132 @@
+package controller;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds, in the style of an
+ * HdrHistogram: every power of two is split into SUB_BUCKETS linear buckets, so
+ * any recorded value is known to within 1 / SUB_BUCKETS of itself whatever its
+ * magnitude, with a fixed array of counters and no allocation when recording.
+ */
+class LatencyHistogram {
+
+	/**
+	 * Linear buckets per power of two, as a power of two.
+	 */
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/**
+	 * Values below this are counted in a bucket of their own.
+	 */
+	private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+	private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records one latency.
+	 *
+	 * @param nanos the latency in nanoseconds
+	 */
+	void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		counts.incrementAndGet(bucketOf(nanos));
+		count.increment();
+		total.add(nanos);
+		max.accumulate(nanos);
+	}
+
+	/**
+	 * Returns the number of latencies recorded.
+	 *
+	 * @return number of latencies
+	 */
+	long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the sum of the latencies recorded.
+	 *
+	 * @return total in nanoseconds
+	 */
+	long getTotal() {
+		return total.sum();
+	}
+
+	/**
+	 * Returns the largest latency recorded.
+	 *
+	 * @return maximum in nanoseconds
+	 */
+	long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the latency below which the passed fraction of the recorded
+	 * latencies lie, rounded up to the bound of its bucket.
+	 *
+	 * @param fraction between 0 and 1, such as 0.99 for the 99th percentile
+	 * @return the percentile in nanoseconds, or 0 if nothing was recorded
+	 */
+	long getPercentile(double fraction) {
+		long[] snapshot = new long[BUCKETS];
+		long recorded = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			recorded += snapshot[i];
+		}
+		if (recorded == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(fraction * recorded));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank)
+				return Math.min(upperBoundOf(i), getMax());
+		}
+		return getMax();
+	}
+
+	/**
+	 * Clears the histogram. Latencies recorded while it is being cleared may be
+	 * partly kept.
+	 */
+	void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+		count.reset();
+		total.reset();
+		max.reset();
+	}
+
+	/**
+	 * Returns the bucket counting the passed value.
+	 */
+	static int bucketOf(long value) {
+		if (value < LINEAR_LIMIT)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the largest value counted by the passed bucket.
+	 */
+	static long upperBoundOf(int bucket) {
+		if (bucket < LINEAR_LIMIT)
+			return bucket;
+		int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+		long sub = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+		long lower = (1L << exponent) + (sub << (exponent - SUB_BUCKET_BITS));
+		return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+}
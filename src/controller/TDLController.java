@@ -1,17 +1,26 @@
 package controller;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import controller.TDLMetrics.Operation;
+import model.ChangeLog;
+import model.Deadlines;
+import model.ListedTask;
+import model.ModelSnapshot;
+import model.Priority;
 import model.TDLModel;
+import model.TDLStats;
 import model.Task;
+import model.TaskMap;
+import model.TaskPage;
+import model.TaskQuery;
 import model.ToDoList;
 
 /**
@@ -30,12 +39,63 @@ public class TDLController {
 	 */
 	private TDLModel model;
 	
+	/**
+	 * Number of journal records after which a save compacts the journal into
+	 * the shards of the lists.
+	 */
+	private static final int COMPACTION_THRESHOLD = 10000;
+	
+	/**
+	 * Number of journal records that are batched together before they are forced
+	 * to disk without an explicit save.
+	 */
+	private static final int SYNC_INTERVAL = 64;
+	
+	/**
+	 * Number of asynchronous save requests that may wait for the saver before
+	 * further requests wait for it as well.
+	 */
+	private static final int SAVE_QUEUE_CAPACITY = 1024;
+	
+	/**
+	 * Journal of the changes made since the shards were last written. It is the
+	 * ChangeLog of the model, so it is shared by every controller of that model.
+	 * Closing it is harmless to the others, as it opens its file again on the
+	 * next change.
+	 */
+	private TDLJournal journal;
+	
+	/**
+	 * Snapshot files of the lists, one per list, kept in the listdata directory.
+	 */
+	private TDLShards shards;
+	
+	/**
+	 * Background thread serving the asynchronous saves, started by the first one.
+	 */
+	private TDLSaver saver;
+	
+	/**
+	 * Latencies of the operations of the controller, shared by every controller.
+	 */
+	private TDLMetrics metrics;
+	
 	/**
 	 * Constructor for the controller class
 	 * @param model Is the instance passed by the view
+	 * @throws IllegalStateException if the changes of the model are already
+	 * recorded by a ChangeLog other than a journal
 	 */
 	public TDLController(TDLModel model) {
 		this.model = model;
+		ChangeLog log = model.attachChangeLog(() -> new TDLJournal(new File("listdata.journal"), SYNC_INTERVAL));
+		if (!(log instanceof TDLJournal))
+			throw new IllegalStateException("The changes of the model are already recorded by " + log);
+		this.journal = (TDLJournal) log;
+		this.shards = TDLShards.get(new File("listdata"));
+		this.model.attachListStore(shards);
+		this.metrics = TDLMetrics.get();
+		this.metrics.watch(model);
 	}
 	
 	/**
@@ -44,7 +104,13 @@ public class TDLController {
 	 * @return true if added, else false
 	 */
 	public boolean addList(String name) {
-		return this.model.newList(name);
+		long start = metrics.start();
+		try {
+			return this.model.newList(name);
+		}
+		finally {
+			metrics.end(Operation.ADD_LIST, start);
+		}
 	}
 	
 	/**
@@ -53,30 +119,82 @@ public class TDLController {
 	 * @param taskName Name of the task.
 	 * @param description Description of task, if provided
 	 * @param time Deadline for the task, if provided
-	 * @param timeCreated A Double that indicates the second at which a task is created
 	 * @param priority Priority given to the task
+	 * @return Id given to the task
 	 */
-	public void addTask(String listName, String taskName, String description, String time, Double timeCreated, String priority) {
-		Date deadline = getDateObject(time);
-		model.addTask(listName, taskName, description, deadline, timeCreated, time, priority);
+	public long addTask(String listName, String taskName, String description, String time, String priority) {
+		long start = metrics.start();
+		try {
+			long deadline = Deadlines.parse(time);
+			Priority taskPriority = Priority.parse(priority);
+			return model.addTask(listName, taskName, description, deadline, taskPriority);
+		}
+		finally {
+			metrics.end(Operation.ADD_TASK, start);
+		}
 	}
 	
 	/**
 	 * Deletes a task from the list of choice.
 	 * @param listName The List that task needs to be removed from
-	 * @param timeCreated Double of when task was created
+	 * @param id Id of the task
 	 */
-	public void deleteTask(String listName, Double timeCreated) {
-		this.model.removeTask(listName, timeCreated);
+	public void deleteTask(String listName, long id) {
+		long start = metrics.start();
+		try {
+			this.model.removeTask(listName, id);
+		}
+		finally {
+			metrics.end(Operation.DELETE_TASK, start);
+		}
 	}
 	
 	/**
 	 * Checks off a completed task
 	 * @param listName The List that stores the task
-	 * @param timeCreated Double of when task was created
+	 * @param id Id of the task
 	 */
-	public void checkOffTask(String listName, Double timeCreated) {
-		this.model.setTaskCompleted(listName, timeCreated);
+	public void checkOffTask(String listName, long id) {
+		long start = metrics.start();
+		try {
+			this.model.setTaskCompleted(listName, id);
+		}
+		finally {
+			metrics.end(Operation.CHECK_OFF_TASK, start);
+		}
+	}
+	
+	/**
+	 * Deletes several tasks from the list of choice, notifying the view once.
+	 * @param listName The List that tasks need to be removed from
+	 * @param ids Ids of the tasks
+	 */
+	public void deleteTasks(String listName, long... ids) {
+		batch(() -> {
+			for (long id : ids)
+				deleteTask(listName, id);
+		});
+	}
+	
+	/**
+	 * Checks off several completed tasks, notifying the view once.
+	 * @param listName The List that stores the tasks
+	 * @param ids Ids of the tasks
+	 */
+	public void checkOffTasks(String listName, long... ids) {
+		batch(() -> {
+			for (long id : ids)
+				checkOffTask(listName, id);
+		});
+	}
+	
+	/**
+	 * Applies several changes made through this controller as one batch, so the
+	 * view is notified once for all of them.
+	 * @param changes The changes to apply
+	 */
+	public void batch(Runnable changes) {
+		model.batch(changes);
 	}
 	
 	/**
@@ -84,7 +202,13 @@ public class TDLController {
 	 * @param name The list to remove
 	 */
 	public void deleteList(String name) {
-		this.model.removeList(name);
+		long start = metrics.start();
+		try {
+			this.model.removeList(name);
+		}
+		finally {
+			metrics.end(Operation.DELETE_LIST, start);
+		}
 	}
 	
 	/**
@@ -100,51 +224,167 @@ public class TDLController {
 	 * Renames a list
 	 * @param oldName Old name of the list
 	 * @param newName New name of the list
+	 * @return true if renamed, false if oldName does not exist or newName is taken
 	 */
-	public void editList(String oldName, String newName) {
-		model.editList(oldName, newName);
+	public boolean editList(String oldName, String newName) {
+		long start = metrics.start();
+		try {
+			return model.editList(oldName, newName);
+		}
+		finally {
+			metrics.end(Operation.EDIT_LIST, start);
+		}
 	}
 	
 	/**
 	 * Edits details of a task
 	 * @param listName List that houses the task
-	 * @param timeCreated Time the task was created
+	 * @param id Id of the task
 	 * @param taskName Name of the task
 	 * @param taskDescription New Description of the task
 	 * @param time New Deadline of the task
 	 * @param priority New Priority of the task
 	 */
-	public void editTask(String listName, Double timeCreated, String taskName, String taskDescription, String time,String priority) {
-		Date deadline = getDateObject(time);
-		model.editTask(listName, timeCreated, taskName, taskDescription, deadline,priority);
+	public void editTask(String listName, long id, String taskName, String taskDescription, String time,String priority) {
+		long start = metrics.start();
+		try {
+			long deadline = Deadlines.parse(time);
+			Priority taskPriority = Priority.parse(priority);
+			model.editTask(listName, id, taskName, taskDescription, deadline, taskPriority);
+		}
+		finally {
+			metrics.end(Operation.EDIT_TASK, start);
+		}
 	}
 	
 	/**
 	 * Returns details of all lists
-	 * @return HashMap of all lists
+	 * @return read-only Map of all lists
 	 */
-	public HashMap<String, ToDoList> getAllLists() {
+	public Map<String, ToDoList> getAllLists() {
 		return this.model.getAllLists();
 	}
 	
+	/**
+	 * Returns an immutable, consistent snapshot of all lists and their tasks,
+	 * which can be read without locking while the data keeps changing
+	 * @return ModelSnapshot of all lists
+	 */
+	public ModelSnapshot getSnapshot() {
+		return this.model.snapshot();
+	}
+	
+	/**
+	 * Returns the totals, completion, priorities and deadlines of all tasks, kept
+	 * up to date as they change, so a dashboard can read them without a scan
+	 * @return TDLStats of all tasks
+	 */
+	public TDLStats getStats() {
+		return this.model.getStats();
+	}
+	
 	/**
 	 * Returns details of all tasks in a list
 	 * @param listName List to access
-	 * @return LinkedHashMap of all tasks
+	 * @return TaskMap of all tasks
 	 */
-	public LinkedHashMap<Double, Task> getAllTasks(String listName) {
+	public TaskMap getAllTasks(String listName) {
 		return getList(listName).getAllTasks();
 	}
 	
+	/**
+	 * Searches the names and descriptions of the tasks of every list. Every word
+	 * of the query has to match, and matches the words starting with it
+	 * @param query Words to look for
+	 * @return Map of the list names to their matching tasks
+	 */
+	public Map<String, List<Task>> searchTasks(String query) {
+		long start = metrics.start();
+		try {
+			return this.model.search(query);
+		}
+		finally {
+			metrics.end(Operation.SEARCH, start);
+		}
+	}
+	
+	/**
+	 * Searches the names and descriptions of the tasks of one list
+	 * @param listName List to search
+	 * @param query Words to look for
+	 * @return List of the matching tasks
+	 */
+	public List<Task> searchTasks(String listName, String query) {
+		long start = metrics.start();
+		try {
+			return this.model.search(listName, query);
+		}
+		finally {
+			metrics.end(Operation.SEARCH, start);
+		}
+	}
+	
+	/**
+	 * Returns one page of the tasks of a list matching a query, without copying
+	 * the list, so a screen only pays for the tasks it shows. The next page is
+	 * read by passing the cursor of the page to the query
+	 * @param listName List to query
+	 * @param query Completion, priorities, deadline range and words to match, order
+	 * and size of the page
+	 * @return TaskPage holding the tasks and the cursor of the next page
+	 */
+	public TaskPage<Task> queryTasks(String listName, TaskQuery query) {
+		long start = metrics.start();
+		try {
+			return this.model.query(listName, query);
+		}
+		finally {
+			metrics.end(Operation.QUERY, start);
+		}
+	}
+	
+	/**
+	 * Returns the first tasks of every list matching a query, such as every high
+	 * priority task due this week, querying the lists in parallel
+	 * @param query Completion, priorities, deadline range and words to match, order
+	 * and number of tasks to return
+	 * @return List of the tasks with the names of their lists
+	 */
+	public List<ListedTask> queryAllTasks(TaskQuery query) {
+		long start = metrics.start();
+		try {
+			return this.model.query(query);
+		}
+		finally {
+			metrics.end(Operation.QUERY, start);
+		}
+	}
+	
+	/**
+	 * Suggests the words used by tasks that complete the word being typed
+	 * @param prefix Start of the word
+	 * @param limit Maximum number of suggestions
+	 * @return List of words, in alphabetical order
+	 */
+	public List<String> completeWord(String prefix, int limit) {
+		long start = metrics.start();
+		try {
+			return this.model.completeWord(prefix, limit);
+		}
+		finally {
+			metrics.end(Operation.SEARCH, start);
+		}
+	}
+	
 	/**
 	 * Returns details of a chosen task
 	 * @param listName List that houses the Task
-	 * @param timeCreated Time the Task was created
+	 * @param id Id of the Task
 	 * @return Details of task as Task object
 	 */
-	public Task getTask(String listName, Double timeCreated) {
+	public Task getTask(String listName, long id) {
 		// maybe just returns information of a certain task from getList()
-		return this.model.getTask(listName, timeCreated);
+		return this.model.getTask(listName, id);
 	}
 	
 	/**
@@ -152,146 +392,250 @@ public class TDLController {
 	 * @param time String version of the deadline
 	 * @return Date version of the deadline
 	 */
-	@SuppressWarnings("deprecation")
 	public Date getDateObject(String time) {
-		if(time.equals("MM/DD/YYYY HR:MN"))
-			return new Date(0,0,0,0,0);
-		
-		int month = Integer.valueOf(time.substring(0, 2)) - 1;
-		int date = Integer.valueOf(time.substring(3, 5));
-		int year = Integer.valueOf(time.substring(6, 10));
-		int hrs = Integer.valueOf(time.substring(11, 13));
-		int min = Integer.valueOf(time.substring(14, 16));
-		
-		return new Date(year, month, date, hrs, min);
+		return Deadlines.toDate(Deadlines.parse(time));
 	}
 	
 	/**
-	 * Saves the data of the project to listdata.txt
-	 * @return true if all data was saved, false if there were some empty lists
+	 * Saves the changes made since the last save by syncing the journal to disk.
+	 * Once the journal has grown large enough it is compacted into the shards.
+	 * @return true if all data was saved, false otherwise
 	 */
-	@SuppressWarnings("deprecation")
 	public boolean saveData() {
-		File file = new File("listdata.txt");
-		BufferedWriter writer = null;
-		boolean completeDataSaved = true;
+		long start = metrics.start();
 		try {
-            writer = new BufferedWriter(new FileWriter(file));
-            if(this.getAllLists().isEmpty())
-            	return completeDataSaved;
-  
-            for (String listName: this.getAllLists().keySet()) {
-            	if(this.getAllTasks(listName).isEmpty()) {
-            		completeDataSaved = false;
-            		continue;
-            	}
-                writer.write(listName + "==");
-                for(Double timeCreated: this.getAllTasks(listName).keySet()) {
-                	String taskContent = "";
-                	taskContent += timeCreated.toString() + "~~";
-                	taskContent += this.getTask(listName, timeCreated).getName() + "~~";
-                	if(this.getTask(listName, timeCreated).getDescription() == null)
-                		taskContent += "empty~~";
-                	else
-                		taskContent += this.getTask(listName, timeCreated).getDescription() + "~~";
-                	Date temp = this.getTask(listName, timeCreated).getDeadline();
-                	if(this.getTask(listName, timeCreated).getDateString().equals("MM/DD/YYYY HR:MN")) {
-                		taskContent += "MM/DD/YYYY HR:MN~~";
-                	}
-                	else {
-                		int month = temp.getMonth();
-                    	if(month < 10)
-                    		taskContent += "0";
-                    	taskContent += month + "/";
-                    	int date = temp.getDate();
-                    	if(date < 10)
-                    		taskContent += "0";
-                    	taskContent += date + "/";
-                    	taskContent += temp.getYear() + " ";
-                    	int hours = temp.getHours();
-                    	if(hours < 10)
-                    		taskContent += "0";
-                    	taskContent += hours + ":";
-                    	int minutes = temp.getMinutes();
-                    	if(minutes < 10)
-                    		taskContent += "0";
-                    	taskContent += minutes + "~~";
-                	}
-                	taskContent += this.getTask(listName, timeCreated).getPriority() + "~~";
-                	taskContent += this.getTask(listName, timeCreated).isComplete() + "``";
-                	writer.write(taskContent);
-                }
-                writer.newLine();
-            }
-            writer.flush();
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
-        finally {
-  
-            try {
-                writer.close();
-            }
-            catch (Exception e) {
-            }
-        }
-		return completeDataSaved;
+			try {
+				journal.sync();
+			}
+			catch (IOException e) {
+				e.printStackTrace();
+				return false;
+			}
+			if (journal.size() >= COMPACTION_THRESHOLD)
+				return compactData();
+			return true;
+		}
+		finally {
+			metrics.end(Operation.SAVE_DATA, start);
+		}
+	}
+	
+	/**
+	 * Requests a save of the changes made so far without waiting for it. Requests
+	 * made while a save is running are served together by the next one, so a burst
+	 * of requests is saved at the cost of one. Only waits when too many requests
+	 * are pending already.
+	 * @return future completed with the result of saveData() once the changes made
+	 * before the request are on disk
+	 */
+	public CompletableFuture<Boolean> saveDataAsync() {
+		TDLSaver saver;
+		synchronized (this) {
+			if (this.saver == null)
+				this.saver = new TDLSaver("TDL saver", this::saveData, SAVE_QUEUE_CAPACITY);
+			saver = this.saver;
+		}
+		return saver.request();
 	}
 	
 	/**
-	 * Loads the information from listdata.txt into the current model
-	 * @return true if data was successfully loaded, false if file was empty.
+	 * Saves every change made so far and stops the thread of the asynchronous
+	 * saves, after serving the saves requested before, then syncs and closes the
+	 * journal file. Saves requested through saveDataAsync() afterwards fail. To be
+	 * called when the application exits.
+	 * @return true if all data was saved, false otherwise
+	 */
+	public boolean close() {
+		TDLSaver saver;
+		synchronized (this) {
+			saver = this.saver;
+		}
+		boolean saved = saver == null ? saveData() : saver.close();
+		try {
+			journal.close();
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		return saved;
+	}
+	
+	/**
+	 * Writes a binary snapshot of every list changed since the last compaction to
+	 * its shard in the listdata directory and empties the journal, so the cost of a
+	 * compaction grows with the number of lists changed rather than with all of the
+	 * data. The journal is rotated before the snapshot is taken, so changes made
+	 * while it is written are kept in the new journal, and the rotated records are
+	 * only dropped once the shards are safely on disk. Lists whose tasks are not
+	 * loaded are left as they are, as they did not change.
+	 * @return true if all data was saved, false otherwise
+	 */
+	public boolean compactData() {
+		long start = metrics.start();
+		try {
+			try {
+				// one compaction at a time, so an older snapshot never replaces the
+				// shard of a list that was evicted once a newer one was written
+				synchronized (shards) {
+					journal.rotate();
+					shards.write(model.snapshotForSave());
+					journal.discardRotated();
+					return true;
+				}
+			}
+			catch (IOException e) {
+				e.printStackTrace();
+				return false;
+			}
+		}
+		finally {
+			metrics.end(Operation.COMPACT_DATA, start);
+		}
+	}
+	
+	/**
+	 * Loads the data of the project into the current model and replays the journal
+	 * of the changes made since it was written. The data is read from the shards in
+	 * the listdata directory, where only the summary of every list is read and its
+	 * tasks are read when the list is first used, or imported from the older
+	 * listdata.txt text format when there are no shards, in which case the shards
+	 * are written right after.
+	 * The search indexes of the lists are then built in parallel.
+	 * If the shards can not be read, nothing is loaded and nothing is written, so
+	 * the data on disk stays as it is until it can be read again.
+	 * @return true if data was successfully loaded, false if there was no data or
+	 * it could not be read.
 	 */
 	public boolean loadData() {
-		BufferedReader reader = null;
-		boolean dataLoaded = true;
-        try {
-            File file = new File("listdata.txt");
-            reader = new BufferedReader(new FileReader(file));
-            String line = null;
-            int lineNumber = 0;
-            while ((line = reader.readLine()) != null) {
-            	String[] currList = line.split("==");
-            	String listName = currList[0];
-            	this.addList(listName);
-            	
-            	String[] allTasks = currList[1].split("``");
-            	for(String currTask: allTasks) {
-            		String[] taskInfo = currTask.split("~~");
-            		Double timeCreated = Double.valueOf(taskInfo[0]);
-            		String taskName = taskInfo[1];
-            		String taskDescription = taskInfo[2];
-            		String taskDeadline = taskInfo[3];
-            		String taskPriority = taskInfo[4];
-            		Boolean taskStatus = Boolean.valueOf(taskInfo[5]);
-            		
-            		if(taskDescription.equals("empty~~"))
-            			taskDescription = null;
-            		
-            		this.addTask(listName, taskName, taskDescription, taskDeadline, timeCreated, taskPriority);
-            		if(taskStatus == true)
-            			this.getTask(listName, timeCreated).setComplete();
-            		
-            		lineNumber++;
-            	}
-            }
-            if(lineNumber == 0)
-    			dataLoaded = false;
-        }
-        catch (Exception e) {
-            e.printStackTrace();
-        }
-        finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                }
-                catch (Exception e) {
-                };
-            }
-        }
-		return dataLoaded;
+		long start = metrics.start();
+		try {
+			boolean dataLoaded = false;
+			boolean imported = false;
+			model.beginBatch();
+			try {
+				if (shards.exists()) {
+					try {
+						List<ToDoList> lists = shards.read(model);
+						dataLoaded = !lists.isEmpty();
+					}
+					catch (IOException e) {
+						// the shards and the journal are left as they are, rather than
+						// replaced by the part of the data that could be read
+						e.printStackTrace();
+						return false;
+					}
+				}
+				else {
+					imported = importTextData(new File("listdata.txt"));
+					dataLoaded = imported;
+				}
+				if (journal.replay(model) > 0)
+					dataLoaded = true;
+			}
+			finally {
+				model.commitBatch();
+			}
+			model.buildIndexes();
+			if (imported)
+				compactData();
+			return dataLoaded;
+		}
+		finally {
+			metrics.end(Operation.LOAD_DATA, start);
+		}
+	}
+	
+	/**
+	 * Imports data saved in the text format used before binary snapshots, where
+	 * every line holds a list as its name followed by "==" and its tasks, tasks
+	 * are separated by "``" and the fields of a task by "~~". The lines are parsed
+	 * in parallel and the parsed lists are added to the model in one step.
+	 * @param file File holding the data in the text format
+	 * @return true if data was successfully imported, false if file was empty or missing.
+	 */
+	public boolean importTextData(File file) {
+		if (!file.exists())
+			return false;
+		try {
+			metrics.read(file.length());
+			List<ToDoList> lists = new TextDataParser(model::nextTaskId).parse(file);
+			model.addLists(lists);
+			return !lists.isEmpty();
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	/**
+	 * Exports every list and its tasks to a file as CSV or JSON Lines, one record
+	 * per task. The records are encoded into a fixed-size buffer that is written
+	 * out whenever it fills, so the export takes the same memory however many
+	 * tasks there are. Every list is written as it was at one instant, while the
+	 * tasks are read under its read lock, and lists whose tasks are not loaded are
+	 * read from their shard without being kept in memory.
+	 * @param file File to write the data to
+	 * @param format Format to write
+	 * @return true if the data was exported, false if the file could not be written
+	 */
+	public boolean exportData(File file, BulkFormat format) {
+		long start = metrics.start();
+		try (BulkWriter writer = new BulkWriter(new FileOutputStream(file), format)) {
+			for (ToDoList list : model.getAllLists().values()) {
+				String listName = list.getName();
+				if (list.forEachTask(task -> writer.writeTask(listName, task)) == 0)
+					writer.writeList(listName);
+			}
+			writer.flush();
+			metrics.written(writer.getBytesWritten());
+			return true;
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		finally {
+			metrics.end(Operation.EXPORT_DATA, start);
+		}
+	}
+	
+	/**
+	 * Imports lists and tasks from a file written as CSV or JSON Lines, such as
+	 * one written by exportData. The file is streamed through a fixed-size buffer
+	 * and its records are added to the model in batches, so the import takes the
+	 * same memory however large the file is. Records that can not be imported are
+	 * skipped and reported with their line instead of stopping the import. The
+	 * tasks imported are given new ids and written to the shards right after.
+	 * @param file File holding the records
+	 * @param format Format of the file
+	 * @return ImportReport counting the tasks imported and listing the errors
+	 */
+	public ImportReport importData(File file, BulkFormat format) {
+		long start = metrics.start();
+		BulkImporter importer = new BulkImporter(model);
+		try {
+			try (BulkReader reader = new BulkReader(new FileInputStream(file), format)) {
+				try {
+					importer.run(reader);
+				}
+				finally {
+					metrics.read(reader.getBytesRead());
+				}
+			}
+			catch (IOException e) {
+				e.printStackTrace();
+				importer.getReport().error("Could not read " + file + ": " + e.getMessage());
+			}
+			ImportReport report = importer.getReport();
+			if (report.getTaskCount() > 0 || report.getListCount() > 0)
+				compactData();
+			return report;
+		}
+		finally {
+			metrics.end(Operation.IMPORT_DATA, start);
+		}
 	}
 	
 }
@@ -0,0 +1,609 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import model.ChangeLog;
+import model.Priority;
+import model.TDLModel;
+import model.Task;
+
+/**
+ * Append-only journal of the changes made to the TDLModel. The journal is the
+ * ChangeLog of the model, so every mutation is written as one compact record, so
+ * a save only has to flush the records written since the last save instead of
+ * rewriting all of the data. The journal is folded into the full data file by
+ * compaction and replayed on top of it when the data is loaded.
+ *
+ * Each record is stored as its length, a CRC32 of its contents and the contents
+ * themselves, so a record torn by a crash is detected and ignored on replay.
+ *
+ * The model records its changes while it holds their locks, so records are only
+ * encoded there and queued, in the order of the changes. They are written to
+ * the file once the model released its locks and flushes the journal, by
+ * whichever thread gets to the file first, so a thread changing one list never
+ * waits for the disk while holding the lock of the list.
+ *
+ * Compaction first rotates the journal: the records written so far are moved to
+ * a second file that is only deleted once the data file holding them has been
+ * written, while new records go to a fresh journal. Replaying a record whose
+ * change is already part of the data file is harmless.
+ */
+class TDLJournal implements ChangeLog {
+
+	private static final byte NEW_LIST = 1;
+	private static final byte REMOVE_LIST = 2;
+	private static final byte EDIT_LIST = 3;
+	private static final byte REMOVE_TASK = 6;
+	private static final byte COMPLETE_TASK = 7;
+	private static final byte ADD_TASK = 10;
+	private static final byte EDIT_TASK = 11;
+
+	/**
+	 * File the records are appended to.
+	 */
+	private final File file;
+	/**
+	 * File holding the records of a compaction that has not finished yet.
+	 */
+	private final File rotatedFile;
+	/**
+	 * Thread replaying the journal, whose changes to the model must not be
+	 * recorded again.
+	 */
+	private volatile Thread replayingThread;
+	/**
+	 * Number of records that may be written before the journal forces them to
+	 * disk on its own.
+	 */
+	private final int syncInterval;
+	/**
+	 * Records encoded but not written yet, in the order they were recorded in.
+	 */
+	private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+	/**
+	 * Held while writing to the journal file, guards the fields below.
+	 */
+	private final ReentrantLock io = new ReentrantLock();
+	/**
+	 * Stream to the journal file, opened on the first append.
+	 */
+	private FileOutputStream fileStream;
+	private BufferedOutputStream out;
+	/**
+	 * Number of records written since the last sync.
+	 */
+	private int unsynced;
+	/**
+	 * Number of records written to the journal since it was last compacted.
+	 */
+	private int size;
+
+	/**
+	 * Creates a journal backed by the passed file.
+	 *
+	 * @param file         file the records are appended to
+	 * @param syncInterval number of records between two forced syncs
+	 */
+	TDLJournal(File file, int syncInterval) {
+		this.file = file;
+		this.rotatedFile = new File(file.getPath() + ".old");
+		this.syncInterval = syncInterval;
+	}
+
+	/**
+	 * Records the creation of a list.
+	 *
+	 * @param listName name of the new list
+	 */
+	@Override
+	public void newList(String listName) {
+		if (Thread.currentThread() == replayingThread)
+			return;
+		try {
+			Record record = new Record(NEW_LIST);
+			record.writeString(listName);
+			pending.add(record.frame());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Records the removal of a list.
+	 *
+	 * @param listName name of the removed list
+	 */
+	@Override
+	public void removeList(String listName) {
+		if (Thread.currentThread() == replayingThread)
+			return;
+		try {
+			Record record = new Record(REMOVE_LIST);
+			record.writeString(listName);
+			pending.add(record.frame());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Records the renaming of a list.
+	 *
+	 * @param oldName old name of the list
+	 * @param newName new name of the list
+	 */
+	@Override
+	public void editList(String oldName, String newName) {
+		if (Thread.currentThread() == replayingThread)
+			return;
+		try {
+			Record record = new Record(EDIT_LIST);
+			record.writeString(oldName);
+			record.writeString(newName);
+			pending.add(record.frame());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Records the addition of a task.
+	 *
+	 * @param listName list the task was added to
+	 * @param task     the new task
+	 */
+	@Override
+	public void addTask(String listName, Task task) {
+		if (Thread.currentThread() == replayingThread)
+			return;
+		try {
+			Record record = new Record(ADD_TASK);
+			record.writeString(listName);
+			record.writeLong(task.getId());
+			record.writeString(task.getName());
+			record.writeString(task.getDescription());
+			record.writeLong(task.getDeadlineMinute());
+			record.writeString(task.getPriority().name());
+			pending.add(record.frame());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Records the editing of a task.
+	 *
+	 * @param listName list that houses the task
+	 * @param task     the task, with its new details
+	 */
+	@Override
+	public void editTask(String listName, Task task) {
+		if (Thread.currentThread() == replayingThread)
+			return;
+		try {
+			Record record = new Record(EDIT_TASK);
+			record.writeString(listName);
+			record.writeLong(task.getId());
+			record.writeString(task.getName());
+			record.writeString(task.getDescription());
+			record.writeLong(task.getDeadlineMinute());
+			record.writeString(task.getPriority().name());
+			pending.add(record.frame());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Records the removal of a task.
+	 *
+	 * @param listName    list the task was removed from
+	 * @param id          id of the task
+	 */
+	@Override
+	public void removeTask(String listName, long id) {
+		if (Thread.currentThread() == replayingThread)
+			return;
+		try {
+			Record record = new Record(REMOVE_TASK);
+			record.writeString(listName);
+			record.writeLong(id);
+			pending.add(record.frame());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Records a task being checked off.
+	 *
+	 * @param listName    list that houses the task
+	 * @param id          id of the task
+	 */
+	@Override
+	public void setTaskCompleted(String listName, long id) {
+		if (Thread.currentThread() == replayingThread)
+			return;
+		try {
+			Record record = new Record(COMPLETE_TASK);
+			record.writeString(listName);
+			record.writeLong(id);
+			pending.add(record.frame());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes the records queued so far, unless another thread holds io. That
+	 * thread looks at the queue again once it releases io, so no record is left
+	 * behind.
+	 */
+	@Override
+	public void flush() {
+		while (!pending.isEmpty() && io.tryLock()) {
+			try {
+				write();
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				io.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Forces every record recorded so far to disk.
+	 *
+	 * @throws IOException if the journal could not be synced
+	 */
+	void sync() throws IOException {
+		io.lock();
+		try {
+			write();
+			force();
+		} finally {
+			unlockAndDrain();
+		}
+	}
+
+	/**
+	 * Returns the number of records written since the journal was last reset.
+	 *
+	 * @return number of records in the journal
+	 */
+	int size() {
+		io.lock();
+		try {
+			return size;
+		} finally {
+			unlockAndDrain();
+		}
+	}
+
+	/**
+	 * Moves the records written so far out of the way of new records, at the start
+	 * of a compaction. If an earlier compaction did not finish, the records are
+	 * added to the ones it left behind.
+	 *
+	 * @throws IOException if the journal could not be rotated
+	 */
+	void rotate() throws IOException {
+		io.lock();
+		try {
+			closeFile();
+			size = 0;
+			if (!file.exists())
+				return;
+			if (!rotatedFile.exists()) {
+				Files.move(file.toPath(), rotatedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				return;
+			}
+			try (FileChannel from = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+					FileChannel to = FileChannel.open(rotatedFile.toPath(), StandardOpenOption.WRITE,
+							StandardOpenOption.APPEND)) {
+				long position = 0;
+				while (position < from.size())
+					position += from.transferTo(position, from.size() - position, to);
+				to.force(false);
+			}
+			Files.delete(file.toPath());
+		} finally {
+			unlockAndDrain();
+		}
+	}
+
+	/**
+	 * Deletes the records moved away by rotate(). Called once the data file
+	 * holding their changes has been written.
+	 *
+	 * @throws IOException if the rotated records could not be deleted
+	 */
+	void discardRotated() throws IOException {
+		io.lock();
+		try {
+			Files.deleteIfExists(rotatedFile.toPath());
+		} finally {
+			unlockAndDrain();
+		}
+	}
+
+	/**
+	 * Closes the journal file, writing and syncing whatever has not been synced
+	 * yet.
+	 *
+	 * @throws IOException if the journal could not be closed
+	 */
+	void close() throws IOException {
+		io.lock();
+		try {
+			closeFile();
+		} finally {
+			unlockAndDrain();
+		}
+	}
+
+	/**
+	 * Applies every record in the journal to the model, starting with the records
+	 * left behind by an unfinished compaction. Records are applied only when they
+	 * still make sense for the current state of the model, so replaying a journal
+	 * whose records already are part of the loaded data is harmless. A torn record
+	 * at the end of a journal file stops the replay of that file.
+	 *
+	 * @param model the model to apply the records to
+	 * @return number of records replayed
+	 */
+	int replay(TDLModel model) {
+		replayingThread = Thread.currentThread();
+		try {
+			int replayed = replay(rotatedFile, model) + replay(file, model);
+			io.lock();
+			try {
+				size += replayed;
+			} finally {
+				unlockAndDrain();
+			}
+			return replayed;
+		} finally {
+			replayingThread = null;
+		}
+	}
+
+	/**
+	 * Applies every record in one journal file to the model. A record whose length
+	 * runs past the end of the file is a torn tail, and is not allocated.
+	 */
+	private int replay(File file, TDLModel model) {
+		if (!file.exists())
+			return 0;
+		int replayed = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			CRC32 crc = new CRC32();
+			long remaining = file.length();
+			while (true) {
+				int length;
+				try {
+					length = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				long checksum = in.readInt() & 0xFFFFFFFFL;
+				remaining -= 8;
+				if (length < 0 || length > remaining)
+					break;
+				remaining -= length;
+				byte[] contents = new byte[length];
+				in.readFully(contents);
+				TDLMetrics.get().read(8 + length);
+				crc.reset();
+				crc.update(contents);
+				if (crc.getValue() != checksum)
+					break;
+				apply(new DataInputStream(new ByteArrayInputStream(contents)), model);
+				replayed++;
+			}
+		} catch (EOFException e) {
+			// torn record at the end of the journal, everything before it was applied
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return replayed;
+	}
+
+	/**
+	 * Applies a single decoded record to the model.
+	 */
+	private void apply(DataInputStream in, TDLModel model) throws IOException {
+		byte type = in.readByte();
+		String listName = readString(in);
+		if (type == NEW_LIST) {
+			model.newList(listName);
+			return;
+		}
+		if (model.getAllLists().get(listName) == null)
+			return;
+		switch (type) {
+		case REMOVE_LIST:
+			model.removeList(listName);
+			break;
+		case EDIT_LIST:
+			String newName = readString(in);
+			if (!model.getAllLists().containsKey(newName))
+				model.editList(listName, newName);
+			break;
+		case ADD_TASK: {
+			long id = in.readLong();
+			String taskName = readString(in);
+			String description = readString(in);
+			long deadline = in.readLong();
+			Priority priority = Priority.parse(readString(in));
+			if (model.getTask(listName, id) == null)
+				model.addTask(listName, taskName, description, deadline, id, priority);
+			break;
+		}
+		case EDIT_TASK: {
+			long id = in.readLong();
+			String taskName = readString(in);
+			String description = readString(in);
+			long deadline = in.readLong();
+			Priority priority = Priority.parse(readString(in));
+			if (model.getTask(listName, id) == null)
+				break;
+			model.editTask(listName, id, taskName, description, deadline, priority);
+			break;
+		}
+		case REMOVE_TASK: {
+			long id = in.readLong();
+			if (model.getTask(listName, id) != null)
+				model.removeTask(listName, id);
+			break;
+		}
+		case COMPLETE_TASK: {
+			long id = in.readLong();
+			if (model.getTask(listName, id) != null && !model.getTask(listName, id).isComplete())
+				model.setTaskCompleted(listName, id);
+			break;
+		}
+		default:
+			throw new IOException("Unknown journal record type " + type);
+		}
+	}
+
+	/**
+	 * Appends the queued records to the journal, syncing them whenever enough
+	 * records have been written since the last sync. Called holding io.
+	 */
+	private void write() throws IOException {
+		byte[] record;
+		while ((record = pending.poll()) != null) {
+			if (out == null) {
+				fileStream = new FileOutputStream(file, true);
+				out = new BufferedOutputStream(fileStream);
+			}
+			out.write(record);
+			TDLMetrics.get().written(record.length);
+			size++;
+			if (++unsynced >= syncInterval)
+				force();
+		}
+	}
+
+	/**
+	 * Writes the queued records and closes the journal file. Called holding io.
+	 */
+	private void closeFile() throws IOException {
+		write();
+		if (out == null)
+			return;
+		try {
+			force();
+		} finally {
+			out.close();
+			out = null;
+			fileStream = null;
+		}
+	}
+
+	/**
+	 * Releases io, then writes the records queued while it was held, which flush
+	 * left to this thread.
+	 */
+	private void unlockAndDrain() {
+		io.unlock();
+		flush();
+	}
+
+	/**
+	 * Forces the records written so far to disk. Called holding io.
+	 */
+	private void force() throws IOException {
+		if (out == null || unsynced == 0)
+			return;
+		out.flush();
+		fileStream.getChannel().force(false);
+		unsynced = 0;
+	}
+
+	/**
+	 * Reads a string of a record, checking its length against the bytes left in
+	 * the record.
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length == -1)
+			return null;
+		if (length < 0 || length > in.available())
+			throw new IOException("Journal record with a string of " + length + " bytes");
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeInt(byte[] buffer, int offset, int value) {
+		buffer[offset] = (byte) (value >>> 24);
+		buffer[offset + 1] = (byte) (value >>> 16);
+		buffer[offset + 2] = (byte) (value >>> 8);
+		buffer[offset + 3] = (byte) value;
+	}
+
+	/**
+	 * Encodes one record of the passed type, each into its own buffer, so records
+	 * of different lists can be encoded at the same time.
+	 */
+	private static class Record {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		private final DataOutputStream contents = new DataOutputStream(bytes);
+
+		Record(byte type) throws IOException {
+			contents.writeByte(type);
+		}
+
+		void writeLong(long value) throws IOException {
+			contents.writeLong(value);
+		}
+
+		void writeString(String value) throws IOException {
+			if (value == null) {
+				contents.writeInt(-1);
+				return;
+			}
+			byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+			contents.writeInt(encoded.length);
+			contents.write(encoded);
+		}
+
+		/**
+		 * Returns the record as it is written to the journal, preceded by its
+		 * length and its CRC32.
+		 */
+		byte[] frame() {
+			byte[] encoded = bytes.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update(encoded);
+			byte[] framed = new byte[8 + encoded.length];
+			writeInt(framed, 0, encoded.length);
+			writeInt(framed, 4, (int) crc.getValue());
+			System.arraycopy(encoded, 0, framed, 8, encoded.length);
+			return framed;
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package controller;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import model.TDLModel;
+
+/**
+ * Latency and throughput metrics of the operations of the controllers, shared by
+ * every TDLController and exposed as a JMX MBean.
+ *
+ * Metrics are off unless the tdl.metrics system property is true or they are
+ * enabled through JMX. While they are off, start() only reads a volatile flag
+ * and end() returns at once, so the operations cost next to nothing more. While
+ * they are on, every operation records its latency in a lock-free histogram.
+ * The metrics are also written to the log every tdl.metrics.logInterval seconds,
+ * 60 by default, while they are on.
+ */
+class TDLMetrics implements TDLMetricsMXBean {
+
+	/**
+	 * The operations of the controller that are measured.
+	 */
+	enum Operation {
+		ADD_LIST, DELETE_LIST, EDIT_LIST, ADD_TASK, EDIT_TASK, DELETE_TASK, CHECK_OFF_TASK, SEARCH, QUERY,
+		SAVE_DATA, COMPACT_DATA, LOAD_DATA, EXPORT_DATA, IMPORT_DATA
+	}
+
+	/**
+	 * Returned by start() while the metrics are off.
+	 */
+	static final long DISABLED = Long.MIN_VALUE;
+
+	private static final Logger LOG = Logger.getLogger(TDLMetrics.class.getName());
+
+	private static final TDLMetrics INSTANCE = new TDLMetrics();
+
+	private volatile boolean enabled;
+	private long logIntervalSeconds;
+	private final LatencyHistogram[] latencies;
+	private final LongAdder bytesWritten = new LongAdder();
+	private final LongAdder bytesRead = new LongAdder();
+	/**
+	 * Models whose view notifications are reported, dropped once unused.
+	 */
+	private final Map<TDLModel, Boolean> models = new WeakHashMap<>();
+	private ScheduledExecutorService logger;
+	private ScheduledFuture<?> logging;
+
+	private TDLMetrics() {
+		latencies = new LatencyHistogram[Operation.values().length];
+		for (int i = 0; i < latencies.length; i++)
+			latencies[i] = new LatencyHistogram();
+		logIntervalSeconds = Long.getLong("tdl.metrics.logInterval", 60);
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+					new ObjectName("controller:type=TDLMetrics"));
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+		setEnabled(Boolean.getBoolean("tdl.metrics"));
+	}
+
+	/**
+	 * Returns the metrics shared by every controller.
+	 *
+	 * @return the metrics
+	 */
+	static TDLMetrics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Starts measuring an operation.
+	 *
+	 * @return the time the operation started at, or DISABLED
+	 */
+	long start() {
+		return enabled ? System.nanoTime() : DISABLED;
+	}
+
+	/**
+	 * Records the latency of an operation.
+	 *
+	 * @param operation the operation
+	 * @param start     the value start() returned when the operation started
+	 */
+	void end(Operation operation, long start) {
+		if (start != DISABLED)
+			latencies[operation.ordinal()].record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Counts bytes written to the data files.
+	 *
+	 * @param bytes number of bytes written
+	 */
+	void written(long bytes) {
+		if (enabled)
+			bytesWritten.add(bytes);
+	}
+
+	/**
+	 * Counts bytes read from the data files.
+	 *
+	 * @param bytes number of bytes read
+	 */
+	void read(long bytes) {
+		if (enabled)
+			bytesRead.add(bytes);
+	}
+
+	/**
+	 * Reports the view notifications of the passed model.
+	 *
+	 * @param model the model to watch
+	 */
+	synchronized void watch(TDLModel model) {
+		models.put(model, Boolean.TRUE);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		scheduleLogging();
+	}
+
+	@Override
+	public synchronized long getLogIntervalSeconds() {
+		return logIntervalSeconds;
+	}
+
+	@Override
+	public synchronized void setLogIntervalSeconds(long seconds) {
+		logIntervalSeconds = Math.max(0, seconds);
+		scheduleLogging();
+	}
+
+	@Override
+	public List<OperationStats> getOperations() {
+		List<OperationStats> operations = new ArrayList<>();
+		for (Operation operation : Operation.values()) {
+			LatencyHistogram histogram = latencies[operation.ordinal()];
+			if (histogram.getCount() > 0)
+				operations.add(new OperationStats(operation.name(), histogram));
+		}
+		return operations;
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	@Override
+	public synchronized long getViewEvents() {
+		long events = 0;
+		for (TDLModel model : models.keySet())
+			events += model.getEventCount();
+		return events;
+	}
+
+	@Override
+	public synchronized long getViewNotifications() {
+		long notifications = 0;
+		for (TDLModel model : models.keySet())
+			notifications += model.getNotificationCount();
+		return notifications;
+	}
+
+	@Override
+	public void reset() {
+		for (LatencyHistogram histogram : latencies)
+			histogram.reset();
+		bytesWritten.reset();
+		bytesRead.reset();
+	}
+
+	@Override
+	public String dump() {
+		StringBuilder text = new StringBuilder("TDL metrics:");
+		for (OperationStats operation : getOperations())
+			text.append("\n  ").append(operation);
+		text.append("\n  bytes written=").append(getBytesWritten()).append(" read=").append(getBytesRead());
+		text.append("\n  view events=").append(getViewEvents()).append(" notifications=")
+				.append(getViewNotifications());
+		return text.toString();
+	}
+
+	/**
+	 * Starts, stops or reschedules the periodic dump to the log to match the
+	 * current settings.
+	 */
+	private void scheduleLogging() {
+		if (logging != null) {
+			logging.cancel(false);
+			logging = null;
+		}
+		if (!enabled || logIntervalSeconds == 0)
+			return;
+		if (logger == null) {
+			logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "TDLMetrics logger");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		logging = logger.scheduleAtFixedRate(() -> LOG.info(dump()), logIntervalSeconds, logIntervalSeconds,
+				TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,139 @@
+package controller;
+
+import java.util.List;
+
+/**
+ * Management interface of TDLMetrics, registered with the platform MBean server
+ * as "controller:type=TDLMetrics".
+ */
+public interface TDLMetricsMXBean {
+
+	/**
+	 * Returns whether the controllers are recording metrics.
+	 *
+	 * @return true if metrics are recorded
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Starts or stops recording metrics. When stopped, an instrumented operation
+	 * only costs a read of this flag.
+	 *
+	 * @param enabled true to record metrics
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Returns the number of seconds between two dumps of the metrics to the log.
+	 *
+	 * @return interval in seconds, 0 when the metrics are not logged
+	 */
+	long getLogIntervalSeconds();
+
+	/**
+	 * Sets the number of seconds between two dumps of the metrics to the log. The
+	 * metrics are only logged while they are enabled.
+	 *
+	 * @param seconds interval in seconds, 0 to stop logging them
+	 */
+	void setLogIntervalSeconds(long seconds);
+
+	/**
+	 * Returns the latencies of every operation performed at least once.
+	 *
+	 * @return statistics of each operation
+	 */
+	List<OperationStats> getOperations();
+
+	/**
+	 * Returns the number of bytes written to the data files.
+	 *
+	 * @return bytes written
+	 */
+	long getBytesWritten();
+
+	/**
+	 * Returns the number of bytes read from the data files.
+	 *
+	 * @return bytes read
+	 */
+	long getBytesRead();
+
+	/**
+	 * Returns the number of changes reported to the view by the watched models.
+	 *
+	 * @return number of events
+	 */
+	long getViewEvents();
+
+	/**
+	 * Returns the number of notifications delivered to the view by the watched
+	 * models, each of them holding the events of a change or of a batch.
+	 *
+	 * @return number of notifications
+	 */
+	long getViewNotifications();
+
+	/**
+	 * Clears every metric.
+	 */
+	void reset();
+
+	/**
+	 * Returns the metrics as text, as they are written to the log.
+	 *
+	 * @return the metrics
+	 */
+	String dump();
+
+	/**
+	 * Latencies of one operation, in milliseconds.
+	 */
+	public static class OperationStats {
+		private final String name;
+		private final long count;
+		private final double mean;
+		private final double median;
+		private final double percentile99;
+		private final double max;
+
+		OperationStats(String name, LatencyHistogram histogram) {
+			this.name = name;
+			this.count = histogram.getCount();
+			this.mean = count == 0 ? 0 : histogram.getTotal() / 1e6 / count;
+			this.median = histogram.getPercentile(0.5) / 1e6;
+			this.percentile99 = histogram.getPercentile(0.99) / 1e6;
+			this.max = histogram.getMax() / 1e6;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		public double getMedian() {
+			return median;
+		}
+
+		public double getPercentile99() {
+			return percentile99;
+		}
+
+		public double getMax() {
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", name, count, mean,
+					median, percentile99, max);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Saves the data of a controller on a background thread, so that the threads
+ * asking for a save never wait for the disk.
+ *
+ * Save requests are queued, and the thread of the saver takes every request
+ * queued by the time it is free and serves them all with a single save: a burst
+ * of requests costs one sync of the journal rather than one per request. The
+ * future of every request is completed once a save started after it was made has
+ * finished, so a request completed with true is durable.
+ *
+ * The queue is bounded. Once it is full a request waits until the saver has
+ * taken the queued ones, so a slow disk slows down the callers instead of
+ * letting requests pile up in memory.
+ */
+class TDLSaver {
+
+	/**
+	 * Performs one save, returning whether all data was saved.
+	 */
+	private final BooleanSupplier save;
+	private final BlockingQueue<CompletableFuture<Boolean>> requests;
+	/**
+	 * Request queued by close(), after which the thread stops.
+	 */
+	private volatile CompletableFuture<Boolean> last;
+
+	/**
+	 * Creates a saver and starts its thread.
+	 *
+	 * @param name     name of the thread of the saver
+	 * @param save     performs one save, returning whether all data was saved
+	 * @param capacity maximum number of requests waiting for a save
+	 */
+	TDLSaver(String name, BooleanSupplier save, int capacity) {
+		this.save = save;
+		this.requests = new ArrayBlockingQueue<>(capacity);
+		Thread thread = new Thread(this::run, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Requests a save. Returns at once unless the queue of requests is full, in
+	 * which case it waits for the saver to take them.
+	 *
+	 * @return future completed with true once the data changed before the request
+	 *         is on disk, with false if the save failed
+	 */
+	synchronized CompletableFuture<Boolean> request() {
+		CompletableFuture<Boolean> request = new CompletableFuture<>();
+		if (last != null) {
+			request.completeExceptionally(new IllegalStateException("Saver is closed"));
+			return request;
+		}
+		try {
+			requests.put(request);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			request.completeExceptionally(e);
+		}
+		return request;
+	}
+
+	/**
+	 * Saves whatever was not saved yet and stops the thread of the saver, waiting
+	 * for both. Requests made afterwards fail.
+	 *
+	 * @return true if the last save saved all data, false otherwise
+	 */
+	boolean close() {
+		CompletableFuture<Boolean> closing;
+		synchronized (this) {
+			if (last == null) {
+				last = new CompletableFuture<>();
+				boolean interrupted = false;
+				while (true) {
+					try {
+						requests.put(last);
+						break;
+					}
+					catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+			closing = last;
+		}
+		try {
+			return closing.join();
+		}
+		catch (RuntimeException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Serves the queued requests until the request of close() is served.
+	 */
+	private void run() {
+		List<CompletableFuture<Boolean>> batch = new ArrayList<>();
+		boolean closed = false;
+		while (!closed) {
+			try {
+				batch.add(requests.take());
+			}
+			catch (InterruptedException e) {
+				continue;
+			}
+			requests.drainTo(batch);
+			// close() queues its request last, so nothing follows it
+			closed = batch.get(batch.size() - 1) == last;
+			try {
+				complete(batch, save.getAsBoolean(), null);
+			}
+			catch (RuntimeException e) {
+				complete(batch, null, e);
+			}
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Completes the requests of a save, with the result of the save or the
+	 * exception it threw.
+	 */
+	private static void complete(List<CompletableFuture<Boolean>> requests, Boolean saved, Throwable failure) {
+		for (CompletableFuture<Boolean> request : requests) {
+			if (failure != null)
+				request.completeExceptionally(failure);
+			else
+				request.complete(saved);
+		}
+	}
+}
@@ -0,0 +1,375 @@
+package controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+
+import model.ListSnapshot;
+import model.ListStore;
+import model.ModelSnapshot;
+import model.TDLModel;
+import model.ToDoList;
+
+/**
+ * Stores the data of the model as one snapshot file per list, so that writing it
+ * only rewrites the lists that changed since it was last written or read.
+ *
+ * Every list is kept in its own shard, a TDLSnapshot holding that list alone,
+ * named after a number that is never reused. A manifest maps the name of every
+ * list to the number of its shard. Dirty lists are written to new shards and the
+ * manifest is then replaced in one atomic rename, so a crash at any point leaves
+ * either the old or the new manifest, each referring to complete shards. Shards
+ * no longer referenced are deleted once the new manifest is in place.
+ *
+ * A list of the manifest that is missing from the model written is taken as
+ * removed from it. That only holds once every list of the manifest was read
+ * into the model, so a manifest is never written over until it was read in
+ * full, and a read that failed leaves it to be read again.
+ *
+ * A list is dirty when its change stamp differs from the one it had when its
+ * shard was written or read. Change stamps are unique across every ToDoList, so
+ * a list that was removed and added again under the same name is dirty as well.
+ * A shard keeps the stamps of every list read from it into a model, so that the
+ * lists of one model stay current when the shards are read again, into it or
+ * into another model, as long as the shard was not written over since.
+ *
+ * The shards are also the ListStore of the model: lists are read as their
+ * summaries alone, and the tasks of a list are read from its shard when it is
+ * first used, or again after the model evicted them, which it only does while
+ * the shard of the list is current. A list that is not loaded never changed
+ * since it was read, so it is never written either.
+ *
+ * The manifest is stored as its magic number, its version, the next shard
+ * number and the number of lists, followed by the name and shard number of
+ * every list, and ends with a CRC32 of everything before it.
+ */
+class TDLShards implements ListStore {
+
+	/**
+	 * "TDLM" in ASCII.
+	 */
+	private static final int MAGIC = 0x54444C4D;
+	private static final int VERSION = 1;
+	private static final String MANIFEST = "manifest";
+	private static final String SHARD_SUFFIX = ".list";
+	/**
+	 * Shards of every directory in use, so that controllers of the same data share
+	 * what they know of it.
+	 */
+	private static final Map<File, TDLShards> INSTANCES = new ConcurrentHashMap<>();
+
+	/**
+	 * The file of one list and the change stamps of the lists holding what it
+	 * holds, none until the list is read.
+	 */
+	private static class Shard {
+		private final long number;
+		private final long[] stamps;
+
+		Shard(long number, long... stamps) {
+			this.number = number;
+			this.stamps = stamps;
+		}
+
+		boolean holds(long stamp) {
+			for (long held : stamps)
+				if (held == stamp)
+					return true;
+			return false;
+		}
+
+		Shard with(long stamp) {
+			long[] added = Arrays.copyOf(stamps, stamps.length + 1);
+			added[stamps.length] = stamp;
+			return new Shard(number, added);
+		}
+	}
+
+	/**
+	 * Directory holding the manifest and the shards.
+	 */
+	private final File directory;
+	private final File manifest;
+	/**
+	 * Shards referenced by the manifest on disk, by list name. Read from the
+	 * manifest on first use. A map is never changed once published, so that lists
+	 * can be loaded without waiting for a write in progress.
+	 */
+	private volatile Map<String, Shard> shards;
+	/**
+	 * Number the next shard written is named after.
+	 */
+	private long nextShard;
+	/**
+	 * Whether every list of the manifest on disk was read or written by the last
+	 * read or write.
+	 */
+	private boolean complete;
+
+	private TDLShards(File directory) {
+		this.directory = directory;
+		this.manifest = new File(directory, MANIFEST);
+	}
+
+	/**
+	 * Returns the shards stored in the passed directory.
+	 *
+	 * @param directory directory holding the manifest and the shards
+	 * @return the shards of the directory
+	 */
+	static TDLShards get(File directory) {
+		return INSTANCES.computeIfAbsent(directory.getAbsoluteFile(), TDLShards::new);
+	}
+
+	/**
+	 * Returns whether the directory holds a manifest.
+	 *
+	 * @return true if there is data to read
+	 */
+	synchronized boolean exists() {
+		return manifest.exists();
+	}
+
+	/**
+	 * Reads every list referenced by the manifest as its summary alone and adds
+	 * them to the model. The shards are read in parallel. The change stamps of the
+	 * lists the model took are recorded, so they are only written again once they
+	 * change, while lists the model already had keep the stamps recorded before.
+	 *
+	 * @param model the model to add the lists to
+	 * @return the lists read
+	 * @throws IOException if the manifest or a shard is not valid
+	 */
+	synchronized List<ToDoList> read(TDLModel model) throws IOException {
+		complete = false;
+		Map<String, Shard> previous = shards;
+		readManifest();
+		Map<String, Shard> stamped = new HashMap<>(shards);
+		if (previous != null) {
+			for (Map.Entry<String, Shard> shard : stamped.entrySet()) {
+				Shard read = previous.get(shard.getKey());
+				if (read != null && read.number == shard.getValue().number)
+					shard.setValue(read);
+			}
+		}
+		Map<String, ForkJoinTask<List<ToDoList>>> reading = new HashMap<>();
+		for (Map.Entry<String, Shard> shard : stamped.entrySet()) {
+			File file = shardFile(shard.getValue().number);
+			reading.put(shard.getKey(), ForkJoinPool.commonPool().submit(() -> TDLSnapshot.readSummaries(file, this)));
+		}
+		List<ToDoList> lists = new ArrayList<>(stamped.size());
+		for (Map.Entry<String, ForkJoinTask<List<ToDoList>>> read : reading.entrySet()) {
+			List<ToDoList> shardLists;
+			try {
+				shardLists = read.getValue().join();
+			}
+			catch (RuntimeException e) {
+				throw new IOException("Shard of list " + read.getKey() + " could not be read", e);
+			}
+			lists.addAll(shardLists);
+		}
+		model.addLists(lists);
+		Map<String, ToDoList> added = model.getAllLists();
+		for (ToDoList list : lists) {
+			Shard shard = stamped.get(list.getName());
+			if (shard != null && added.get(list.getName()) == list)
+				stamped.put(list.getName(), shard.with(list.getChangeStamp()));
+		}
+		shards = stamped;
+		complete = true;
+		return lists;
+	}
+
+	/**
+	 * Reads the tasks of a list from its shard.
+	 *
+	 * @param listName name of the list
+	 * @return the list read, with all its tasks
+	 * @throws IOException if the list has no shard or its shard is not valid
+	 */
+	@Override
+	public ToDoList load(String listName) throws IOException {
+		Map<String, Shard> current = shards;
+		Shard shard = current == null ? null : current.get(listName);
+		if (shard == null)
+			throw new IOException("List " + listName + " has no shard");
+		for (ToDoList list : TDLSnapshot.read(shardFile(shard.number)))
+			if (list.getName().equals(listName))
+				return list;
+		throw new IOException("Shard of list " + listName + " does not hold it");
+	}
+
+	/**
+	 * Returns whether the shard of a list was written or read while the list had
+	 * the passed change stamp.
+	 *
+	 * @param listName    name of the list
+	 * @param changeStamp its current change stamp
+	 * @return true if its shard is current
+	 */
+	@Override
+	public boolean isSaved(String listName, long changeStamp) {
+		Map<String, Shard> current = shards;
+		Shard shard = current == null ? null : current.get(listName);
+		return shard != null && shard.holds(changeStamp);
+	}
+
+	/**
+	 * Writes the lists of the passed snapshot of the model. Only the lists that
+	 * changed since they were last written or read are written, each to a new
+	 * shard, in parallel. The manifest is then replaced and the shards of lists
+	 * changed or removed since are deleted.
+	 *
+	 * @param model snapshot of the model, with stubs for the lists not loaded
+	 * @return number of lists written
+	 * @throws IOException if the shards or the manifest could not be written, if
+	 *                     the lists of the manifest were not all read, or if a
+	 *                     list that is not loaded is not current
+	 */
+	synchronized int write(ModelSnapshot model) throws IOException {
+		if (manifest.exists() && !complete)
+			throw new IOException("Lists of " + manifest + " were not all read, so it is not written over");
+		if (shards == null)
+			shards = new HashMap<>();
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Could not create " + directory);
+
+		Map<String, Shard> written = new HashMap<>();
+		List<ForkJoinTask<Void>> writing = new ArrayList<>();
+		for (ListSnapshot list : model.getAllLists().values()) {
+			Shard shard = shards.get(list.getName());
+			if (shard == null || !shard.holds(list.getChangeStamp())) {
+				if (!list.isLoaded())
+					throw new IOException("List " + list.getName() + " was not loaded");
+				shard = new Shard(nextShard++, list.getChangeStamp());
+				File file = shardFile(shard.number);
+				writing.add(ForkJoinPool.commonPool().submit(() -> {
+					TDLSnapshot.write(Collections.singletonList(list), file);
+					return null;
+				}));
+			}
+			written.put(list.getName(), shard);
+		}
+		try {
+			for (ForkJoinTask<Void> shard : writing)
+				shard.join();
+		}
+		catch (RuntimeException e) {
+			throw new IOException("Shard could not be written", e);
+		}
+
+		writeManifest(written);
+		shards = written;
+		complete = true;
+		deleteUnreferenced();
+		return writing.size();
+	}
+
+	/**
+	 * Reads the manifest into the map of shards, with no stamps recorded yet.
+	 */
+	private void readManifest() throws IOException {
+		byte[] bytes = Files.readAllBytes(manifest.toPath());
+		TDLMetrics.get().read(bytes.length);
+		if (bytes.length < 24)
+			throw new IOException("Manifest " + manifest + " is truncated");
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length - 4);
+		if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt())
+			throw new IOException("Manifest " + manifest + " is corrupted");
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+		if (in.readInt() != MAGIC)
+			throw new IOException(manifest + " is not a manifest");
+		int version = in.readInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported manifest version " + version);
+		long next = in.readLong();
+		int count = in.readInt();
+		Map<String, Shard> read = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			String name = in.readUTF();
+			read.put(name, new Shard(in.readLong()));
+		}
+		nextShard = next;
+		shards = read;
+	}
+
+	/**
+	 * Writes the manifest referencing the passed shards to a temporary file, which
+	 * then replaces the manifest.
+	 */
+	private void writeManifest(Map<String, Shard> written) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(nextShard);
+		out.writeInt(written.size());
+		for (Map.Entry<String, Shard> shard : written.entrySet()) {
+			out.writeUTF(shard.getKey());
+			out.writeLong(shard.getValue().number);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		out.writeInt((int) crc.getValue());
+		out.flush();
+
+		File tempFile = new File(directory, MANIFEST + ".tmp");
+		try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			channel.force(true);
+		}
+		TDLMetrics.get().written(bytes.size());
+		Files.move(tempFile.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Deletes the shards the manifest does not reference, along with the
+	 * temporary files of writes that did not finish.
+	 */
+	private void deleteUnreferenced() {
+		Set<String> referenced = new HashSet<>();
+		for (Shard shard : shards.values())
+			referenced.add(shardFile(shard.number).getName());
+		File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		for (File file : files) {
+			String name = file.getName();
+			boolean stale = name.endsWith(SHARD_SUFFIX) ? !referenced.contains(name)
+					: name.endsWith(SHARD_SUFFIX + ".tmp");
+			// a file that cannot be deleted now is deleted by a later write
+			if (stale)
+				file.delete();
+		}
+	}
+
+	private File shardFile(long number) {
+		return new File(directory, number + SHARD_SUFFIX);
+	}
+}
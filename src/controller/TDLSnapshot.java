@@ -0,0 +1,432 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+
+import model.ListSnapshot;
+import model.ListStore;
+import model.ListSummary;
+import model.Priority;
+import model.Task;
+import model.TaskSnapshot;
+import model.ToDoList;
+
+/**
+ * Reads and writes the binary snapshot of the model.
+ *
+ * A snapshot starts with a header made of the magic number, the format version
+ * and the number of lists, followed by a table holding the offset of every list
+ * in the file. Each list is stored as its name, its number of tasks and its
+ * summary, followed by the tasks themselves. The summary holds the greatest
+ * generated id of the list, the number of priorities followed by the name, task
+ * count and completed count of each, and the number of distinct deadlines of
+ * incomplete tasks followed by each deadline and the number of tasks due then,
+ * so that a list can be added to the model without reading its tasks. Task ids
+ * are stored as longs. Deadlines are stored in minutes as counted by Deadlines,
+ * and their text is formatted from them when needed rather than stored. Strings are stored as their length in UTF-8 bytes
+ * followed by the bytes, with a length of -1 standing for null. The last four
+ * bytes of the file are a CRC32 of everything before them.
+ *
+ * Snapshots are written through a FileChannel and read back through a
+ * MappedByteBuffer, so loading is bound by I/O rather than by parsing. The
+ * offset table lets every list be decoded in parallel, and lets the summaries
+ * be read without touching the pages holding the tasks.
+ */
+class TDLSnapshot {
+
+	/**
+	 * "TDLS" in ASCII.
+	 */
+	private static final int MAGIC = 0x54444C53;
+	private static final int VERSION = 4;
+	/**
+	 * Size of the magic number, version and list count.
+	 */
+	private static final int HEADER_SIZE = 12;
+	/**
+	 * Smallest size of a task, of a priority and of a deadline of a summary, which
+	 * bound how many of them the bytes left in a snapshot can hold.
+	 */
+	private static final int MIN_TASK_SIZE = 29;
+	private static final int PRIORITY_SIZE = 20;
+	private static final int DEADLINE_SIZE = 12;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private TDLSnapshot() {
+	}
+
+	/**
+	 * Writes the passed lists to the passed file. The snapshot is written to a
+	 * temporary file first which then replaces the passed file, so the file is
+	 * never left partially written. The lists are immutable snapshots, so the
+	 * model can keep changing while the file is written.
+	 *
+	 * @param snapshots snapshots of the lists to write
+	 * @param file      file to write the snapshot to
+	 * @throws IOException if the snapshot could not be written
+	 */
+	static void write(Collection<ListSnapshot> snapshots, File file) throws IOException {
+		File tempFile = new File(file.getPath() + ".tmp");
+		ListSnapshot[] lists = snapshots.toArray(new ListSnapshot[0]);
+		try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer table = ByteBuffer.allocate(HEADER_SIZE + 8 * lists.length);
+			table.putInt(MAGIC).putInt(VERSION).putInt(lists.length);
+
+			Writer writer = new Writer(channel, table.capacity());
+			for (ListSnapshot list : lists) {
+				table.putLong(writer.position());
+				writer.putString(list.getName());
+				writer.putInt(list.size());
+				writeSummary(writer, ListSummary.of(list.getName(), list.getTasks()));
+				for (TaskSnapshot task : list.getTasks()) {
+					writer.putLong(task.getId());
+					writer.putString(task.getName());
+					writer.putString(task.getDescription());
+					writer.putLong(task.getDeadlineMinute());
+					writer.putString(task.getPriority().name());
+					writer.putByte(task.isComplete() ? (byte) 1 : (byte) 0);
+				}
+			}
+			writer.flush();
+
+			table.flip();
+			channel.write(table, 0);
+			long size = writer.position();
+			ByteBuffer checksum = ByteBuffer.allocate(4);
+			checksum.putInt((int) checksum(channel, size)).flip();
+			channel.write(checksum, size);
+			channel.force(true);
+			TDLMetrics.get().written(size + 4);
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads the lists of the snapshot in the passed file. The lists are decoded in
+	 * parallel.
+	 *
+	 * @param file file holding the snapshot
+	 * @return the lists read, in the order they were written
+	 * @throws IOException if the file is not a valid snapshot
+	 */
+	static List<ToDoList> read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = map(channel, file);
+			long size = buffer.capacity();
+			TDLMetrics.get().read(size);
+			CRC32 crc = new CRC32();
+			crc.update(buffer.duplicate().limit((int) size - 4));
+			if ((int) crc.getValue() != buffer.getInt((int) size - 4))
+				throw new IOException("Snapshot " + file + " is corrupted");
+
+			int listCount = listCount(buffer, file);
+			List<ForkJoinTask<ToDoList>> reading = new ArrayList<>(listCount);
+			for (int i = 0; i < listCount; i++) {
+				Reader reader = new Reader(buffer, buffer.getLong(HEADER_SIZE + 8 * i), file);
+				reading.add(ForkJoinPool.commonPool().submit(() -> readList(reader)));
+			}
+			List<ToDoList> lists = new ArrayList<>(listCount);
+			try {
+				for (ForkJoinTask<ToDoList> list : reading)
+					lists.add(list.join());
+			}
+			catch (RuntimeException e) {
+				throw new IOException("Snapshot " + file + " could not be read", e);
+			}
+			return lists;
+		}
+	}
+
+	/**
+	 * Reads the summaries of the lists of the snapshot in the passed file, leaving
+	 * their tasks in the store to be read when first used. Only the pages holding
+	 * the header and the summaries are read, so the checksum is not verified until
+	 * the tasks are read.
+	 *
+	 * @param file  file holding the snapshot
+	 * @param store store the tasks of the lists are read from
+	 * @return the lists read, not loaded
+	 * @throws IOException if the file is not a valid snapshot
+	 */
+	static List<ToDoList> readSummaries(File file, ListStore store) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = map(channel, file);
+			int listCount = listCount(buffer, file);
+			List<ToDoList> lists = new ArrayList<>(listCount);
+			for (int i = 0; i < listCount; i++) {
+				Reader reader = new Reader(buffer, buffer.getLong(HEADER_SIZE + 8 * i), file);
+				String name = reader.getName();
+				reader.getCount(MIN_TASK_SIZE);
+				lists.add(ToDoList.unloaded(readSummary(reader, name), store));
+			}
+			return lists;
+		}
+	}
+
+	/**
+	 * Maps the passed snapshot file and checks its header.
+	 */
+	private static MappedByteBuffer map(FileChannel channel, File file) throws IOException {
+		long size = channel.size();
+		if (size < HEADER_SIZE + 4)
+			throw new IOException("Snapshot " + file + " is truncated");
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("Snapshot " + file + " is too large to be mapped");
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		if (buffer.getInt(0) != MAGIC)
+			throw new IOException(file + " is not a snapshot");
+		int version = buffer.getInt(4);
+		if (version != VERSION)
+			throw new IOException("Unsupported snapshot version " + version);
+		return buffer;
+	}
+
+	/**
+	 * Reads the number of lists of the snapshot, checking that their offsets fit
+	 * in it.
+	 */
+	private static int listCount(ByteBuffer buffer, File file) throws IOException {
+		int listCount = buffer.getInt(8);
+		if (listCount < 0 || listCount > (buffer.capacity() - 4 - HEADER_SIZE) / 8)
+			throw new IOException("Snapshot " + file + " is corrupted: " + listCount + " lists");
+		return listCount;
+	}
+
+	/**
+	 * Writes the summary of a list.
+	 */
+	private static void writeSummary(Writer writer, ListSummary summary) throws IOException {
+		writer.putLong(summary.getLastId());
+		Priority[] priorities = Priority.values();
+		writer.putInt(priorities.length);
+		for (Priority priority : priorities) {
+			writer.putString(priority.name());
+			writer.putLong(summary.getTaskCount(priority));
+			writer.putLong(summary.getCompletedCount(priority));
+		}
+		writer.putInt(summary.getDeadlineCount());
+		for (int i = 0; i < summary.getDeadlineCount(); i++) {
+			writer.putLong(summary.getDeadline(i));
+			writer.putInt(summary.getDueCount(i));
+		}
+	}
+
+	/**
+	 * Reads the summary of a list, leaving the reader at its first task.
+	 */
+	private static ListSummary readSummary(Reader reader, String name) throws IOException {
+		long lastId = reader.getLong();
+		long[] counts = new long[Priority.values().length];
+		long[] completedCounts = new long[counts.length];
+		int priorityCount = reader.getCount(PRIORITY_SIZE);
+		for (int i = 0; i < priorityCount; i++) {
+			int priority = Priority.parse(reader.getString()).ordinal();
+			counts[priority] += reader.getLong();
+			completedCounts[priority] += reader.getLong();
+		}
+		int deadlineCount = reader.getCount(DEADLINE_SIZE);
+		long[] deadlines = new long[deadlineCount];
+		int[] dueCounts = new int[deadlineCount];
+		for (int i = 0; i < deadlineCount; i++) {
+			deadlines[i] = reader.getLong();
+			dueCounts[i] = reader.getInt();
+		}
+		return new ListSummary(name, lastId, counts, completedCounts, deadlines, dueCounts);
+	}
+
+	/**
+	 * Decodes the list the passed reader is at. The reader has its own view of the
+	 * buffer, so lists can be decoded in parallel.
+	 */
+	private static ToDoList readList(Reader reader) throws IOException {
+		ToDoList list = new ToDoList(reader.getName());
+		int taskCount = reader.getCount(MIN_TASK_SIZE);
+		readSummary(reader, list.getName());
+		for (int j = 0; j < taskCount; j++) {
+			long id = reader.getLong();
+			String taskName = reader.getString();
+			String description = reader.getString();
+			long deadline = reader.getLong();
+			Priority priority = Priority.parse(reader.getString());
+			boolean complete = reader.getByte() != 0;
+			list.addTask(taskName, description, deadline, id, priority);
+			if (complete)
+				list.setTaskCompleted(id);
+		}
+		return list;
+	}
+
+	/**
+	 * Computes the CRC32 of the first size bytes of the channel.
+	 */
+	private static long checksum(FileChannel channel, long size) throws IOException {
+		CRC32 crc = new CRC32();
+		for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+			long length = Math.min(Integer.MAX_VALUE, size - position);
+			crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Buffers the encoded fields and writes them to the channel in large chunks.
+	 */
+	private static class Writer {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		/**
+		 * Position in the file the start of the buffer will be written at.
+		 */
+		private long flushed;
+
+		Writer(FileChannel channel, long start) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			this.flushed = start;
+		}
+
+		long position() {
+			return flushed + buffer.position();
+		}
+
+		void putByte(byte value) throws IOException {
+			ensure(1);
+			buffer.put(value);
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException {
+			ensure(8);
+			buffer.putLong(value);
+		}
+
+		void putString(String value) throws IOException {
+			if (value == null) {
+				putInt(-1);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			putInt(bytes.length);
+			if (bytes.length <= buffer.capacity()) {
+				ensure(bytes.length);
+				buffer.put(bytes);
+				return;
+			}
+			flush();
+			ByteBuffer large = ByteBuffer.wrap(bytes);
+			while (large.hasRemaining())
+				flushed += channel.write(large, flushed);
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				flushed += channel.write(buffer, flushed);
+			buffer.clear();
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes)
+				flush();
+		}
+	}
+
+	/**
+	 * Decodes fields from the mapped snapshot, reusing one scratch array for the
+	 * bytes of every string. Every field, length and count is checked against the
+	 * bytes left before the checksum, so a corrupted snapshot is reported rather
+	 * than read past its end or trusted with the size of an array.
+	 */
+	private static class Reader {
+		private final ByteBuffer buffer;
+		private final File file;
+		private byte[] scratch = new byte[256];
+
+		/**
+		 * Creates a reader of the snapshot starting at the passed offset.
+		 */
+		Reader(ByteBuffer snapshot, long offset, File file) throws IOException {
+			int end = snapshot.capacity() - 4;
+			if (offset < HEADER_SIZE || offset > end)
+				throw new IOException("Snapshot " + file + " is corrupted: list at " + offset);
+			this.buffer = snapshot.duplicate().limit(end).position((int) offset);
+			this.file = file;
+		}
+
+		byte getByte() throws IOException {
+			require(1);
+			return buffer.get();
+		}
+
+		int getInt() throws IOException {
+			require(4);
+			return buffer.getInt();
+		}
+
+		long getLong() throws IOException {
+			require(8);
+			return buffer.getLong();
+		}
+
+		/**
+		 * Reads a count of elements taking at least the passed size each.
+		 */
+		int getCount(int elementSize) throws IOException {
+			int count = getInt();
+			if (count < 0 || count > buffer.remaining() / elementSize)
+				throw corrupted(count + " elements");
+			return count;
+		}
+
+		String getString() throws IOException {
+			int length = getInt();
+			if (length == -1)
+				return null;
+			if (length < 0)
+				throw corrupted("string of " + length + " bytes");
+			require(length);
+			if (length > scratch.length)
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			buffer.get(scratch, 0, length);
+			return new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Reads the name of a list, which can not be null.
+		 */
+		String getName() throws IOException {
+			String name = getString();
+			if (name == null)
+				throw corrupted("list without a name");
+			return name;
+		}
+
+		private void require(int bytes) throws IOException {
+			if (buffer.remaining() < bytes)
+				throw corrupted(bytes + " bytes past its end");
+		}
+
+		private IOException corrupted(String what) {
+			return new IOException("Snapshot " + file + " is corrupted: " + what + " at " + buffer.position());
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package controller;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongSupplier;
+
+import model.Deadlines;
+import model.Priority;
+import model.Task;
+import model.ToDoList;
+
+/**
+ * Parses data saved in the text format used before binary snapshots. Every line
+ * holds a list as its name followed by "==" and its tasks, tasks are separated by
+ * "``" and the fields of a task by "~~".
+ *
+ * Lines are read one after the other but parsed in parallel on the common
+ * fork-join pool, each into a ToDoList that is not yet part of any model. Fields
+ * are found by scanning the line for the delimiters instead of splitting it with
+ * regular expressions.
+ *
+ * Tasks are keyed in the text by the Double time they were created at, which
+ * two tasks created in the same instant share, so every task is given a new id
+ * instead. Deadlines were written with the month counted from 0, as returned by
+ * Date.getMonth(), so "00/15/2024 10:00" stands for January 15.
+ */
+class TextDataParser {
+
+	/**
+	 * Description written in place of a missing one.
+	 */
+	private static final String EMPTY_DESCRIPTION = "empty";
+
+	/**
+	 * Gives the ids of the parsed tasks.
+	 */
+	private final LongSupplier ids;
+
+	/**
+	 * Creates a parser giving the parsed tasks ids taken from the passed supplier.
+	 *
+	 * @param ids supplier of unique task ids, called from several threads
+	 */
+	TextDataParser(LongSupplier ids) {
+		this.ids = ids;
+	}
+
+	/**
+	 * Parses every list in the file. Lines that can not be parsed are reported and
+	 * skipped, and lines repeating a list name have their tasks merged into the
+	 * first list with that name.
+	 *
+	 * @param file file holding the data in the text format
+	 * @return the lists in the order they appear in the file
+	 * @throws IOException if the file could not be read
+	 */
+	List<ToDoList> parse(File file) throws IOException {
+		List<ForkJoinTask<ToDoList>> parsing = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(file), 1 << 16)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty())
+					continue;
+				String currLine = line;
+				parsing.add(ForkJoinPool.commonPool().submit(() -> parseList(currLine)));
+			}
+		}
+
+		LinkedHashMap<String, ToDoList> lists = new LinkedHashMap<>();
+		for (ForkJoinTask<ToDoList> task : parsing) {
+			ToDoList list;
+			try {
+				list = task.join();
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				continue;
+			}
+			ToDoList existing = lists.putIfAbsent(list.getName(), list);
+			if (existing != null)
+				merge(list, existing);
+		}
+		return new ArrayList<>(lists.values());
+	}
+
+	/**
+	 * Parses one line into a ToDoList.
+	 *
+	 * @param line line holding the list
+	 * @return the parsed list
+	 */
+	ToDoList parseList(String line) {
+		int end = line.indexOf("==");
+		if (end < 0)
+			throw new IllegalArgumentException("List without tasks: " + line);
+		ToDoList list = new ToDoList(line.substring(0, end));
+		int pos = end + 2;
+		while (pos < line.length()) {
+			int taskEnd = line.indexOf("``", pos);
+			if (taskEnd < 0)
+				taskEnd = line.length();
+
+			// the time of creation is replaced by a new id
+			long id = ids.getAsLong();
+			pos = fieldEnd(line, pos, taskEnd) + 2;
+			end = fieldEnd(line, pos, taskEnd);
+			String taskName = line.substring(pos, end);
+			pos = end + 2;
+			end = fieldEnd(line, pos, taskEnd);
+			String taskDescription = line.substring(pos, end);
+			if (taskDescription.equals(EMPTY_DESCRIPTION))
+				taskDescription = null;
+			pos = end + 2;
+			end = fieldEnd(line, pos, taskEnd);
+			String taskDeadline = line.substring(pos, end);
+			pos = end + 2;
+			end = fieldEnd(line, pos, taskEnd);
+			Priority taskPriority = Priority.parse(line.substring(pos, end));
+			pos = end + 2;
+			boolean taskStatus = taskEnd - pos == 4 && line.regionMatches(true, pos, "true", 0, 4);
+
+			list.addTask(taskName, taskDescription, parseDeadline(taskDeadline), id, taskPriority);
+			if (taskStatus)
+				list.setTaskCompleted(id);
+			pos = taskEnd + 2;
+		}
+		return list;
+	}
+
+	/**
+	 * Parses a deadline as the text format wrote it, with the month counted from
+	 * 0.
+	 *
+	 * @param text the deadline as "MM/DD/YYYY HR:MN", or Task.NO_DEADLINE
+	 * @return the deadline in minutes, or Deadlines.NONE
+	 * @throws IllegalArgumentException if the text is not a deadline
+	 */
+	static long parseDeadline(String text) {
+		if (text.length() < 2 || !isDigit(text.charAt(0)) || !isDigit(text.charAt(1)))
+			return Deadlines.parse(text);
+		int month = (text.charAt(0) - '0') * 10 + text.charAt(1) - '0' + 1;
+		return Deadlines.parse((month < 10 ? "0" : "") + month + text.substring(2));
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Returns the index of the "~~" ending the field starting at pos, failing if
+	 * the task ends before it.
+	 */
+	private static int fieldEnd(String line, int pos, int taskEnd) {
+		int end = line.indexOf("~~", pos);
+		if (end < 0 || end > taskEnd)
+			throw new IllegalArgumentException("Task with missing fields: " + line.substring(pos, taskEnd));
+		return end;
+	}
+
+	/**
+	 * Moves the tasks of one list into another list.
+	 */
+	private static void merge(ToDoList from, ToDoList into) {
+		for (Task task : from.getAllTasks().values()) {
+			into.addTask(task.getName(), task.getDescription(), task.getDeadlineMinute(), task.getId(),
+					task.getPriority());
+			if (task.isComplete())
+				into.setTaskCompleted(task.getId());
+		}
+	}
+}
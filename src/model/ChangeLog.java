@@ -0,0 +1,73 @@
+package model;
+
+/**
+ * Receives every change made to the TDLModel, such as a journal recording them
+ * on disk. The Model calls it while it still holds the locks of the change, so
+ * the changes to one ToDoList reach the ChangeLog in the order they were applied
+ * in, even when they are made from several threads. As other changes wait for
+ * those locks, a ChangeLog only takes note of a change there, and does anything
+ * slow, such as I/O, in flush(), which the Model calls once it released them.
+ */
+public interface ChangeLog {
+
+	/**
+	 * Called after a ToDoList was created.
+	 * 
+	 * @param listName name of the new ToDoList
+	 */
+	void newList(String listName);
+
+	/**
+	 * Called after a ToDoList was removed.
+	 * 
+	 * @param listName name of the removed ToDoList
+	 */
+	void removeList(String listName);
+
+	/**
+	 * Called after a ToDoList was renamed.
+	 * 
+	 * @param oldName old name of the ToDoList
+	 * @param newName new name of the ToDoList
+	 */
+	void editList(String oldName, String newName);
+
+	/**
+	 * Called after a Task was added.
+	 * 
+	 * @param listName name of the ToDoList the Task was added to
+	 * @param task     the new Task
+	 */
+	void addTask(String listName, Task task);
+
+	/**
+	 * Called after a Task was edited.
+	 * 
+	 * @param listName name of the ToDoList the Task is in
+	 * @param task     the Task, with its new details
+	 */
+	void editTask(String listName, Task task);
+
+	/**
+	 * Called after a Task was removed.
+	 * 
+	 * @param listName name of the ToDoList the Task was in
+	 * @param id       id of the removed Task
+	 */
+	void removeTask(String listName, long id);
+
+	/**
+	 * Called after a Task was marked as completed.
+	 * 
+	 * @param listName name of the ToDoList the Task is in
+	 * @param id       id of the Task
+	 */
+	void setTaskCompleted(String listName, long id);
+
+	/**
+	 * Called after a change was passed to the ChangeLog, once the Model released
+	 * the locks of the change.
+	 */
+	default void flush() {
+	}
+}
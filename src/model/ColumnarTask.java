@@ -0,0 +1,108 @@
+package model;
+
+import java.util.Date;
+
+/**
+ * Flyweight view of a Task of a ColumnarTaskList. Holds nothing but the list and
+ * the id of the Task, and reads every field from the columns of the list when
+ * asked, so it always shows the current state of the Task. The view is
+ * read-only; the Task is changed through the list. Reading a view of a Task
+ * that was removed fails with an IllegalStateException.
+ */
+public final class ColumnarTask {
+
+	private final ColumnarTaskList list;
+	private final long id;
+
+	/**
+	 * Creates a view of a Task of the list.
+	 *
+	 * @param list the list holding the Task
+	 * @param id   id of the Task
+	 */
+	ColumnarTask(ColumnarTaskList list, long id) {
+		this.list = list;
+		this.id = id;
+	}
+
+	/**
+	 * Returns the id of the Task
+	 *
+	 * @return id of the Task
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the name of the Task
+	 *
+	 * @return name of the Task
+	 */
+	public String getName() {
+		return list.nameOf(id);
+	}
+
+	/**
+	 * Returns the description of the Task
+	 *
+	 * @return description of the Task, or null
+	 */
+	public String getDescription() {
+		return list.descriptionOf(id);
+	}
+
+	/**
+	 * Returns the deadline of the Task as a Date
+	 *
+	 * @return deadline of the Task
+	 */
+	public Date getDeadline() {
+		return Deadlines.toDate(getDeadlineMinute());
+	}
+
+	/**
+	 * Returns the deadline of the Task in minutes, as counted by Deadlines
+	 *
+	 * @return deadline of the Task, or Deadlines.NONE
+	 */
+	public long getDeadlineMinute() {
+		return list.deadlineOf(id);
+	}
+
+	/**
+	 * Returns whether the Task has a deadline
+	 *
+	 * @return true if the Task has a deadline
+	 */
+	public boolean hasDeadline() {
+		return getDeadlineMinute() != Deadlines.NONE;
+	}
+
+	/**
+	 * Returns the deadline of the Task as "MM/DD/YYYY HR:MN", or Task.NO_DEADLINE
+	 *
+	 * @return deadline of the Task as text
+	 */
+	public String getDateString() {
+		return Deadlines.format(getDeadlineMinute());
+	}
+
+	/**
+	 * Returns the Priority of the Task
+	 *
+	 * @return Priority of the Task
+	 */
+	public Priority getPriority() {
+		return list.priorityOf(id);
+	}
+
+	/**
+	 * Returns whether the Task is completed
+	 *
+	 * @return true if the Task is completed
+	 */
+	public boolean isComplete() {
+		return list.isComplete(id);
+	}
+}
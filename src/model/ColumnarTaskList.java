@@ -0,0 +1,797 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Holds the Tasks of a very large list off the heap, so that tens of millions of
+ * them neither take heap space nor give the garbage collector objects to trace.
+ * The Tasks are kept in columns of direct ByteBuffers, one row per Task: its id,
+ * its deadline, its Priority ordinal with its completion and removal bits in a
+ * byte, and the offsets of its name and description in a string arena of
+ * direct chunks holding them in UTF-8. Ids are mapped to rows by an
+ * open-addressing hash table that is kept off the heap as well.
+ *
+ * The Tasks handed out are ColumnarTask views that only hold the list and their
+ * id, and read their fields from the columns whenever asked, so they cost
+ * nothing once dropped and always show the current state of their Task. They
+ * are read-only: Tasks are changed through the list.
+ * Queries are evaluated by scanning the columns, only decoding text for
+ * queries matching words, and create views only for the Tasks of the page. In
+ * deadline and priority order, Tasks sharing a deadline or Priority come in the
+ * order they were added.
+ *
+ * Removing or replacing a Task leaves its row and text behind until they take
+ * as much room as the Tasks in use, when the columns are rewritten without
+ * them.
+ *
+ * Changes take the write lock of the list and queries its read lock. The views
+ * read the columns without locking, so readers of views on other threads have
+ * to hold readLock() while Tasks are being changed.
+ */
+public final class ColumnarTaskList {
+
+	private static final long NO_ID = Long.MIN_VALUE;
+	private static final long NO_TEXT = -1;
+	private static final int MIN_ROWS = 1024;
+	private static final int MIN_CHUNK_SIZE = 1 << 12;
+	private static final int CHUNK_SIZE = 1 << 24;
+
+	/*
+	 * Bits of the flags column.
+	 */
+	private static final int PRIORITY_BITS = 0x3;
+	private static final int COMPLETE = 0x4;
+	private static final int REMOVED = 0x8;
+
+	private final String name;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final TDLStats stats = new TDLStats(1);
+
+	/*
+	 * Columns of the rows: ids and deadlines as longs, flags as bytes, and the
+	 * names and descriptions as offsets in the arena.
+	 */
+	private ByteBuffer ids;
+	private ByteBuffer deadlines;
+	private ByteBuffer flags;
+	private ByteBuffer names;
+	private ByteBuffer descriptions;
+	private int capacity;
+	private int rows;
+	/*
+	 * Number of rows that were not removed.
+	 */
+	private int size;
+
+	/*
+	 * Ids of the Tasks and their rows, by slot. The table is at most half full.
+	 */
+	private ByteBuffer slotIds;
+	private ByteBuffer slotRows;
+	private int slots;
+
+	/*
+	 * Chunks of the string arena. Text is written as its length followed by its
+	 * bytes, and found by the index of its chunk in the high half of its offset
+	 * and its position in the low half.
+	 */
+	private final List<ByteBuffer> chunks = new ArrayList<>();
+	private long textBytes;
+	private long wastedTextBytes;
+
+	/**
+	 * Creates an empty list with the passed name.
+	 *
+	 * @param name name of the list
+	 */
+	public ColumnarTaskList(String name) {
+		this.name = name;
+		allocate(MIN_ROWS);
+	}
+
+	/**
+	 * Copies the Tasks of a ToDoList into a new list of the same name.
+	 *
+	 * @param list the ToDoList to copy
+	 * @return the copy
+	 */
+	public static ColumnarTaskList copyOf(ToDoList list) {
+		ListSnapshot snapshot = list.snapshot();
+		ColumnarTaskList copy = new ColumnarTaskList(snapshot.getName());
+		for (TaskSnapshot task : snapshot.getTasks()) {
+			copy.addTask(task.getName(), task.getDescription(), task.getDeadlineMinute(), task.getId(),
+					task.getPriority());
+			if (task.isComplete())
+				copy.setTaskCompleted(task.getId());
+		}
+		return copy;
+	}
+
+	/**
+	 * Copies the Tasks into a new ToDoList of the same name, in the order they were
+	 * added.
+	 *
+	 * @return the ToDoList
+	 */
+	public ToDoList toToDoList() {
+		ToDoList list = new ToDoList(name);
+		lock.readLock().lock();
+		try {
+			for (int row = 0; row < rows; row++) {
+				int flag = flags.get(row);
+				if ((flag & REMOVED) != 0)
+					continue;
+				long id = ids.getLong(row * 8);
+				list.addTask(text(names, row), text(descriptions, row), deadlines.getLong(row * 8), id,
+						Priority.values()[flag & PRIORITY_BITS]);
+				if ((flag & COMPLETE) != 0)
+					list.setTaskCompleted(id);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the name of the list.
+	 *
+	 * @return name of the list
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the lock readers of views on other threads hold while Tasks may be
+	 * changed.
+	 *
+	 * @return the read lock of the list
+	 */
+	public Lock readLock() {
+		return lock.readLock();
+	}
+
+	/**
+	 * Returns the number of Tasks.
+	 *
+	 * @return number of Tasks
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the statistics of the Tasks, kept up to date by every change.
+	 *
+	 * @return the statistics
+	 */
+	public TDLStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Returns the memory taken off the heap by the columns, the id table and the
+	 * string arena.
+	 *
+	 * @return number of bytes
+	 */
+	public long getOffHeapBytes() {
+		lock.readLock().lock();
+		try {
+			long bytes = (long) capacity * (8 + 8 + 1 + 8 + 8) + (long) slots * (8 + 4);
+			for (ByteBuffer chunk : chunks)
+				bytes += chunk.capacity();
+			return bytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a Task with the passed properties and id, replacing the Task that had
+	 * the id if any.
+	 *
+	 * @param taskName        name of the Task
+	 * @param taskDescription description of the Task, or null
+	 * @param taskDeadline    deadline of the Task in minutes, or Deadlines.NONE
+	 * @param id              id of the Task
+	 * @param priority        Priority of the Task
+	 */
+	public void addTask(String taskName, String taskDescription, long taskDeadline, long id, Priority priority) {
+		if (id == NO_ID)
+			throw new IllegalArgumentException("Invalid task id " + id);
+		lock.writeLock().lock();
+		try {
+			int replaced = row(id);
+			if (replaced >= 0)
+				delete(replaced);
+			if (rows == capacity)
+				grow();
+			int row = rows++;
+			ids.putLong(row * 8, id);
+			deadlines.putLong(row * 8, taskDeadline);
+			flags.put(row, (byte) priority.ordinal());
+			names.putLong(row * 8, write(taskName));
+			descriptions.putLong(row * 8, write(taskDescription));
+			index(id, row);
+			size++;
+			count(row, 1);
+			if (replaced >= 0)
+				compactIfWasteful();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Updates the Task with the passed id.
+	 *
+	 * @param id              id of the Task
+	 * @param taskName        new name of the Task
+	 * @param taskDescription new description of the Task, or null
+	 * @param taskDeadline    new deadline in minutes, or Deadlines.NONE
+	 * @param priority        new Priority of the Task
+	 * @throws IllegalArgumentException if there is no Task with the id
+	 */
+	public void editTask(long id, String taskName, String taskDescription, long taskDeadline, Priority priority) {
+		lock.writeLock().lock();
+		try {
+			int row = existing(id);
+			count(row, -1);
+			dropText(names.getLong(row * 8));
+			dropText(descriptions.getLong(row * 8));
+			names.putLong(row * 8, write(taskName));
+			descriptions.putLong(row * 8, write(taskDescription));
+			deadlines.putLong(row * 8, taskDeadline);
+			flags.put(row, (byte) (flags.get(row) & COMPLETE | priority.ordinal()));
+			count(row, 1);
+			compactIfWasteful();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns a view of the Task with the passed id.
+	 *
+	 * @param id id of the Task
+	 * @return the view, or null if there is no Task with the id
+	 */
+	public ColumnarTask getTask(long id) {
+		lock.readLock().lock();
+		try {
+			return row(id) >= 0 ? new ColumnarTask(this, id) : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Deletes the Task with the passed id, if there is one.
+	 *
+	 * @param id id of the Task
+	 */
+	public void removeTask(long id) {
+		lock.writeLock().lock();
+		try {
+			int row = row(id);
+			if (row < 0)
+				return;
+			delete(row);
+			compactIfWasteful();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Marks the Task with the passed id as completed.
+	 *
+	 * @param id id of the Task
+	 * @throws IllegalArgumentException if there is no Task with the id
+	 */
+	public void setTaskCompleted(long id) {
+		setComplete(id, true);
+	}
+
+	/**
+	 * Marks the Task with the passed id as incomplete.
+	 *
+	 * @param id id of the Task
+	 * @throws IllegalArgumentException if there is no Task with the id
+	 */
+	public void setTaskIncomplete(long id) {
+		setComplete(id, false);
+	}
+
+	/**
+	 * Returns the number of Tasks matching the query, ignoring its order, limit
+	 * and cursor. Scans the columns, decoding text only if the query matches
+	 * words.
+	 *
+	 * @param query the query
+	 * @return number of matching Tasks
+	 */
+	public long count(TaskQuery query) {
+		lock.readLock().lock();
+		try {
+			long count = 0;
+			for (int row = 0; row < rows; row++)
+				if (matches(row, query))
+					count++;
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns one page of the Tasks matching the query, in its order, as views.
+	 * Insertion order stops scanning once the page is full; the other orders scan
+	 * every row, keeping the first Tasks of the page in a bounded heap.
+	 *
+	 * @param query the query
+	 * @return the page
+	 */
+	public TaskPage<ColumnarTask> query(TaskQuery query) {
+		TaskQuery.Cursor after = query.getCursor();
+		if (after != null && after.getOrder() != query.getOrder())
+			throw new IllegalArgumentException("Cursor of a query ordered by " + after.getOrder());
+		lock.readLock().lock();
+		try {
+			return query.getOrder() == TaskQuery.Order.INSERTION ? scan(query, after) : select(query, after);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the page of a query in insertion order, scanning the rows from the
+	 * cursor on.
+	 */
+	private TaskPage<ColumnarTask> scan(TaskQuery query, TaskQuery.Cursor after) {
+		int start = 0;
+		int skip = 0;
+		if (after != null) {
+			int row = row(after.getId());
+			if (row >= 0)
+				start = row + 1;
+			else
+				// the last Task of the previous page is gone, so start at its offset
+				skip = after.getOffset();
+		}
+		int offset = after == null ? 0 : after.getOffset();
+		List<ColumnarTask> page = new ArrayList<>(Math.min(query.getLimit(), 64));
+		for (int row = start; row < rows; row++) {
+			if (!matches(row, query))
+				continue;
+			if (skip > 0) {
+				skip--;
+				continue;
+			}
+			if (page.size() == query.getLimit())
+				return new TaskPage<>(page,
+						query.cursorAfter(0, page.get(page.size() - 1).getId(), offset + page.size()));
+			page.add(new ColumnarTask(this, ids.getLong(row * 8)));
+		}
+		return new TaskPage<>(page, null);
+	}
+
+	/**
+	 * Returns the page of a query by deadline or Priority. Keeps the first
+	 * matching rows after the cursor, by key then row, in a max-heap bounded to
+	 * one more than the page, so whether a next page exists is known as well.
+	 */
+	private TaskPage<ColumnarTask> select(TaskQuery query, TaskQuery.Cursor after) {
+		long fromKey = 0;
+		int fromRow = -1;
+		int skip = 0;
+		if (after != null) {
+			int row = row(after.getId());
+			if (row >= 0 && key(row, query) == after.getKey()) {
+				fromKey = after.getKey();
+				fromRow = row;
+			} else {
+				// the last Task of the previous page is gone or moved
+				skip = after.getOffset();
+			}
+		}
+		int bound = (int) Math.min((long) query.getLimit() + skip + 1, (long) size + 1);
+		long[] keys = new long[Math.min(bound, 64)];
+		int[] heap = new int[keys.length];
+		int count = 0;
+		for (int row = 0; row < rows; row++) {
+			if (!matches(row, query))
+				continue;
+			long key = key(row, query);
+			if (fromRow >= 0 && (key < fromKey || key == fromKey && row <= fromRow))
+				continue;
+			if (count < bound) {
+				if (count == keys.length) {
+					keys = Arrays.copyOf(keys, Math.min(bound, count * 2));
+					heap = Arrays.copyOf(heap, keys.length);
+				}
+				keys[count] = key;
+				heap[count] = row;
+				siftUp(keys, heap, count++);
+			} else if (key < keys[0] || key == keys[0] && row < heap[0]) {
+				keys[0] = key;
+				heap[0] = row;
+				siftDown(keys, heap, 0, count);
+			}
+		}
+		// sort the heap in place, smallest first
+		for (int end = count - 1; end > 0; end--) {
+			swap(keys, heap, 0, end);
+			siftDown(keys, heap, 0, end);
+		}
+		int offset = after == null ? 0 : after.getOffset();
+		List<ColumnarTask> page = new ArrayList<>(Math.min(query.getLimit(), 64));
+		for (int i = skip; i < count && page.size() < query.getLimit(); i++)
+			page.add(new ColumnarTask(this, ids.getLong(heap[i] * 8)));
+		if (count - skip > page.size() && !page.isEmpty()) {
+			int last = skip + page.size() - 1;
+			return new TaskPage<>(page, query.cursorAfter(keys[last], page.get(page.size() - 1).getId(),
+					offset + page.size()));
+		}
+		return new TaskPage<>(page, null);
+	}
+
+	private static void siftUp(long[] keys, int[] rows, int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!after(keys, rows, i, parent))
+				return;
+			swap(keys, rows, i, parent);
+			i = parent;
+		}
+	}
+
+	private static void siftDown(long[] keys, int[] rows, int i, int count) {
+		while (true) {
+			int largest = i;
+			int left = 2 * i + 1;
+			if (left < count && after(keys, rows, left, largest))
+				largest = left;
+			if (left + 1 < count && after(keys, rows, left + 1, largest))
+				largest = left + 1;
+			if (largest == i)
+				return;
+			swap(keys, rows, i, largest);
+			i = largest;
+		}
+	}
+
+	/**
+	 * Returns whether entry a comes after entry b, by key then row.
+	 */
+	private static boolean after(long[] keys, int[] rows, int a, int b) {
+		return keys[a] > keys[b] || keys[a] == keys[b] && rows[a] > rows[b];
+	}
+
+	private static void swap(long[] keys, int[] rows, int a, int b) {
+		long key = keys[a];
+		keys[a] = keys[b];
+		keys[b] = key;
+		int row = rows[a];
+		rows[a] = rows[b];
+		rows[b] = row;
+	}
+
+	/**
+	 * Returns the sort key of a row in the order of the query.
+	 */
+	private long key(int row, TaskQuery query) {
+		return query.getOrder() == TaskQuery.Order.DEADLINE ? deadlines.getLong(row * 8)
+				: flags.get(row) & PRIORITY_BITS;
+	}
+
+	/**
+	 * Returns whether the row holds a Task matching the query.
+	 */
+	private boolean matches(int row, TaskQuery query) {
+		int flag = flags.get(row);
+		if ((flag & REMOVED) != 0
+				|| !query.matches(flag & PRIORITY_BITS, (flag & COMPLETE) != 0, deadlines.getLong(row * 8)))
+			return false;
+		return query.getWords() == null
+				|| TaskIndex.uses(text(names, row), text(descriptions, row), query.getWords());
+	}
+
+	/*
+	 * Reads of the fields of a Task by id, for its view.
+	 */
+
+	String nameOf(long id) {
+		return text(names, live(id));
+	}
+
+	String descriptionOf(long id) {
+		return text(descriptions, live(id));
+	}
+
+	long deadlineOf(long id) {
+		return deadlines.getLong(live(id) * 8);
+	}
+
+	Priority priorityOf(long id) {
+		return Priority.values()[flags.get(live(id)) & PRIORITY_BITS];
+	}
+
+	boolean isComplete(long id) {
+		return (flags.get(live(id)) & COMPLETE) != 0;
+	}
+
+	/**
+	 * Returns the row of a Task read through its view, failing if it was removed.
+	 */
+	private int live(long id) {
+		int row = row(id);
+		if (row < 0)
+			throw new IllegalStateException("Task " + id + " was removed from " + name);
+		return row;
+	}
+
+	/**
+	 * Returns the row of a Task that is to be changed.
+	 */
+	private int existing(long id) {
+		int row = row(id);
+		if (row < 0)
+			throw new IllegalArgumentException("No task " + id + " in " + name);
+		return row;
+	}
+
+	private void setComplete(long id, boolean complete) {
+		lock.writeLock().lock();
+		try {
+			int row = existing(id);
+			int flag = flags.get(row);
+			if (((flag & COMPLETE) != 0) == complete)
+				return;
+			count(row, -1);
+			flags.put(row, (byte) (complete ? flag | COMPLETE : flag & ~COMPLETE));
+			count(row, 1);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts or uncounts the Task of a row in the statistics.
+	 */
+	private void count(int row, int delta) {
+		int flag = flags.get(row);
+		stats.count(flag & PRIORITY_BITS, (flag & COMPLETE) != 0, deadlines.getLong(row * 8), delta);
+	}
+
+	/**
+	 * Marks a row removed, leaving its place in the columns until they are
+	 * compacted.
+	 */
+	private void delete(int row) {
+		count(row, -1);
+		unindex(ids.getLong(row * 8));
+		flags.put(row, (byte) (flags.get(row) | REMOVED));
+		dropText(names.getLong(row * 8));
+		dropText(descriptions.getLong(row * 8));
+		size--;
+	}
+
+	/**
+	 * Rewrites the columns and the arena without the removed rows and the text no
+	 * longer used once those take as much room as what is used.
+	 */
+	private void compactIfWasteful() {
+		if (rows - size > Math.max(MIN_ROWS, size) || wastedTextBytes > Math.max(CHUNK_SIZE, textBytes / 2))
+			compact();
+	}
+
+	private void compact() {
+		ByteBuffer oldIds = ids;
+		ByteBuffer oldDeadlines = deadlines;
+		ByteBuffer oldFlags = flags;
+		ByteBuffer oldNames = names;
+		ByteBuffer oldDescriptions = descriptions;
+		List<ByteBuffer> oldChunks = new ArrayList<>(chunks);
+		int oldRows = rows;
+		chunks.clear();
+		textBytes = 0;
+		wastedTextBytes = 0;
+		allocate(Math.max(MIN_ROWS, Integer.highestOneBit(Math.max(1, size)) * 2));
+		rows = 0;
+		for (int row = 0; row < oldRows; row++) {
+			int flag = oldFlags.get(row);
+			if ((flag & REMOVED) != 0)
+				continue;
+			int to = rows++;
+			long id = oldIds.getLong(row * 8);
+			ids.putLong(to * 8, id);
+			deadlines.putLong(to * 8, oldDeadlines.getLong(row * 8));
+			flags.put(to, (byte) flag);
+			names.putLong(to * 8, copy(oldChunks, oldNames.getLong(row * 8)));
+			descriptions.putLong(to * 8, copy(oldChunks, oldDescriptions.getLong(row * 8)));
+			index(id, to);
+		}
+	}
+
+	/**
+	 * Allocates empty columns and an empty id table for the passed number of
+	 * rows.
+	 */
+	private void allocate(int rowCapacity) {
+		capacity = rowCapacity;
+		ids = direct(capacity * 8L);
+		deadlines = direct(capacity * 8L);
+		flags = direct(capacity);
+		names = direct(capacity * 8L);
+		descriptions = direct(capacity * 8L);
+		slots = capacity * 2;
+		slotIds = direct(slots * 8L);
+		slotRows = direct(slots * 4L);
+		for (int slot = 0; slot < slots; slot++)
+			slotIds.putLong(slot * 8, NO_ID);
+	}
+
+	/**
+	 * Doubles the capacity of the columns and of the id table.
+	 */
+	private void grow() {
+		if (capacity > Integer.MAX_VALUE / 16)
+			throw new IllegalStateException("Too many tasks in " + name);
+		ByteBuffer oldIds = ids;
+		ByteBuffer oldDeadlines = deadlines;
+		ByteBuffer oldFlags = flags;
+		ByteBuffer oldNames = names;
+		ByteBuffer oldDescriptions = descriptions;
+		allocate(capacity * 2);
+		ids.put(0, oldIds, 0, rows * 8);
+		deadlines.put(0, oldDeadlines, 0, rows * 8);
+		flags.put(0, oldFlags, 0, rows);
+		names.put(0, oldNames, 0, rows * 8);
+		descriptions.put(0, oldDescriptions, 0, rows * 8);
+		for (int row = 0; row < rows; row++)
+			if ((flags.get(row) & REMOVED) == 0)
+				index(ids.getLong(row * 8), row);
+	}
+
+	private static ByteBuffer direct(long bytes) {
+		return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+	}
+
+	/*
+	 * Id table, probed linearly.
+	 */
+
+	/**
+	 * Returns the row of the Task with the passed id, or -1.
+	 */
+	private int row(long id) {
+		int mask = slots - 1;
+		for (int slot = hash(id) & mask;; slot = (slot + 1) & mask) {
+			long slotId = slotIds.getLong(slot * 8);
+			if (slotId == id)
+				return slotRows.getInt(slot * 4);
+			if (slotId == NO_ID)
+				return -1;
+		}
+	}
+
+	private void index(long id, int row) {
+		int mask = slots - 1;
+		int slot = hash(id) & mask;
+		while (slotIds.getLong(slot * 8) != NO_ID)
+			slot = (slot + 1) & mask;
+		slotIds.putLong(slot * 8, id);
+		slotRows.putInt(slot * 4, row);
+	}
+
+	/**
+	 * Frees the slot of an id, shifting back the ids that probed past it so that
+	 * no tombstones are needed.
+	 */
+	private void unindex(long id) {
+		int mask = slots - 1;
+		int slot = hash(id) & mask;
+		while (slotIds.getLong(slot * 8) != id)
+			slot = (slot + 1) & mask;
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			long nextId = slotIds.getLong(next * 8);
+			if (nextId == NO_ID)
+				break;
+			int home = hash(nextId) & mask;
+			// move the id back unless its home slot lies cyclically in (slot, next]
+			boolean stays = slot <= next ? (slot < home && home <= next) : (slot < home || home <= next);
+			if (!stays) {
+				slotIds.putLong(slot * 8, nextId);
+				slotRows.putInt(slot * 4, slotRows.getInt(next * 4));
+				slot = next;
+			}
+		}
+		slotIds.putLong(slot * 8, NO_ID);
+	}
+
+	private static int hash(long id) {
+		long h = id * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/*
+	 * String arena.
+	 */
+
+	/**
+	 * Writes text to the arena, returning its offset, or NO_TEXT for null.
+	 */
+	private long write(String text) {
+		if (text == null)
+			return NO_TEXT;
+		return write(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private long write(byte[] bytes) {
+		int needed = 4 + bytes.length;
+		ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+		if (chunk == null || chunk.remaining() < needed) {
+			// chunks double up to CHUNK_SIZE, so small lists take little room
+			int size = (int) Math.min(CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, textBytes));
+			chunk = direct(Math.max(size, needed));
+			chunks.add(chunk);
+		}
+		int position = chunk.position();
+		chunk.putInt(bytes.length);
+		chunk.put(bytes);
+		textBytes += needed;
+		return (long) (chunks.size() - 1) << 32 | position;
+	}
+
+	/**
+	 * Reads the text of a row from one of the text columns.
+	 */
+	private String text(ByteBuffer column, int row) {
+		long offset = column.getLong(row * 8);
+		if (offset == NO_TEXT)
+			return null;
+		ByteBuffer chunk = chunks.get((int) (offset >>> 32));
+		int position = (int) offset;
+		byte[] bytes = new byte[chunk.getInt(position)];
+		chunk.get(position + 4, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Counts the text at the passed offset as no longer used.
+	 */
+	private void dropText(long offset) {
+		if (offset != NO_TEXT)
+			wastedTextBytes += 4 + chunks.get((int) (offset >>> 32)).getInt((int) offset);
+	}
+
+	/**
+	 * Copies text from the chunks of an older arena into the arena.
+	 */
+	private long copy(List<ByteBuffer> from, long offset) {
+		if (offset == NO_TEXT)
+			return NO_TEXT;
+		ByteBuffer chunk = from.get((int) (offset >>> 32));
+		int position = (int) offset;
+		byte[] bytes = new byte[chunk.getInt(position)];
+		chunk.get(position + 4, bytes);
+		return write(bytes);
+	}
+}
@@ -0,0 +1,229 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Counts the incomplete Tasks due at each minute, together with how many of them
+ * are due before a cursor that follows the time they are asked about. As time
+ * only moves forward, moving the cursor passes every deadline once, so the
+ * number of overdue Tasks is read in amortized constant time however many Tasks
+ * are counted.
+ *
+ * The counts are kept in an open-addressing hash table with linear probing,
+ * keyed by minute, so counting a Task neither boxes nor allocates. A range of
+ * minutes is summed either minute by minute or by scanning the table, whichever
+ * takes fewer steps.
+ *
+ * Thread-safe; every method holds the lock of the object.
+ */
+final class DeadlineCounts {
+
+	private static final int MIN_CAPACITY = 4;
+	/**
+	 * Marks a free slot. No Task without a deadline is counted, so no count is
+	 * kept under it.
+	 */
+	private static final long FREE = Deadlines.NONE;
+
+	/*
+	 * Minutes and the number of Tasks due at each of them, side by side. The table
+	 * is at most half full.
+	 */
+	private long[] minutes;
+	private int[] counts;
+	private int size;
+
+	/*
+	 * Minute the overdue Tasks were counted at.
+	 */
+	private long cursor = Long.MIN_VALUE;
+
+	/*
+	 * Number of incomplete Tasks due before the cursor.
+	 */
+	private long overdue;
+
+	DeadlineCounts() {
+		minutes = new long[MIN_CAPACITY];
+		counts = new int[MIN_CAPACITY];
+		Arrays.fill(minutes, FREE);
+	}
+
+	/**
+	 * Counts or uncounts an incomplete Task due at the passed minute.
+	 *
+	 * @param deadline the deadline in minutes
+	 * @param delta    1 to count the Task, -1 to uncount it
+	 */
+	synchronized void add(long deadline, int delta) {
+		int mask = minutes.length - 1;
+		int slot = hash(deadline) & mask;
+		while (minutes[slot] != FREE && minutes[slot] != deadline)
+			slot = (slot + 1) & mask;
+		if (minutes[slot] == FREE) {
+			minutes[slot] = deadline;
+			counts[slot] = delta;
+			if (++size * 2 > minutes.length)
+				resize(minutes.length * 2);
+		} else if ((counts[slot] += delta) == 0) {
+			deleteSlot(slot);
+			size--;
+		}
+		if (deadline < cursor)
+			overdue += delta;
+	}
+
+	/**
+	 * Receives the number of Tasks due at a minute.
+	 */
+	interface MinuteCount {
+		void accept(long deadline, int count);
+	}
+
+	/**
+	 * Passes every minute at which Tasks are due, with their number, to the
+	 * action. The counts are copied first, so the action runs without the lock.
+	 *
+	 * @param action receives the minutes and counts
+	 */
+	void forEach(MinuteCount action) {
+		long[] copiedMinutes;
+		int[] copiedCounts;
+		synchronized (this) {
+			copiedMinutes = minutes.clone();
+			copiedCounts = counts.clone();
+		}
+		for (int i = 0; i < copiedMinutes.length; i++)
+			if (copiedMinutes[i] != FREE)
+				action.accept(copiedMinutes[i], copiedCounts[i]);
+	}
+
+	/**
+	 * Returns the number of incomplete Tasks due before the passed minute.
+	 *
+	 * @param now the minute, as counted by Deadlines
+	 * @return number of overdue Tasks
+	 */
+	synchronized long getOverdue(long now) {
+		if (now > cursor)
+			overdue += sum(cursor, now);
+		else if (now < cursor)
+			overdue -= sum(now, cursor);
+		cursor = now;
+		return overdue;
+	}
+
+	/**
+	 * Returns the number of incomplete Tasks due from the passed minute on, before
+	 * the given number of minutes have passed. Costs at most one step per minute
+	 * of the window, however many Tasks are due in it.
+	 *
+	 * @param now     the minute, as counted by Deadlines
+	 * @param minutes length of the window
+	 * @return number of Tasks due in the window
+	 */
+	synchronized long getDueWithin(long now, long minutes) {
+		return sum(now, now + minutes);
+	}
+
+	/**
+	 * Returns the number of incomplete Tasks due from one minute included to
+	 * another excluded. Costs at most one step per minute of the range or per
+	 * slot of the table, whichever is fewer.
+	 *
+	 * @param from start of the range, as counted by Deadlines
+	 * @param to   end of the range
+	 * @return number of Tasks due in the range
+	 */
+	synchronized long getDue(long from, long to) {
+		return from < to ? sum(from, to) : 0;
+	}
+
+	/**
+	 * Returns the earliest minute after the passed one at which an incomplete Task
+	 * is due. Scans the whole table.
+	 *
+	 * @param after the minute, as counted by Deadlines
+	 * @return the next deadline, or Deadlines.NONE if there is none
+	 */
+	synchronized long next(long after) {
+		long next = Deadlines.NONE;
+		for (long minute : minutes)
+			if (minute != FREE && minute > after && (next == Deadlines.NONE || minute < next))
+				next = minute;
+		return next;
+	}
+
+	/**
+	 * Sums the counts of the minutes from one minute included to another
+	 * excluded.
+	 */
+	private long sum(long from, long to) {
+		long sum = 0;
+		if (Long.compareUnsigned(to - from, minutes.length) <= 0) {
+			int mask = minutes.length - 1;
+			for (long minute = from; minute != to; minute++) {
+				int slot = hash(minute) & mask;
+				while (minutes[slot] != FREE) {
+					if (minutes[slot] == minute) {
+						sum += counts[slot];
+						break;
+					}
+					slot = (slot + 1) & mask;
+				}
+			}
+		} else {
+			for (int i = 0; i < minutes.length; i++)
+				if (minutes[i] != FREE && minutes[i] >= from && minutes[i] < to)
+					sum += counts[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Frees a slot of the table, shifting back the minutes that probed past it so
+	 * that no tombstones are needed.
+	 */
+	private void deleteSlot(int slot) {
+		int mask = minutes.length - 1;
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			if (minutes[next] == FREE)
+				break;
+			int home = hash(minutes[next]) & mask;
+			// move the minute back unless its home slot lies cyclically in (slot, next]
+			boolean stays = slot <= next ? (slot < home && home <= next) : (slot < home || home <= next);
+			if (!stays) {
+				minutes[slot] = minutes[next];
+				counts[slot] = counts[next];
+				slot = next;
+			}
+		}
+		minutes[slot] = FREE;
+		counts[slot] = 0;
+	}
+
+	private void resize(int capacity) {
+		long[] oldMinutes = minutes;
+		int[] oldCounts = counts;
+		minutes = new long[capacity];
+		counts = new int[capacity];
+		Arrays.fill(minutes, FREE);
+		int mask = capacity - 1;
+		for (int i = 0; i < oldMinutes.length; i++) {
+			if (oldMinutes[i] == FREE)
+				continue;
+			int slot = hash(oldMinutes[i]) & mask;
+			while (minutes[slot] != FREE)
+				slot = (slot + 1) & mask;
+			minutes[slot] = oldMinutes[i];
+			counts[slot] = oldCounts[i];
+		}
+	}
+
+	private static int hash(long minute) {
+		long h = minute * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,426 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reports the incomplete Tasks whose deadline passes, without ever looking at
+ * the Tasks that are not due. Every such Task has a Timer in a hierarchical
+ * timing wheel ticking once a minute: 64 slots of one minute, then 64 slots of
+ * 64 minutes, and so on over LEVELS levels. A Timer sits in the slot of the
+ * coarsest level its deadline still fits in, and moves down one level each time
+ * the finer level wraps around, until it reaches the slot of its own minute and
+ * fires. Scheduling and cancelling a Timer link and unlink it from the list of
+ * its slot, so both take constant time however many Timers are pending.
+ *
+ * A dedicated daemon thread, started by start(), advances the wheel at the start
+ * of every minute and passes the events of the Tasks that became due to the
+ * listener: TASK_DUE for a deadline reached while it was pending, TASK_OVERDUE
+ * for a deadline that had already passed when the Task was scheduled.
+ *
+ * The Tasks of a ToDoList that is not loaded have no Timers. The list has a
+ * single wake-up Timer instead, set WAKE_AHEAD minutes before its next deadline,
+ * which loads the list so that its Tasks are scheduled again before they are
+ * due. A list that was never loaded wakes up at once if it has overdue Tasks,
+ * and is loaded before the events of the minute are sent. A list that can not
+ * be loaded is reported with LIST_UNAVAILABLE and wakes up again the next
+ * minute; its Tasks that became due meanwhile fire as overdue once it loads.
+ * Events the listener fails to take are passed again on the next tick.
+ *
+ * Thread-safe; every method changing the wheel holds the lock of the object.
+ */
+final class DeadlineScheduler {
+
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int LEVELS = 6;
+	/**
+	 * Farthest deadline the wheel can hold apart from now, about 130000 years.
+	 * Farther deadlines are held at that distance until they come closer.
+	 */
+	private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+	/**
+	 * Minutes before its next deadline a ToDoList that is not loaded is loaded
+	 * again. A list due sooner is not evicted.
+	 */
+	private static final long WAKE_AHEAD = 2;
+
+	/**
+	 * The entry of one Task in the wheel, linked in the list of its slot, or the
+	 * wake-up of a ToDoList that is not loaded when it has no Task.
+	 */
+	static final class Timer {
+		private final ToDoList list;
+		private final Task task;
+		private final long deadline;
+		private Timer prev;
+		private Timer next;
+
+		private Timer(ToDoList list, Task task, long deadline) {
+			this.list = list;
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Creates the head of an empty slot.
+		 */
+		private Timer() {
+			this(null, null, 0);
+			prev = this;
+			next = this;
+		}
+	}
+
+	/*
+	 * Heads of the slots, LEVELS levels of SLOTS slots each.
+	 */
+	private final Timer[] slots;
+
+	/*
+	 * Head of the Timers that were already due when they were scheduled.
+	 */
+	private final Timer overdue;
+
+	/*
+	 * Last minute the wheel was advanced to; every Timer due at or before it has
+	 * fired or is in overdue.
+	 */
+	private long now;
+
+	/*
+	 * Number of pending Timers.
+	 */
+	private int size;
+
+	/*
+	 * Receives the events of the Tasks that became due.
+	 */
+	private final Consumer<List<ModelEvent>> listener;
+
+	private ScheduledExecutorService ticker;
+
+	/*
+	 * Events the listener failed to take, passed again with those of the next
+	 * tick. Only used on the thread of the scheduler.
+	 */
+	private List<ModelEvent> undelivered = new ArrayList<>();
+
+	/**
+	 * Creates an empty wheel standing at the passed minute.
+	 *
+	 * @param now      the current minute, as counted by Deadlines
+	 * @param listener receives the events of the Tasks that became due, on the
+	 *                 thread of the scheduler
+	 */
+	DeadlineScheduler(long now, Consumer<List<ModelEvent>> listener) {
+		this.now = now;
+		this.listener = listener;
+		slots = new Timer[LEVELS * SLOTS];
+		for (int i = 0; i < slots.length; i++)
+			slots[i] = new Timer();
+		overdue = new Timer();
+	}
+
+	/**
+	 * Starts the thread advancing the wheel every minute, unless it was started
+	 * already.
+	 */
+	synchronized void start() {
+		if (ticker != null)
+			return;
+		ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "TDL deadlines");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long untilNextMinute = 60_000 - System.currentTimeMillis() % 60_000;
+		ticker.scheduleAtFixedRate(this::tick, untilNextMinute, 60_000, TimeUnit.MILLISECONDS);
+		ticker.execute(this::tick);
+	}
+
+	/**
+	 * Schedules the passed Task of the passed ToDoList, replacing the Timer it had.
+	 *
+	 * @param list the ToDoList holding the Task
+	 * @param task an incomplete Task with a deadline
+	 */
+	synchronized void schedule(ToDoList list, Task task) {
+		unlink(task.getTimer());
+		add(list, task);
+	}
+
+	/**
+	 * Schedules every incomplete Task with a deadline among the passed Tasks,
+	 * taking the lock once for all of them.
+	 *
+	 * @param list  the ToDoList holding the Tasks
+	 * @param tasks the Tasks
+	 */
+	synchronized void scheduleAll(ToDoList list, Iterable<Task> tasks) {
+		for (Task task : tasks) {
+			unlink(task.getTimer());
+			if (!task.isComplete() && task.hasDeadline())
+				add(list, task);
+		}
+	}
+
+	/**
+	 * Cancels the Timer of the passed Task, if it has one.
+	 *
+	 * @param task the Task
+	 */
+	synchronized void cancel(Task task) {
+		unlink(task.getTimer());
+	}
+
+	/**
+	 * Cancels the Timers of every passed Task of the passed ToDoList, along with
+	 * its wake-up.
+	 *
+	 * @param list  the ToDoList
+	 * @param tasks the Tasks, or null if the list is not loaded
+	 */
+	synchronized void cancelAll(ToDoList list, Iterable<Task> tasks) {
+		unlink(list.getWakeup());
+		if (tasks != null)
+			for (Task task : tasks)
+				unlink(task.getTimer());
+	}
+
+	/**
+	 * Cancels the Timers of the Tasks of a ToDoList that is about to be evicted,
+	 * and sets its wake-up in their place. Fails if one of them is due within
+	 * WAKE_AHEAD minutes, or is overdue and has not fired yet.
+	 *
+	 * @param list  the ToDoList
+	 * @param tasks its Tasks
+	 * @return the minute every deadline up to which has fired, or Deadlines.NONE
+	 *         if the list can not be evicted yet
+	 */
+	synchronized long unload(ToDoList list, Iterable<Task> tasks) {
+		for (Task task : tasks) {
+			Timer timer = task.getTimer();
+			if (timer != null && timer.deadline <= now + WAKE_AHEAD)
+				return Deadlines.NONE;
+		}
+		for (Task task : tasks)
+			unlink(task.getTimer());
+		sleep(list, now);
+		return now;
+	}
+
+	/**
+	 * Sets the wake-up of a ToDoList that is not loaded, before the earliest
+	 * deadline of its incomplete Tasks after the passed minute. A wake-up due
+	 * already fires on the next advance.
+	 *
+	 * @param list  the ToDoList
+	 * @param after the minute every earlier deadline of the list has fired by
+	 */
+	synchronized void sleep(ToDoList list, long after) {
+		unlink(list.getWakeup());
+		long next = list.getStats().nextDeadline(after);
+		if (next == Deadlines.NONE)
+			return;
+		Timer wakeup = new Timer(list, null, next - WAKE_AHEAD);
+		list.setWakeup(wakeup);
+		if (wakeup.deadline <= now)
+			link(overdue, wakeup);
+		else
+			insert(wakeup);
+		size++;
+	}
+
+	/**
+	 * Sets the wake-up of a ToDoList that could not be loaded when it woke up for
+	 * the next minute, so that loading it is tried again.
+	 *
+	 * @param list the ToDoList
+	 */
+	synchronized void retry(ToDoList list) {
+		unlink(list.getWakeup());
+		Timer wakeup = new Timer(list, null, now + 1);
+		list.setWakeup(wakeup);
+		insert(wakeup);
+		size++;
+	}
+
+	/**
+	 * Schedules the Tasks of a ToDoList that was just loaded, in place of its
+	 * wake-up. Tasks due at or before the passed minute are not scheduled, as they
+	 * fired before the list was evicted.
+	 *
+	 * @param list  the ToDoList
+	 * @param tasks its Tasks
+	 * @param after the minute returned by unload when the list was evicted
+	 */
+	synchronized void restore(ToDoList list, Iterable<Task> tasks, long after) {
+		unlink(list.getWakeup());
+		for (Task task : tasks) {
+			unlink(task.getTimer());
+			if (!task.isComplete() && task.hasDeadline() && task.getDeadlineMinute() > after)
+				add(list, task);
+		}
+	}
+
+	/**
+	 * Returns the number of pending Timers.
+	 *
+	 * @return number of Tasks waiting for their deadline
+	 */
+	synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Advances the wheel to the passed minute, firing every Timer due by then.
+	 * Costs one step per minute passed while Timers are pending, plus one per
+	 * Timer fired or moved down a level.
+	 *
+	 * @param to    the minute to advance to, as counted by Deadlines
+	 * @param woken receives the ToDoLists whose wake-up fired, to be loaded once
+	 *              the lock of the wheel is released
+	 * @return events of the Tasks that became due, in the order of their deadlines
+	 */
+	synchronized List<ModelEvent> advance(long to, List<ToDoList> woken) {
+		List<ModelEvent> events = new ArrayList<>();
+		fire(overdue, ModelEvent.Type.TASK_OVERDUE, events, woken);
+		while (now < to) {
+			if (size == 0) {
+				now = to;
+				break;
+			}
+			now++;
+			for (int level = 1; level < LEVELS && (now & ((1L << (SLOT_BITS * level)) - 1)) == 0; level++)
+				cascade(slots[level * SLOTS + slotOf(now, level)]);
+			fire(slots[slotOf(now, 0)], ModelEvent.Type.TASK_DUE, events, woken);
+		}
+		return events;
+	}
+
+	/**
+	 * Advances the wheel to the current minute and passes the events to the
+	 * listener. ToDoLists that woke up are loaded first, and their Tasks already
+	 * due are reported along with the others. A failure is printed rather than
+	 * thrown, as it would stop the ticks, and the events not delivered are kept
+	 * for the next tick.
+	 */
+	private void tick() {
+		List<ModelEvent> events = undelivered;
+		try {
+			long to = Deadlines.now();
+			List<ToDoList> woken = new ArrayList<>();
+			events.addAll(advance(to, woken));
+			while (!woken.isEmpty()) {
+				for (ToDoList list : woken) {
+					try {
+						list.wake();
+					}
+					catch (RuntimeException e) {
+						e.printStackTrace();
+						events.add(ModelEvent.listUnavailable(list.getName()));
+					}
+				}
+				woken.clear();
+				events.addAll(advance(to, woken));
+			}
+			if (!events.isEmpty()) {
+				listener.accept(events);
+				undelivered = new ArrayList<>();
+			}
+		}
+		catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Creates the Timer of the Task and links it in the slot of its deadline.
+	 */
+	private void add(ToDoList list, Task task) {
+		Timer timer = new Timer(list, task, task.getDeadlineMinute());
+		task.setTimer(timer);
+		if (timer.deadline <= now)
+			link(overdue, timer);
+		else
+			insert(timer);
+		size++;
+	}
+
+	/**
+	 * Links the Timer in the slot of the coarsest level its deadline fits in. A
+	 * Timer moved down to the current minute goes to its slot on the first level,
+	 * which fires next.
+	 */
+	private void insert(Timer timer) {
+		long delta = timer.deadline - now;
+		if (delta <= 0) {
+			link(slots[slotOf(now, 0)], timer);
+			return;
+		}
+		long position = delta < SPAN ? timer.deadline : now + SPAN - 1;
+		int level = (63 - Long.numberOfLeadingZeros(position - now)) / SLOT_BITS;
+		link(slots[level * SLOTS + slotOf(position, level)], timer);
+	}
+
+	/**
+	 * Unlinks the pending Timer of a Task or wake-up of a ToDoList, if any.
+	 */
+	private void unlink(Timer timer) {
+		if (timer == null)
+			return;
+		timer.prev.next = timer.next;
+		timer.next.prev = timer.prev;
+		timer.prev = null;
+		timer.next = null;
+		if (timer.task != null)
+			timer.task.setTimer(null);
+		else
+			timer.list.setWakeup(null);
+		size--;
+	}
+
+	/**
+	 * Moves every Timer of the slot down to the finer levels.
+	 */
+	private void cascade(Timer head) {
+		Timer timer = head.next;
+		head.next = head;
+		head.prev = head;
+		while (timer != head) {
+			Timer next = timer.next;
+			insert(timer);
+			timer = next;
+		}
+	}
+
+	/**
+	 * Fires every Timer of the slot, emptying it.
+	 */
+	private void fire(Timer head, ModelEvent.Type type, List<ModelEvent> events, List<ToDoList> woken) {
+		while (head.next != head) {
+			Timer timer = head.next;
+			unlink(timer);
+			if (timer.task != null)
+				events.add(ModelEvent.task(type, timer.list.getName(), timer.task.getId()));
+			else
+				woken.add(timer.list);
+		}
+	}
+
+	private static void link(Timer head, Timer timer) {
+		timer.prev = head.prev;
+		timer.next = head;
+		head.prev.next = timer;
+		head.prev = timer;
+	}
+
+	private static int slotOf(long minute, int level) {
+		return (int) (minute >>> (SLOT_BITS * level)) & (SLOTS - 1);
+	}
+}
@@ -9,7 +9,7 @@ public class DeadlineSorter implements Comparator<Task> {
 
 	@Override
 	public int compare(Task task1, Task task2) {
-		return task1.getDeadline().compareTo(task2.getDeadline());
+		return Long.compare(task1.getDeadlineMinute(), task2.getDeadlineMinute());
 	}
 
 }
@@ -0,0 +1,222 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+/**
+ * Converts deadlines between the "MM/DD/YYYY HR:MN" text typed by the user and
+ * the primitive form Tasks store them in: the number of minutes since
+ * 01/01/1970 00:00, counted in local time. Being counted in local time, a
+ * deadline means the same wall-clock time whatever the time zone it is read in,
+ * and the order of two deadlines is the order of their minutes.
+ *
+ * Parsing and formatting work on the characters directly, with the calendar
+ * arithmetic done on primitives, so neither allocates anything besides the
+ * String a deadline may be formatted to.
+ */
+public final class Deadlines {
+
+	/**
+	 * The deadline of a Task that has none, sorting before every real deadline.
+	 */
+	public static final long NONE = Long.MIN_VALUE;
+
+	/**
+	 * Length of a deadline in text form.
+	 */
+	public static final int LENGTH = 16;
+
+	private static final int MINUTES_PER_DAY = 24 * 60;
+	/**
+	 * Days from 03/01/0000 to 01/01/1970 in the proleptic Gregorian calendar.
+	 */
+	private static final long EPOCH_DAY_OFFSET = 719468;
+	private static final long DAYS_PER_ERA = 146097;
+	/**
+	 * Range of the deadlines whose year has four digits, 01/01/0000 00:00
+	 * included to 01/01/10000 00:00 excluded.
+	 */
+	private static final long FIRST = epochDay(0, 1, 1) * MINUTES_PER_DAY;
+	private static final long END = epochDay(10000, 1, 1) * MINUTES_PER_DAY;
+
+	private Deadlines() {
+	}
+
+	/**
+	 * Parses a deadline typed as "MM/DD/YYYY HR:MN", or Task.NO_DEADLINE. Like
+	 * the Date constructor it replaces, fields past their range roll over into the
+	 * next one, so 13/01/2024 is read as 01/01/2025, as long as the year keeps
+	 * four digits so that the deadline can be formatted again.
+	 *
+	 * @param text the deadline as text
+	 * @return the deadline in minutes, or NONE
+	 * @throws IllegalArgumentException if the text is not a deadline
+	 */
+	public static long parse(CharSequence text) {
+		if (text.length() != LENGTH)
+			throw new IllegalArgumentException("Deadline is not of the form MM/DD/YYYY HR:MN: " + text);
+		if (isNone(text))
+			return NONE;
+		separator(text, 2, '/');
+		separator(text, 5, '/');
+		separator(text, 10, ' ');
+		separator(text, 13, ':');
+		int month = digits(text, 0, 2);
+		int day = digits(text, 3, 2);
+		long year = digits(text, 6, 4);
+		int hours = digits(text, 11, 2);
+		int minutes = digits(text, 14, 2);
+		year += Math.floorDiv(month - 1, 12);
+		month = Math.floorMod(month - 1, 12) + 1;
+		long deadline = (epochDay(year, month, 1) + day - 1) * MINUTES_PER_DAY + hours * 60 + minutes;
+		if (deadline < FIRST || deadline >= END)
+			throw new IllegalArgumentException("Deadline year does not have four digits: " + text);
+		return deadline;
+	}
+
+	/**
+	 * Writes the deadline as "MM/DD/YYYY HR:MN", or as Task.NO_DEADLINE, into the
+	 * passed array.
+	 *
+	 * @param deadline the deadline in minutes, or NONE
+	 * @param into     array to write the LENGTH characters to
+	 * @param offset   index of the first character to write
+	 * @return index following the last character written
+	 * @throws IllegalArgumentException if the year of the deadline does not have
+	 *                                  four digits
+	 */
+	public static int format(long deadline, char[] into, int offset) {
+		if (deadline == NONE) {
+			Task.NO_DEADLINE.getChars(0, LENGTH, into, offset);
+			return offset + LENGTH;
+		}
+		long day = Math.floorDiv(deadline, MINUTES_PER_DAY);
+		int minuteOfDay = Math.floorMod(deadline, MINUTES_PER_DAY);
+
+		// civil date of the epoch day, counting years from March so leap days end them
+		long shifted = day + EPOCH_DAY_OFFSET;
+		long era = Math.floorDiv(shifted, DAYS_PER_ERA);
+		long dayOfEra = shifted - era * DAYS_PER_ERA;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long monthIndex = (5 * dayOfYear + 2) / 153;
+		int dayOfMonth = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+		int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		if (year < 0 || year > 9999)
+			throw new IllegalArgumentException("Deadline year " + year + " does not have four digits");
+
+		put(month, 2, into, offset);
+		into[offset + 2] = '/';
+		put(dayOfMonth, 2, into, offset + 3);
+		into[offset + 5] = '/';
+		put((int) year, 4, into, offset + 6);
+		into[offset + 10] = ' ';
+		put(minuteOfDay / 60, 2, into, offset + 11);
+		into[offset + 13] = ':';
+		put(minuteOfDay % 60, 2, into, offset + 14);
+		return offset + LENGTH;
+	}
+
+	/**
+	 * Formats the deadline as "MM/DD/YYYY HR:MN", or as Task.NO_DEADLINE.
+	 *
+	 * @param deadline the deadline in minutes, or NONE
+	 * @return the deadline as text
+	 */
+	public static String format(long deadline) {
+		if (deadline == NONE)
+			return Task.NO_DEADLINE;
+		char[] text = new char[LENGTH];
+		format(deadline, text, 0);
+		return new String(text);
+	}
+
+	/**
+	 * Returns the current minute in the default time zone.
+	 *
+	 * @return the current time as a deadline
+	 */
+	public static long now() {
+		return Math.floorDiv(LocalDateTime.now().toEpochSecond(ZoneOffset.UTC), 60);
+	}
+
+	/**
+	 * Converts a deadline to the Date it falls on in the default time zone. A
+	 * missing deadline gives 12/31/1899 00:00, the Date used for it before.
+	 *
+	 * @param deadline the deadline in minutes, or NONE
+	 * @return the deadline as a Date
+	 */
+	public static Date toDate(long deadline) {
+		LocalDateTime time = deadline == NONE ? LocalDateTime.of(1899, 12, 31, 0, 0)
+				: LocalDateTime.ofEpochSecond(deadline * 60, 0, ZoneOffset.UTC);
+		return Date.from(time.atZone(ZoneId.systemDefault()).toInstant());
+	}
+
+	/**
+	 * Converts a Date to the deadline it stands for in the default time zone,
+	 * dropping seconds.
+	 *
+	 * @param date the Date to convert
+	 * @return the deadline in minutes
+	 */
+	public static long fromDate(Date date) {
+		LocalDateTime time = LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+		return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+	}
+
+	/**
+	 * Returns the number of days from 01/01/1970 to the passed date.
+	 */
+	private static long epochDay(long year, int month, int day) {
+		if (month <= 2)
+			year--;
+		long era = Math.floorDiv(year, 400);
+		long yearOfEra = year - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * DAYS_PER_ERA + dayOfEra - EPOCH_DAY_OFFSET;
+	}
+
+	private static boolean isNone(CharSequence text) {
+		for (int i = 0; i < LENGTH; i++)
+			if (text.charAt(i) != Task.NO_DEADLINE.charAt(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Checks that the character at index is the separator expected there.
+	 */
+	private static void separator(CharSequence text, int index, char expected) {
+		if (text.charAt(index) != expected)
+			throw new IllegalArgumentException("Deadline is not of the form MM/DD/YYYY HR:MN: " + text);
+	}
+
+	/**
+	 * Reads the decimal number made of the count digits starting at offset.
+	 */
+	private static int digits(CharSequence text, int offset, int count) {
+		int value = 0;
+		for (int i = offset; i < offset + count; i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9')
+				throw new IllegalArgumentException("Deadline is not of the form MM/DD/YYYY HR:MN: " + text);
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * Writes the value as count decimal digits, padded with zeros.
+	 */
+	private static void put(int value, int count, char[] into, int offset) {
+		for (int i = offset + count - 1; i >= offset; i--) {
+			into[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates a TaskQuery over every ToDoList of a Model on a ForkJoinPool. The
+ * lists are split in halves until each part is small enough, and every part
+ * queries its lists on its own thread. Each list gives the first Tasks matching
+ * the query, walked in its order straight from the indexes of the list, as many
+ * as the whole result holds at most: none of the first Tasks over all lists can
+ * come later than that in its own list. The pages of the lists are then merged
+ * k ways into the result.
+ *
+ * Lists whose statistics show that none of their Tasks match are skipped
+ * without looking at their Tasks, so they are not loaded if they were not.
+ */
+final class GlobalQuery extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Number of lists a task queries itself rather than splitting them further.
+	 */
+	private static final int THRESHOLD = 16;
+
+	private final ToDoList[] lists;
+	private final TaskQuery query;
+	/*
+	 * Page of each list, left null for the lists skipped.
+	 */
+	private final TaskPage<Task>[] pages;
+	private final int from;
+	private final int to;
+
+	private GlobalQuery(ToDoList[] lists, TaskQuery query, TaskPage<Task>[] pages, int from, int to) {
+		this.lists = lists;
+		this.query = query;
+		this.pages = pages;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Returns the first Tasks of every ToDoList matching the query, in its order.
+	 * Tasks with the same deadline or Priority, and all Tasks in insertion order,
+	 * are listed by the name of their list, then in the order of their list.
+	 *
+	 * @param lists the ToDoLists by name
+	 * @param query the query, without a cursor
+	 * @param pool  the pool to query the lists on
+	 * @return the matching Tasks, at most the limit of the query
+	 */
+	static List<ListedTask> run(Map<String, ToDoList> lists, TaskQuery query, ForkJoinPool pool) {
+		if (query.getCursor() != null)
+			throw new IllegalArgumentException("A query of every list starts from the first Task");
+		List<String> names = new ArrayList<>(lists.size());
+		List<ToDoList> found = new ArrayList<>(lists.size());
+		for (Map.Entry<String, ToDoList> entry : lists.entrySet()) {
+			names.add(entry.getKey());
+			found.add(entry.getValue());
+		}
+		ToDoList[] all = found.toArray(new ToDoList[0]);
+		@SuppressWarnings("unchecked")
+		TaskPage<Task>[] pages = (TaskPage<Task>[]) new TaskPage<?>[all.length];
+		pool.invoke(new GlobalQuery(all, query, pages, 0, all.length));
+		return merge(names, pages, query);
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from <= THRESHOLD) {
+			for (int i = from; i < to; i++)
+				if (query.mayMatch(lists[i].getStats()))
+					pages[i] = lists[i].query(query);
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		invokeAll(new GlobalQuery(lists, query, pages, from, middle),
+				new GlobalQuery(lists, query, pages, middle, to));
+	}
+
+	/**
+	 * Merges the pages of the lists, each already in the order of the query, by
+	 * repeatedly taking the first Task left among them.
+	 */
+	private static List<ListedTask> merge(List<String> names, TaskPage<Task>[] pages, TaskQuery query) {
+		List<Head> heads = new ArrayList<>();
+		for (int i = 0; i < pages.length; i++)
+			if (pages[i] != null && !pages[i].getTasks().isEmpty())
+				heads.add(new Head(names.get(i), pages[i].getTasks(), query));
+		PriorityQueue<Head> queue = new PriorityQueue<>(heads);
+		List<ListedTask> result = new ArrayList<>(Math.min(query.getLimit(), 64));
+		while (result.size() < query.getLimit() && !queue.isEmpty()) {
+			Head head = queue.poll();
+			result.add(new ListedTask(head.listName, head.tasks.get(head.position)));
+			if (head.advance())
+				queue.add(head);
+		}
+		return result;
+	}
+
+	/**
+	 * The first Task of a page not merged yet.
+	 */
+	private static final class Head implements Comparable<Head> {
+		private final String listName;
+		private final List<Task> tasks;
+		private final TaskQuery query;
+		private int position;
+		private long key;
+
+		Head(String listName, List<Task> tasks, TaskQuery query) {
+			this.listName = listName;
+			this.tasks = tasks;
+			this.query = query;
+			this.key = query.keyOf(tasks.get(0));
+		}
+
+		/**
+		 * Moves to the next Task of the page, returning false if there is none.
+		 */
+		boolean advance() {
+			if (++position == tasks.size())
+				return false;
+			key = query.keyOf(tasks.get(position));
+			return true;
+		}
+
+		@Override
+		public int compareTo(Head other) {
+			int byKey = Long.compare(key, other.key);
+			return byKey != 0 ? byKey : listName.compareTo(other.listName);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the Tasks of the ToDoLists of a Model within a memory budget by evicting
+ * the lists used least recently. Every time a list is loaded, the Tasks of the
+ * loaded lists are counted at an estimated BYTES_PER_TASK each, and lists are
+ * evicted in order of their last use until they fit in the budget again.
+ *
+ * A list in use by any thread, one that changed since it was last saved, and one
+ * with a Task about to be due are not evicted, so the Tasks in memory can exceed
+ * the budget for as long as that lasts.
+ */
+final class ListCache {
+
+	/**
+	 * Estimated memory taken by a loaded Task with its indexes and statistics.
+	 */
+	static final long BYTES_PER_TASK = 512;
+
+	/**
+	 * ToDoLists of the Model.
+	 */
+	private final Collection<ToDoList> lists;
+	/**
+	 * Called after lists were evicted, to drop what still refers to their Tasks.
+	 */
+	private final Runnable onEvict;
+	private volatile long budget;
+
+	/**
+	 * Creates the cache of the passed ToDoLists.
+	 *
+	 * @param lists   the ToDoLists, a live view of those of the Model
+	 * @param budget  memory the loaded Tasks may take, in bytes
+	 * @param onEvict called after lists were evicted
+	 */
+	ListCache(Collection<ToDoList> lists, long budget, Runnable onEvict) {
+		this.lists = lists;
+		this.budget = budget;
+		this.onEvict = onEvict;
+	}
+
+	/**
+	 * Returns the default memory budget: the tdl.memoryBudget system property if
+	 * set, in bytes, or half the maximum heap.
+	 *
+	 * @return the budget, in bytes
+	 */
+	static long defaultBudget() {
+		return Long.getLong("tdl.memoryBudget", Runtime.getRuntime().maxMemory() / 2);
+	}
+
+	/**
+	 * Returns the memory the loaded Tasks may take.
+	 *
+	 * @return the budget, in bytes
+	 */
+	long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Sets the memory the loaded Tasks may take, evicting lists if they take more.
+	 *
+	 * @param budget the budget, in bytes
+	 */
+	void setBudget(long budget) {
+		this.budget = budget;
+		trim(null);
+	}
+
+	/**
+	 * Called once the Tasks of a ToDoList were loaded, to evict other lists if the
+	 * loaded Tasks take more than the budget. The list loaded is never evicted
+	 * here, so that it is not read again right away.
+	 *
+	 * @param list the ToDoList loaded
+	 */
+	void loaded(ToDoList list) {
+		trim(list);
+	}
+
+	/**
+	 * Evicts the ToDoLists used least recently, other than the passed one, until
+	 * the loaded Tasks fit in the budget, or until no list can be evicted.
+	 */
+	private synchronized void trim(ToDoList keep) {
+		long limit = budget / BYTES_PER_TASK;
+		long loadedTasks = 0;
+		List<ToDoList> loaded = new ArrayList<>();
+		for (ToDoList list : lists) {
+			if (list.isLoaded()) {
+				loaded.add(list);
+				loadedTasks += list.getStats().getTaskCount();
+			}
+		}
+		if (loadedTasks <= limit)
+			return;
+		loaded.sort(Comparator.comparingLong(ToDoList::getLastAccess));
+		boolean evicted = false;
+		for (ToDoList list : loaded) {
+			if (loadedTasks <= limit)
+				break;
+			long size = list.getStats().getTaskCount();
+			if (list != keep && list.evict()) {
+				loadedTasks -= size;
+				evicted = true;
+			}
+		}
+		if (evicted)
+			onEvict.run();
+	}
+}
@@ -0,0 +1,159 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable copy of a ToDoList at one point in time. The snapshot is cached by
+ * its ToDoList until the list changes, so it is shared by every ModelSnapshot
+ * taken in the meantime, and it reuses the TaskSnapshots of the Tasks that did
+ * not change.
+ *
+ * The snapshot of a ToDoList that is not loaded, taken for a save, is a stub
+ * holding its name, change stamp and counts but no Tasks.
+ */
+public final class ListSnapshot {
+
+	private final String name;
+	/**
+	 * Tasks in insertion order, or null for a stub.
+	 */
+	private final TaskSnapshot[] tasks;
+	private final int size;
+	private final int completed;
+	private final long changeStamp;
+	/**
+	 * Tasks ordered by id, and their ids, built on the first lookup by id.
+	 */
+	private volatile TaskSnapshot[] byId;
+	private volatile long[] ids;
+
+	/**
+	 * Creates the snapshot of a ToDoList.
+	 *
+	 * @param name  name of the ToDoList
+	 * @param tasks       snapshots of its Tasks in insertion order, owned by the
+	 *                    snapshot from now on
+	 * @param changeStamp change stamp of the ToDoList
+	 */
+	ListSnapshot(String name, TaskSnapshot[] tasks, long changeStamp) {
+		this.name = name;
+		this.tasks = tasks;
+		this.size = tasks.length;
+		this.changeStamp = changeStamp;
+		int done = 0;
+		for (TaskSnapshot task : tasks)
+			if (task.isComplete())
+				done++;
+		this.completed = done;
+	}
+
+	/**
+	 * Creates the stub snapshot of a ToDoList that is not loaded.
+	 *
+	 * @param name        name of the ToDoList
+	 * @param size        number of its Tasks
+	 * @param completed   number of its completed Tasks
+	 * @param changeStamp change stamp of the ToDoList
+	 */
+	ListSnapshot(String name, int size, int completed, long changeStamp) {
+		this.name = name;
+		this.tasks = null;
+		this.size = size;
+		this.completed = completed;
+		this.changeStamp = changeStamp;
+	}
+
+	/**
+	 * Returns the name of the ToDoList
+	 *
+	 * @return name of the ToDoList
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the change stamp the ToDoList had when the snapshot was taken.
+	 *
+	 * @return the change stamp of the ToDoList
+	 */
+	public long getChangeStamp() {
+		return changeStamp;
+	}
+
+	/**
+	 * Returns the number of Tasks in the ToDoList.
+	 *
+	 * @return number of Tasks
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether the snapshot holds the Tasks, rather than being the stub of
+	 * a ToDoList that was not loaded.
+	 *
+	 * @return false for a stub
+	 */
+	public boolean isLoaded() {
+		return tasks != null;
+	}
+
+	/**
+	 * Returns the number of completed Tasks in the ToDoList.
+	 *
+	 * @return number of completed Tasks
+	 */
+	public int getCompleted() {
+		return completed;
+	}
+
+	/**
+	 * Returns the Tasks of the ToDoList in insertion order.
+	 *
+	 * @return read-only List of the Tasks
+	 */
+	public List<TaskSnapshot> getTasks() {
+		checkLoaded();
+		return Collections.unmodifiableList(Arrays.asList(tasks));
+	}
+
+	/**
+	 * Returns the Task with the passed id.
+	 *
+	 * @param id id of the Task
+	 * @return the Task, or null if there was none with that id
+	 */
+	public TaskSnapshot getTask(long id) {
+		checkLoaded();
+		long[] sortedIds = ids;
+		if (sortedIds == null)
+			sortedIds = indexById();
+		int index = Arrays.binarySearch(sortedIds, id);
+		return index < 0 ? null : byId[index];
+	}
+
+	private void checkLoaded() {
+		if (tasks == null)
+			throw new IllegalStateException("List " + name + " was not loaded");
+	}
+
+	/**
+	 * Sorts the Tasks by id for getTask. Racing threads may both sort them, which
+	 * gives them the same result.
+	 */
+	private long[] indexById() {
+		TaskSnapshot[] sorted = tasks.clone();
+		Arrays.sort(sorted, Comparator.comparingLong(TaskSnapshot::getId));
+		long[] sortedIds = new long[sorted.length];
+		for (int i = 0; i < sorted.length; i++)
+			sortedIds[i] = sorted[i].getId();
+		byId = sorted;
+		ids = sortedIds;
+		return sortedIds;
+	}
+}
@@ -0,0 +1,31 @@
+package model;
+
+import java.io.IOException;
+
+/**
+ * Storage the Tasks of the ToDoLists of a TDLModel are read back from once they
+ * were left unloaded or evicted to save memory. A ToDoList is only ever left
+ * unloaded while the store holds a copy of it that is still current, that is,
+ * taken while the list had the change stamp it still has.
+ */
+public interface ListStore {
+
+	/**
+	 * Reads the saved copy of a ToDoList.
+	 *
+	 * @param listName name of the ToDoList
+	 * @return a new ToDoList holding the saved Tasks
+	 * @throws IOException if the copy could not be read
+	 */
+	ToDoList load(String listName) throws IOException;
+
+	/**
+	 * Returns whether the store holds a copy of the named ToDoList taken while it
+	 * had the passed change stamp, so that the list can be read back as it is.
+	 *
+	 * @param listName    name of the ToDoList
+	 * @param changeStamp its current change stamp
+	 * @return true if the saved copy is current
+	 */
+	boolean isSaved(String listName, long changeStamp);
+}
@@ -0,0 +1,164 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * What a ToDoList has to know of its Tasks while they are not loaded: its name,
+ * the greatest id among them, how many there are of each Priority and how many
+ * of those are completed, and how many incomplete Tasks are due at each minute.
+ * Saved next to the Tasks, it lets a ToDoList be added to the Model, counted in
+ * its statistics and scheduled for its deadlines without reading its Tasks.
+ */
+public final class ListSummary {
+
+	private static final int PRIORITIES = Priority.values().length;
+
+	private final String name;
+	private final long lastId;
+	/**
+	 * Number of Tasks of each Priority, by ordinal.
+	 */
+	private final long[] counts;
+	/**
+	 * Number of completed Tasks of each Priority, by ordinal.
+	 */
+	private final long[] completedCounts;
+	/**
+	 * Minutes the incomplete Tasks are due at, in ascending order, and the number
+	 * of Tasks due at each of them.
+	 */
+	private final long[] deadlines;
+	private final int[] deadlineCounts;
+
+	/**
+	 * Creates the summary of a ToDoList.
+	 *
+	 * @param name            name of the ToDoList
+	 * @param lastId          greatest generated id of its Tasks
+	 * @param counts          number of Tasks of each Priority, by ordinal
+	 * @param completedCounts number of completed Tasks of each Priority, by ordinal
+	 * @param deadlines       distinct minutes the incomplete Tasks are due at, in
+	 *                        ascending order
+	 * @param deadlineCounts  number of incomplete Tasks due at each of those minutes
+	 */
+	public ListSummary(String name, long lastId, long[] counts, long[] completedCounts, long[] deadlines,
+			int[] deadlineCounts) {
+		if (counts.length != PRIORITIES || completedCounts.length != PRIORITIES
+				|| deadlines.length != deadlineCounts.length)
+			throw new IllegalArgumentException("Inconsistent summary of " + name);
+		this.name = name;
+		this.lastId = lastId;
+		this.counts = counts.clone();
+		this.completedCounts = completedCounts.clone();
+		this.deadlines = deadlines.clone();
+		this.deadlineCounts = deadlineCounts.clone();
+	}
+
+	/**
+	 * Summarizes the passed Tasks of a ToDoList.
+	 *
+	 * @param name  name of the ToDoList
+	 * @param tasks its Tasks
+	 * @return the summary
+	 */
+	public static ListSummary of(String name, Iterable<TaskSnapshot> tasks) {
+		long lastId = 0;
+		long[] counts = new long[PRIORITIES];
+		long[] completedCounts = new long[PRIORITIES];
+		long[] due = new long[16];
+		int dueCount = 0;
+		for (TaskSnapshot task : tasks) {
+			lastId = Math.max(lastId, task.getId());
+			int priority = task.getPriority().ordinal();
+			counts[priority]++;
+			if (task.isComplete()) {
+				completedCounts[priority]++;
+			} else if (task.hasDeadline()) {
+				if (dueCount == due.length)
+					due = Arrays.copyOf(due, dueCount * 2);
+				due[dueCount++] = task.getDeadlineMinute();
+			}
+		}
+		Arrays.sort(due, 0, dueCount);
+		long[] deadlines = new long[dueCount];
+		int[] deadlineCounts = new int[dueCount];
+		int distinct = 0;
+		for (int i = 0; i < dueCount; i++) {
+			if (distinct > 0 && deadlines[distinct - 1] == due[i]) {
+				deadlineCounts[distinct - 1]++;
+			} else {
+				deadlines[distinct] = due[i];
+				deadlineCounts[distinct++] = 1;
+			}
+		}
+		return new ListSummary(name, lastId, counts, completedCounts, Arrays.copyOf(deadlines, distinct),
+				Arrays.copyOf(deadlineCounts, distinct));
+	}
+
+	/**
+	 * Returns the name of the ToDoList.
+	 *
+	 * @return name of the ToDoList
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the greatest generated id of the Tasks of the ToDoList.
+	 *
+	 * @return greatest id, 0 if there is none
+	 */
+	public long getLastId() {
+		return lastId;
+	}
+
+	/**
+	 * Returns the number of Tasks with the passed Priority.
+	 *
+	 * @param priority the Priority
+	 * @return number of Tasks with that Priority
+	 */
+	public long getTaskCount(Priority priority) {
+		return counts[priority.ordinal()];
+	}
+
+	/**
+	 * Returns the number of completed Tasks with the passed Priority.
+	 *
+	 * @param priority the Priority
+	 * @return number of completed Tasks with that Priority
+	 */
+	public long getCompletedCount(Priority priority) {
+		return completedCounts[priority.ordinal()];
+	}
+
+	/**
+	 * Returns the number of distinct minutes incomplete Tasks are due at.
+	 *
+	 * @return number of deadlines
+	 */
+	public int getDeadlineCount() {
+		return deadlines.length;
+	}
+
+	/**
+	 * Returns one of the minutes incomplete Tasks are due at, in ascending order.
+	 *
+	 * @param index index of the deadline, below getDeadlineCount()
+	 * @return the minute, as counted by Deadlines
+	 */
+	public long getDeadline(int index) {
+		return deadlines[index];
+	}
+
+	/**
+	 * Returns the number of incomplete Tasks due at one of the minutes.
+	 *
+	 * @param index index of the deadline, below getDeadlineCount()
+	 * @return number of Tasks due at getDeadline(index)
+	 */
+	public int getDueCount(int index) {
+		return deadlineCounts[index];
+	}
+}
@@ -0,0 +1,40 @@
+package model;
+
+/**
+ * A Task found by a query over every ToDoList, with the name of the list it was
+ * found in.
+ */
+public final class ListedTask {
+
+	private final String listName;
+	private final Task task;
+
+	/**
+	 * Pairs a Task with the name of its ToDoList.
+	 *
+	 * @param listName name of the ToDoList
+	 * @param task     the Task
+	 */
+	ListedTask(String listName, Task task) {
+		this.listName = listName;
+		this.task = task;
+	}
+
+	/**
+	 * Returns the name of the ToDoList the Task was found in.
+	 *
+	 * @return name of the ToDoList
+	 */
+	public String getListName() {
+		return listName;
+	}
+
+	/**
+	 * Returns the Task.
+	 *
+	 * @return the Task
+	 */
+	public Task getTask() {
+		return task;
+	}
+}
@@ -0,0 +1,124 @@
+package model;
+
+/**
+ * Describes one change made to the TDLModel, so that the view can update only
+ * what changed instead of re-reading every list and task.
+ */
+public final class ModelEvent {
+
+	/**
+	 * The kinds of changes the Model reports.
+	 */
+	public enum Type {
+		LIST_ADDED, LIST_RENAMED, LIST_REMOVED, TASK_ADDED, TASK_EDITED, TASK_COMPLETED, TASK_REMOVED,
+		/**
+		 * The deadline of an incomplete Task was reached.
+		 */
+		TASK_DUE,
+		/**
+		 * An incomplete Task was found with a deadline that had already passed,
+		 * such as when it was loaded or given a past deadline.
+		 */
+		TASK_OVERDUE,
+		/**
+		 * The Tasks of a list that is not loaded could not be read when its next
+		 * deadline came near. Reading them is tried again every minute, and the
+		 * deadlines that pass meanwhile are reported as TASK_OVERDUE once they are
+		 * read.
+		 */
+		LIST_UNAVAILABLE,
+		/**
+		 * Too much changed to be described event by event, everything has to be
+		 * read again.
+		 */
+		RELOADED
+	}
+
+	private final Type type;
+	private final String listName;
+	private final String oldListName;
+	private final long taskId;
+
+	private ModelEvent(Type type, String listName, String oldListName, long taskId) {
+		this.type = type;
+		this.listName = listName;
+		this.oldListName = oldListName;
+		this.taskId = taskId;
+	}
+
+	static ModelEvent listAdded(String listName) {
+		return new ModelEvent(Type.LIST_ADDED, listName, null, 0);
+	}
+
+	static ModelEvent listRenamed(String oldName, String newName) {
+		return new ModelEvent(Type.LIST_RENAMED, newName, oldName, 0);
+	}
+
+	static ModelEvent listRemoved(String listName) {
+		return new ModelEvent(Type.LIST_REMOVED, listName, null, 0);
+	}
+
+	static ModelEvent listUnavailable(String listName) {
+		return new ModelEvent(Type.LIST_UNAVAILABLE, listName, null, 0);
+	}
+
+	static ModelEvent task(Type type, String listName, long taskId) {
+		return new ModelEvent(type, listName, null, taskId);
+	}
+
+	static ModelEvent reloaded() {
+		return new ModelEvent(Type.RELOADED, null, null, 0);
+	}
+
+	/**
+	 * Returns the kind of change.
+	 * 
+	 * @return Type of the change
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the name of the ToDoList that changed. For a renamed list this is the
+	 * new name.
+	 * 
+	 * @return name of the ToDoList, or null for RELOADED
+	 */
+	public String getListName() {
+		return listName;
+	}
+
+	/**
+	 * Returns the name a renamed ToDoList had before.
+	 * 
+	 * @return old name of the ToDoList, or null if the event is not LIST_RENAMED
+	 */
+	public String getOldListName() {
+		return oldListName;
+	}
+
+	/**
+	 * Returns the id of the Task that changed.
+	 * 
+	 * @return id of the Task, only meaningful for TASK_ events
+	 */
+	public long getTaskId() {
+		return taskId;
+	}
+
+	@Override
+	public String toString() {
+		switch (type) {
+		case RELOADED:
+			return type.toString();
+		case LIST_RENAMED:
+			return type + "(" + oldListName + " -> " + listName + ")";
+		case LIST_ADDED:
+		case LIST_REMOVED:
+			return type + "(" + listName + ")";
+		default:
+			return type + "(" + listName + ", " + taskId + ")";
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+/**
+ * Delivers the changes made to the TDLModel to its subscribers. Each item is the
+ * list of events of one change, or of one committed batch of changes.
+ *
+ * Items are delivered on a thread changing the Model, as long as the subscriber
+ * has requested them. Items a subscriber has not requested yet are kept in a
+ * backlog of bounded size; when the backlog is full it is replaced by a single
+ * RELOADED event telling the subscriber to read everything again, so a slow
+ * subscriber never makes the backlog grow without bounds. Changes made while
+ * that event is waiting are covered by it and are not queued.
+ */
+class ModelEventPublisher implements Flow.Publisher<List<ModelEvent>> {
+
+	/**
+	 * Number of items kept for a subscriber that has not requested them.
+	 */
+	private final int capacity;
+
+	private final List<EventSubscription> subscriptions;
+
+	/**
+	 * Creates a publisher keeping at most capacity undelivered items per
+	 * subscriber.
+	 * 
+	 * @param capacity size of the backlog of each subscriber
+	 */
+	ModelEventPublisher(int capacity) {
+		this.capacity = capacity;
+		this.subscriptions = new CopyOnWriteArrayList<>();
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super List<ModelEvent>> subscriber) {
+		EventSubscription subscription = new EventSubscription(subscriber);
+		subscriptions.add(subscription);
+		subscriber.onSubscribe(subscription);
+	}
+
+	/**
+	 * Returns whether anyone is subscribed.
+	 * 
+	 * @return true if there is at least one subscriber
+	 */
+	boolean hasSubscribers() {
+		return !subscriptions.isEmpty();
+	}
+
+	/**
+	 * Delivers the events to every subscriber, or adds them to its backlog.
+	 * 
+	 * @param events events of one change
+	 */
+	void publish(List<ModelEvent> events) {
+		for (EventSubscription subscription : subscriptions)
+			subscription.offer(events);
+	}
+
+	private class EventSubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super List<ModelEvent>> subscriber;
+		private final ArrayDeque<List<ModelEvent>> backlog;
+		private long demand;
+		private boolean cancelled;
+		/**
+		 * Whether the backlog only holds a RELOADED event.
+		 */
+		private boolean reloadPending;
+		/**
+		 * Set while items are being delivered, so that a subscriber requesting more
+		 * from onNext does not start a nested delivery.
+		 */
+		private boolean delivering;
+
+		EventSubscription(Flow.Subscriber<? super List<ModelEvent>> subscriber) {
+			this.subscriber = subscriber;
+			this.backlog = new ArrayDeque<>();
+		}
+
+		synchronized void offer(List<ModelEvent> events) {
+			if (cancelled || reloadPending)
+				return;
+			if (backlog.size() >= capacity) {
+				backlog.clear();
+				backlog.add(List.of(ModelEvent.reloaded()));
+				reloadPending = true;
+			} else {
+				backlog.add(events);
+			}
+			drain();
+		}
+
+		@Override
+		public synchronized void request(long n) {
+			if (cancelled)
+				return;
+			if (n <= 0) {
+				cancel();
+				subscriber.onError(new IllegalArgumentException("Requested " + n + " items"));
+				return;
+			}
+			demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+			drain();
+		}
+
+		@Override
+		public synchronized void cancel() {
+			cancelled = true;
+			backlog.clear();
+			reloadPending = false;
+			subscriptions.remove(this);
+		}
+
+		private void drain() {
+			if (delivering)
+				return;
+			delivering = true;
+			try {
+				while (demand > 0 && !backlog.isEmpty() && !cancelled) {
+					demand--;
+					reloadPending = false;
+					subscriber.onNext(backlog.poll());
+				}
+			} finally {
+				delivering = false;
+			}
+		}
+	}
+}
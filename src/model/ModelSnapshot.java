@@ -0,0 +1,56 @@
+package model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable, consistent view of every ToDoList of the TDLModel at one point in
+ * time. Views, exports and saves can read it from any thread without locking,
+ * while the Model keeps changing.
+ */
+public final class ModelSnapshot {
+
+	private final long version;
+	private final Map<String, ListSnapshot> lists;
+
+	/**
+	 * Creates the snapshot of the Model.
+	 *
+	 * @param version number of changes made to the Model before the snapshot
+	 * @param lists   snapshots of the ToDoLists, owned by the snapshot from now on
+	 */
+	ModelSnapshot(long version, LinkedHashMap<String, ListSnapshot> lists) {
+		this.version = version;
+		this.lists = Collections.unmodifiableMap(lists);
+	}
+
+	/**
+	 * Returns the number of changes made to the Model before this snapshot was
+	 * taken. Snapshots with the same version hold the same data.
+	 *
+	 * @return version of the snapshot
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns every ToDoList by name.
+	 *
+	 * @return read-only Map of the ToDoLists
+	 */
+	public Map<String, ListSnapshot> getAllLists() {
+		return lists;
+	}
+
+	/**
+	 * Returns the ToDoList that has the passed name.
+	 *
+	 * @param listName name of the ToDoList
+	 * @return the ToDoList, or null if there was none with that name
+	 */
+	public ListSnapshot getList(String listName) {
+		return lists.get(listName);
+	}
+}
@@ -0,0 +1,26 @@
+package model;
+
+/**
+ * The priority of a Task, declared from the most to the least urgent so that the
+ * ordinal of a priority is its rank.
+ */
+public enum Priority {
+	HIGH, MEDIUM, LOW;
+
+	/**
+	 * Parses the priority typed by the user. "HIGH" and "LOW" are recognized
+	 * regardless of case and anything else is considered MEDIUM.
+	 * 
+	 * @param priority the priority as a String
+	 * @return the matching Priority
+	 */
+	public static Priority parse(String priority) {
+		if (priority == null)
+			return MEDIUM;
+		if (priority.equalsIgnoreCase("HIGH"))
+			return HIGH;
+		if (priority.equalsIgnoreCase("LOW"))
+			return LOW;
+		return MEDIUM;
+	}
+}
@@ -0,0 +1,45 @@
+package model;
+
+/**
+ * Shares one instance of each String that Tasks keep repeating, such as names
+ * and descriptions used by many Tasks, instead of keeping a copy per Task.
+ *
+ * The pool is a fixed number of slots, each holding the last String hashed to
+ * it. Looking up a String returns the instance in its slot when it is equal,
+ * and otherwise puts the String there, so frequent values stay pooled while the
+ * pool never grows and never keeps more than SLOTS Strings alive. Unlike
+ * String.intern it costs no more than a hash and a comparison, and values that
+ * are no longer used are dropped as soon as they are replaced.
+ *
+ * Thread-safe without locking: a String is immutable, so a thread reading a
+ * slot sees either a complete String or an older one, and two threads replacing
+ * the same slot only cost a missed share.
+ */
+final class StringPool {
+
+	private static final int SLOTS = 1 << 13;
+
+	private static final String[] POOL = new String[SLOTS];
+
+	private StringPool() {
+	}
+
+	/**
+	 * Returns the pooled instance equal to the passed String, pooling it if there
+	 * is none.
+	 *
+	 * @param value the String, or null
+	 * @return an equal String, or null
+	 */
+	static String pool(String value) {
+		if (value == null)
+			return null;
+		int hash = value.hashCode();
+		int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+		String pooled = POOL[slot];
+		if (value.equals(pooled))
+			return pooled;
+		POOL[slot] = value;
+		return value;
+	}
+}
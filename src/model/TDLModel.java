@@ -1,166 +1,824 @@
 package model;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Observable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 
 /**
  * @author Kevin Kankia
  * Acts as the main model of the Project. Uses objects of types Task and
  * ToDoList to store all of its data. Is the main point of contact for the
- * Controller. Also notifies the View of changes made in the data so View can
- * update itself.
+ * Controller. Also publishes the changes made in the data as ModelEvents so the
+ * View can update only what changed.
+ *
+ * The Model can be shared by several Controllers running on different threads.
+ * Changes to the set of lists are serialized by a structure lock, while changes
+ * to the Tasks of a ToDoList only lock that ToDoList, so Tasks of different lists
+ * can be changed in parallel.
+ *
+ * Readers that need a consistent view of all the data, such as saves and
+ * exports, use snapshot() instead, which returns an immutable ModelSnapshot that
+ * can be read without any locking.
+ *
+ * Once a ListStore is attached, the Tasks of the lists it holds a current copy
+ * of can be evicted from memory, and ToDoLists read from it can be added without
+ * their Tasks. A ListCache evicts the lists used least recently whenever the
+ * loaded Tasks take more than the memory budget, and any use of an evicted list
+ * reads its Tasks back.
  */
-public class TDLModel extends Observable {
+public class TDLModel implements Flow.Publisher<List<ModelEvent>> {
+
+	/*
+	 * Number of changes kept for a subscriber that has not requested them, and
+	 * number of events a batch collects before it is reported as RELOADED.
+	 */
+	private static final int EVENT_BACKLOG = 10000;
 
 	/*
 	 * To store the multiple ToDoLists while also giving the Controller the ability
 	 * to point out which ToDoList is to be altered without having to store the
 	 * ToDoLists.
 	 */
-	private HashMap<String, ToDoList> lists;
+	private ConcurrentHashMap<String, ToDoList> lists;
+
+	/*
+	 * Taken for writing by changes to the set of lists and for reading by changes
+	 * to the Tasks of a list, so a list can not be renamed or removed while one of
+	 * its Tasks is being changed.
+	 */
+	private ReentrantReadWriteLock structureLock;
+
+	/*
+	 * Delivers the changes to the subscribers.
+	 */
+	private ModelEventPublisher publisher;
+
+	/*
+	 * Items waiting for the view, queued in the order of their changes, and the
+	 * lock of the thread delivering them.
+	 */
+	private Queue<List<ModelEvent>> outbox;
+	private ReentrantLock delivery;
+
+	/*
+	 * The batch open on each thread, if any. The view is only notified once the
+	 * outermost batch of a thread is committed.
+	 */
+	private ThreadLocal<Batch> batches;
+
+	/*
+	 * Receives every change made to the Model, if set.
+	 */
+	private volatile ChangeLog changeLog;
+
+	/*
+	 * Number of changes made to the Model, incremented by every change while it
+	 * still holds its locks.
+	 */
+	private AtomicLong version;
+
+	/*
+	 * Last snapshot taken, still current while its version is the version of the
+	 * Model.
+	 */
+	private volatile ModelSnapshot snapshot;
+
+	/*
+	 * Number of changes reported to the view, and of the notifications that
+	 * delivered them.
+	 */
+	private LongAdder events;
+	private LongAdder notifications;
+
+	/*
+	 * Hands out the ids of the Tasks added to the Model.
+	 */
+	private TaskIdGenerator taskIds;
+
+	/*
+	 * Aggregate statistics of every Task, kept up to date by the ToDoLists.
+	 */
+	private TDLStats stats;
+
+	/*
+	 * Reports the incomplete Tasks whose deadline passes.
+	 */
+	private DeadlineScheduler deadlines;
+
+	/*
+	 * Evicts the Tasks of the lists used least recently once they take more than
+	 * the memory budget.
+	 */
+	private ListCache cache;
+
+	/*
+	 * Store holding the saved copies of the lists, if any.
+	 */
+	private volatile ListStore listStore;
 
 	/**
 	 * Constructor for the Model.
 	 */
 	public TDLModel() {
-		lists = new HashMap<>();
+		lists = new ConcurrentHashMap<>();
+		structureLock = new ReentrantReadWriteLock();
+		publisher = new ModelEventPublisher(EVENT_BACKLOG);
+		outbox = new ConcurrentLinkedQueue<>();
+		delivery = new ReentrantLock();
+		batches = ThreadLocal.withInitial(Batch::new);
+		version = new AtomicLong();
+		events = new LongAdder();
+		notifications = new LongAdder();
+		taskIds = new TaskIdGenerator();
+		stats = new TDLStats(TDLStats.sharedStripes());
+		deadlines = new DeadlineScheduler(Deadlines.now(), this::deadlinesPassed);
+		// a snapshot taken before lists were evicted would keep their Tasks alive
+		cache = new ListCache(lists.values(), ListCache.defaultBudget(), () -> snapshot = null);
+	}
+
+	/**
+	 * Subscribes to the changes made to the Model. Every item delivered to the
+	 * subscriber holds the events of one change or of one committed batch. Items
+	 * arrive in the order the changes were applied to each ToDoList, those of a
+	 * batch once it is committed. Once there is a subscriber, the Model also
+	 * reports the deadlines of incomplete Tasks as they pass, in one item per
+	 * minute, from a thread of its own.
+	 *
+	 * @param subscriber the subscriber to notify of changes
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super List<ModelEvent>> subscriber) {
+		publisher.subscribe(subscriber);
+		deadlines.start();
+	}
+
+	/**
+	 * Sets the ChangeLog receiving the changes made to the Model, unless one is set
+	 * already.
+	 *
+	 * @param factory creates the ChangeLog if none is set yet
+	 * @return the ChangeLog receiving the changes
+	 */
+	public synchronized ChangeLog attachChangeLog(Supplier<? extends ChangeLog> factory) {
+		if (changeLog == null)
+			changeLog = factory.get();
+		return changeLog;
+	}
+
+	/**
+	 * Sets the ListStore the lists of the Model are saved to, unless one is set
+	 * already. From then on the Tasks of a list can be evicted whenever the store
+	 * holds a current copy of it.
+	 *
+	 * @param store the store
+	 */
+	public synchronized void attachListStore(ListStore store) {
+		if (listStore != null)
+			return;
+		listStore = store;
+		for (ToDoList todoList : lists.values())
+			todoList.setStore(store);
+	}
+
+	/**
+	 * Returns the memory the loaded Tasks may take before the lists used least
+	 * recently are evicted.
+	 *
+	 * @return the memory budget, in bytes
+	 */
+	public long getMemoryBudget() {
+		return cache.getBudget();
+	}
+
+	/**
+	 * Sets the memory the loaded Tasks may take before the lists used least
+	 * recently are evicted, evicting lists at once if they take more. Defaults to
+	 * the tdl.memoryBudget system property, or to half the maximum heap.
+	 *
+	 * @param bytes the memory budget, in bytes
+	 */
+	public void setMemoryBudget(long bytes) {
+		cache.setBudget(bytes);
+	}
+
+	/**
+	 * Returns an immutable snapshot of every ToDoList as they are now. The last
+	 * snapshot is returned as long as the Model did not change, and a new snapshot
+	 * reuses the snapshots of the ToDoLists and Tasks that did not change, so only
+	 * what changed since the last snapshot is copied.
+	 *
+	 * @return consistent snapshot of the Model
+	 */
+	public ModelSnapshot snapshot() {
+		ModelSnapshot current = snapshot;
+		if (current != null && current.getVersion() == version.get())
+			return current;
+		// no change to any list is in progress while the structure write lock is held
+		structureLock.writeLock().lock();
+		try {
+			current = snapshot;
+			long now = version.get();
+			if (current == null || current.getVersion() != now) {
+				LinkedHashMap<String, ListSnapshot> listSnapshots = new LinkedHashMap<>();
+				for (ToDoList todoList : lists.values())
+					listSnapshots.put(todoList.getName(), todoList.snapshot());
+				current = new ModelSnapshot(now, listSnapshots);
+				snapshot = current;
+			}
+			return current;
+		} finally {
+			structureLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns a snapshot of every ToDoList to be saved to the ListStore, without
+	 * loading the lists that are not loaded: their snapshots are stubs, which the
+	 * store only has to write if they changed, and they never did. The snapshot is
+	 * not cached.
+	 *
+	 * @return consistent snapshot of the Model, with stubs for the lists not loaded
+	 */
+	public ModelSnapshot snapshotForSave() {
+		ModelSnapshot current = snapshot;
+		if (current != null && current.getVersion() == version.get())
+			return current;
+		structureLock.writeLock().lock();
+		try {
+			LinkedHashMap<String, ListSnapshot> listSnapshots = new LinkedHashMap<>();
+			for (ToDoList todoList : lists.values())
+				listSnapshots.put(todoList.getName(), todoList.snapshotIfLoaded());
+			return new ModelSnapshot(version.get(), listSnapshots);
+		} finally {
+			structureLock.writeLock().unlock();
+		}
 	}
 
 	/**
-	 * Returns all the ToDoLists that are currently stored in the Model.
-	 * 
-	 * @return HashMap of all lists and their names
+	 * Returns all the ToDoLists that are currently stored in the Model. The
+	 * returned map reflects later changes and can be iterated while lists are
+	 * added or removed.
+	 *
+	 * @return read-only Map of all lists and their names
 	 */
-	public HashMap<String, ToDoList> getAllLists() {
-		return this.lists;
+	public Map<String, ToDoList> getAllLists() {
+		return Collections.unmodifiableMap(this.lists);
 	}
 
 	/**
 	 * Returns the ToDoList that has the name passed.
-	 * 
+	 *
 	 * @param listName name of the ToDoList to be returned
 	 * @return ToDoList
 	 */
 	public ToDoList getList(String listName) {
-		updateView();
 		return lists.get(listName);
 	}
 
 	/**
 	 * Creates a new ToDoList with the passed name
-	 * 
+	 *
 	 * @param listName name of the ToDoList to be created
 	 * @return true if newList gets created
 	 */
 	public boolean newList(String listName) {
-		if (lists.containsKey(listName))
-			return false;
-		lists.put(listName, new ToDoList(listName));
-		updateView();
+		structureLock.writeLock().lock();
+		try {
+			ToDoList todoList = new ToDoList(listName);
+			if (lists.putIfAbsent(listName, todoList) != null)
+				return false;
+			todoList.setStore(listStore);
+			todoList.attach(stats, deadlines, cache);
+			version.incrementAndGet();
+			ChangeLog log = changeLog;
+			if (log != null)
+				log.newList(listName);
+			updateView(ModelEvent.listAdded(listName));
+		} finally {
+			structureLock.writeLock().unlock();
+		}
+		flushChangeLog();
+		deliverEvents();
 		return true;
 	}
 
+	/**
+	 * Adds lists that were built outside of the Model, such as lists loaded from a
+	 * file, notifying the view once for all of them. Lists whose name is already
+	 * taken are skipped. The lists are not passed to the ChangeLog, as they are
+	 * meant to come from storage already.
+	 *
+	 * @param newLists the ToDoLists to be added
+	 * @return number of lists added
+	 */
+	public int addLists(Collection<ToDoList> newLists) {
+		int added = 0;
+		beginBatch();
+		try {
+			structureLock.writeLock().lock();
+			try {
+				for (ToDoList todoList : newLists) {
+					if (lists.putIfAbsent(todoList.getName(), todoList) == null) {
+						taskIds.restored(todoList.getLastId());
+						todoList.setStore(listStore);
+						todoList.attach(stats, deadlines, cache);
+						updateView(ModelEvent.listAdded(todoList.getName()));
+						added++;
+					}
+				}
+				version.incrementAndGet();
+			} finally {
+				structureLock.writeLock().unlock();
+			}
+		} finally {
+			commitBatch();
+		}
+		return added;
+	}
+
 	/**
 	 * Deletes the list with the passed name.
-	 * 
+	 *
 	 * @param listName
 	 */
 	public void removeList(String listName) {
-		lists.remove(listName);
+		structureLock.writeLock().lock();
+		try {
+			ToDoList removed = lists.remove(listName);
+			if (removed == null)
+				return;
+			removed.detach();
+			version.incrementAndGet();
+			ChangeLog log = changeLog;
+			if (log != null)
+				log.removeList(listName);
+			updateView(ModelEvent.listRemoved(listName));
+		} finally {
+			structureLock.writeLock().unlock();
+		}
+		flushChangeLog();
+		deliverEvents();
 	}
 
 	/**
 	 * Updates the name of a ToDoList.
-	 * 
+	 *
 	 * @param oldName current name of the ToDoList to be updated.
 	 * @param newName new name of that ToDoList
+	 * @return true if the list was renamed, false if there is no list called oldName
+	 *         or a list called newName already exists
 	 */
-	public void editList(String oldName, String newName) {
-		ToDoList todoList = lists.remove(oldName);
-		todoList.setName(newName);
-		lists.put(newName, todoList);
-		updateView();
+	public boolean editList(String oldName, String newName) {
+		structureLock.writeLock().lock();
+		try {
+			ToDoList todoList = lists.get(oldName);
+			if (todoList == null || lists.containsKey(newName))
+				return false;
+			todoList.writeLock().lock();
+			try {
+				todoList.setName(newName);
+			} finally {
+				todoList.writeLock().unlock();
+			}
+			lists.put(newName, todoList);
+			lists.remove(oldName);
+			version.incrementAndGet();
+			ChangeLog log = changeLog;
+			if (log != null)
+				log.editList(oldName, newName);
+			updateView(ModelEvent.listRenamed(oldName, newName));
+		} finally {
+			structureLock.writeLock().unlock();
+		}
+		flushChangeLog();
+		deliverEvents();
+		return true;
 	}
 
 	/**
-	 * Returns the Task created at timeCreated in the List with the name passed.
-	 * Time of creation for each task is unique
-	 * 
-	 * @param listName    name of the list the task is in
-	 * @param timeCreated time of creation of task wanted
-	 * @return Task in listname created at timeCreated
+	 * Returns the Task with the passed id in the List with the name passed. The id
+	 * of each task is unique
+	 *
+	 * @param listName name of the list the task is in
+	 * @param id       id of task wanted
+	 * @return Task in listname with that id
 	 */
-	public Task getTask(String listName, Double timeCreated) {
-		return lists.get(listName).getTask(timeCreated);
+	public Task getTask(String listName, long id) {
+		return lists.get(listName).getTask(id);
 	}
 
 	/**
-	 * Updates the state of the Task created at timeCreated in the ToDoList with the
-	 * name passed based on the parameters provided.
-	 * 
+	 * Updates the state of the Task with the passed id in the ToDoList with the
+	 * name passed based on the parameters provided. All the details are changed
+	 * at once, so readers never see a Task that is only partly edited.
+	 *
 	 * @param listName        Name of the ToDoList the Task is in
-	 * @param timeCreated     Time of creation of the Task
+	 * @param id              Id of the Task
 	 * @param taskName        new Name for the Task
 	 * @param taskDescription new Description for the Task
-	 * @param taskDeadline    new Deadline for the Task
+	 * @param taskDeadline    new Deadline for the Task in minutes, or Deadlines.NONE
+	 * @param taskPriority    new Priority for the Task
 	 */
-	public void editTask(String listName, Double timeCreated, String taskName, String taskDescription,
-			Date taskDeadline, String taskPriority) {
-		lists.get(listName).getTask(timeCreated).setName(taskName);
-		lists.get(listName).getTask(timeCreated).setDescription(taskDescription);
-		lists.get(listName).getTask(timeCreated).setPriority(taskPriority);
-		lists.get(listName).getTask(timeCreated).setDeadline(taskDeadline);
-		updateView();
+	public void editTask(String listName, long id, String taskName, String taskDescription,
+			long taskDeadline, Priority taskPriority) {
+		changeList(listName, todoList -> {
+			todoList.editTask(id, taskName, taskDescription, taskDeadline, taskPriority);
+			ChangeLog log = changeLog;
+			if (log != null)
+				log.editTask(listName, todoList.getTask(id));
+			updateView(ModelEvent.task(ModelEvent.Type.TASK_EDITED, listName, id));
+		});
+		flushChangeLog();
+		deliverEvents();
 	}
 
 	/**
 	 * Adds a new Task with the passed properties in the ToDoList with the name
-	 * passed.
-	 * 
+	 * passed, giving it a new id.
+	 *
 	 * @param listName        name of the ToDoList in which the Task is to be added
 	 * @param taskName        name for the new Task
 	 * @param taskDescription Description for the new Task
-	 * @param taskDeadline    Deadline for the new Task
-	 * @param timeCreated     Time at which the new Task is created
-	 * @param strdate         String representation of the date
+	 * @param taskDeadline    Deadline for the new Task in minutes, or Deadlines.NONE
 	 * @param priority        Priority of the Task
+	 * @return id of the new Task
+	 */
+	public long addTask(String listName, String taskName, String taskDescription, long taskDeadline,
+			Priority priority) {
+		long id = taskIds.next();
+		addTask(listName, taskName, taskDescription, taskDeadline, id, priority);
+		return id;
+	}
+
+	/**
+	 * Adds a Task with the passed properties and id in the ToDoList with the name
+	 * passed, as when restoring saved Tasks. The id is never handed out for a new
+	 * Task afterwards.
+	 *
+	 * @param listName        name of the ToDoList in which the Task is to be added
+	 * @param taskName        name for the new Task
+	 * @param taskDescription Description for the new Task
+	 * @param taskDeadline    Deadline for the new Task in minutes, or Deadlines.NONE
+	 * @param id              Id of the new Task
+	 * @param priority        Priority of the Task
+	 */
+	public void addTask(String listName, String taskName, String taskDescription, long taskDeadline, long id,
+			Priority priority) {
+		taskIds.restored(id);
+		changeList(listName, todoList -> {
+			todoList.addTask(taskName, taskDescription, taskDeadline, id, priority);
+			ChangeLog log = changeLog;
+			if (log != null)
+				log.addTask(listName, todoList.getTask(id));
+			updateView(ModelEvent.task(ModelEvent.Type.TASK_ADDED, listName, id));
+		});
+		flushChangeLog();
+		deliverEvents();
+	}
+
+	/**
+	 * Deletes the Task with the passed id in the ToDoList with the name passed.
+	 *
+	 * @param listName Name of the ToDoList the Task is present in
+	 * @param id       Id of the Task
+	 */
+	public void removeTask(String listName, long id) {
+		changeList(listName, todoList -> {
+			todoList.removeTask(id);
+			ChangeLog log = changeLog;
+			if (log != null)
+				log.removeTask(listName, id);
+			updateView(ModelEvent.task(ModelEvent.Type.TASK_REMOVED, listName, id));
+		});
+		flushChangeLog();
+		deliverEvents();
+	}
+
+	/**
+	 * Marks the Task in listName ToDoList with the passed id as completed
+	 *
+	 * @param listName name of the ToDoList the Task is present in
+	 * @param id       id of the Task
+	 */
+	public void setTaskCompleted(String listName, long id) {
+		changeList(listName, todoList -> {
+			todoList.setTaskCompleted(id);
+			ChangeLog log = changeLog;
+			if (log != null)
+				log.setTaskCompleted(listName, id);
+			updateView(ModelEvent.task(ModelEvent.Type.TASK_COMPLETED, listName, id));
+		});
+		flushChangeLog();
+		deliverEvents();
+	}
+
+	/**
+	 * Returns the Tasks of every ToDoList whose name or description uses every
+	 * word of the query. Each word of the query also matches the longer words
+	 * starting with it.
+	 *
+	 * @param query words to look for
+	 * @return the matching Tasks by the name of their ToDoList, only holding the
+	 *         lists with matches
+	 */
+	public Map<String, List<Task>> search(String query) {
+		Map<String, List<Task>> result = new LinkedHashMap<>();
+		Collection<String> words = TaskIndex.words(query, null);
+		if (words.isEmpty())
+			return result;
+		for (ToDoList todoList : lists.values()) {
+			List<Task> matches = todoList.search(words);
+			if (!matches.isEmpty())
+				result.put(todoList.getName(), matches);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the Tasks of the ToDoList with the passed name whose name or
+	 * description uses every word of the query.
+	 *
+	 * @param listName name of the ToDoList to search
+	 * @param query    words to look for
+	 * @return List of the matching Tasks
+	 */
+	public List<Task> search(String listName, String query) {
+		return lists.get(listName).search(query);
+	}
+
+	/**
+	 * Returns one page of the Tasks of the ToDoList with the passed name that
+	 * match the query, in its order.
+	 *
+	 * @param listName name of the ToDoList to query
+	 * @param query    the query, with the cursor of the previous page if any
+	 * @return the page
+	 */
+	public TaskPage<Task> query(String listName, TaskQuery query) {
+		return lists.get(listName).query(query);
+	}
+
+	/**
+	 * Returns the first Tasks of every ToDoList that match the query, in its
+	 * order, querying the lists in parallel on the common ForkJoinPool. Tasks
+	 * with the same deadline or Priority, and all Tasks in insertion order, are
+	 * listed by the name of their list. Lists whose statistics show that no Task
+	 * matches are skipped without being loaded.
+	 *
+	 * @param query the query, without a cursor; its limit bounds the result
+	 * @return the matching Tasks with the names of their lists
+	 */
+	public List<ListedTask> query(TaskQuery query) {
+		return query(query, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Returns the first Tasks of every ToDoList that match the query, querying the
+	 * lists on the passed pool.
+	 *
+	 * @param query the query, without a cursor; its limit bounds the result
+	 * @param pool  the pool to query the lists on
+	 * @return the matching Tasks with the names of their lists
+	 */
+	public List<ListedTask> query(TaskQuery query, ForkJoinPool pool) {
+		return GlobalQuery.run(lists, query, pool);
+	}
+
+	/**
+	 * Returns the first words used by Tasks of any ToDoList that start with the
+	 * prefix, in alphabetical order.
+	 *
+	 * @param prefix start of the words
+	 * @param limit  maximum number of words to return
+	 * @return List of the matching words
+	 */
+	public List<String> completeWord(String prefix, int limit) {
+		TreeSet<String> words = new TreeSet<>();
+		for (ToDoList todoList : lists.values()) {
+			words.addAll(todoList.completeWord(prefix, limit));
+			while (words.size() > limit)
+				words.pollLast();
+		}
+		return new ArrayList<>(words);
+	}
+
+	/**
+	 * Builds the word index of every ToDoList in parallel, so that searches do not
+	 * have to build them. Meant to be called once the data has been loaded; the
+	 * indexes are kept up to date by every change from then on. Lists that are
+	 * not loaded build theirs when they are searched.
+	 */
+	public void buildIndexes() {
+		lists.values().parallelStream().filter(ToDoList::isLoaded).forEach(ToDoList::buildIndex);
+	}
+
+	/**
+	 * Returns the aggregate statistics of every Task in the Model, kept up to date
+	 * by every change, so reading them does not depend on the number of Tasks. The
+	 * statistics of a single list are read from ToDoList.getStats.
+	 *
+	 * @return statistics of the Model
+	 */
+	public TDLStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Returns a new Task id, for Tasks built outside of the Model before being
+	 * added to it, such as imported ones.
+	 *
+	 * @return the id
+	 */
+	public long nextTaskId() {
+		return taskIds.next();
+	}
+
+	/**
+	 * Returns the number of changes that were reported to the view.
+	 *
+	 * @return number of events
+	 */
+	public long getEventCount() {
+		return events.sum();
+	}
+
+	/**
+	 * Returns the number of notifications delivered to the view, each holding the
+	 * events of one change or of one committed batch.
+	 *
+	 * @return number of notifications
+	 */
+	public long getNotificationCount() {
+		return notifications.sum();
+	}
+
+	/**
+	 * Opens a batch of changes on the calling thread. Until the batch is committed,
+	 * changes made by the thread do not notify the view. Batches may be nested, in
+	 * which case the view is notified when the outermost batch is committed.
+	 */
+	public void beginBatch() {
+		batches.get().depth++;
+	}
+
+	/**
+	 * Commits the batch opened by the last call to beginBatch on the calling
+	 * thread. When the outermost batch is committed, the events of every change
+	 * made in it are delivered as one item.
+	 */
+	public void commitBatch() {
+		Batch batch = batches.get();
+		if (batch.depth == 0) {
+			batches.remove();
+			throw new IllegalStateException("No batch to commit");
+		}
+		if (--batch.depth == 0) {
+			batches.remove();
+			if (!batch.events.isEmpty()) {
+				notifications.increment();
+				outbox.add(batch.events);
+				deliverEvents();
+			}
+		}
+	}
+
+	/**
+	 * Applies the passed changes as one batch, so the view is notified at most
+	 * once for all of them.
+	 *
+	 * @param changes the changes to apply to the Model
+	 */
+	public void batch(Runnable changes) {
+		beginBatch();
+		try {
+			changes.run();
+		} finally {
+			commitBatch();
+		}
+	}
+
+	/**
+	 * Applies a change to the Tasks of a ToDoList while holding its write lock, so
+	 * the change is atomic with respect to other changes and readers of that list.
+	 *
+	 * @param listName name of the ToDoList to change
+	 * @param change   the change to apply
+	 */
+	private void changeList(String listName, Consumer<ToDoList> change) {
+		structureLock.readLock().lock();
+		try {
+			ToDoList todoList = lists.get(listName);
+			Lock lock = todoList.writeLock();
+			lock.lock();
+			try {
+				change.accept(todoList);
+				version.incrementAndGet();
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			structureLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Lets the ChangeLog write the changes passed to it while the locks of the
+	 * changes were held.
+	 */
+	private void flushChangeLog() {
+		ChangeLog log = changeLog;
+		if (log != null)
+			log.flush();
+	}
+
+	/**
+	 * Delivers the queued events to the view in the order they were queued in,
+	 * unless another thread is delivering them already. That thread looks at the
+	 * queue again once it is done, so no event is left behind. A subscriber
+	 * changing the Model from onNext leaves its events to the delivery in
+	 * progress, so that no subscriber receives them before the item it is given.
 	 */
-	public void addTask(String listName, String taskName, String taskDescription, Date taskDeadline, Double timeCreated,
-			String strdate, String priority) {
-		lists.get(listName).addTask(taskName, taskDescription, taskDeadline, timeCreated, strdate, priority);
-		updateView();
+	private void deliverEvents() {
+		while (!outbox.isEmpty() && !delivery.isHeldByCurrentThread() && delivery.tryLock()) {
+			try {
+				List<ModelEvent> item;
+				while ((item = outbox.poll()) != null)
+					publisher.publish(item);
+			} finally {
+				delivery.unlock();
+			}
+		}
 	}
 
 	/**
-	 * Deletes the Task created at timeCreated in the ToDoList with the name passed.
-	 * 
-	 * @param listName    Name of the ToDoList the Task is present in
-	 * @param timeCreated Time of creation of the Task
+	 * Notifies the view of the Tasks whose deadline passed. Called on the thread
+	 * of the DeadlineScheduler, outside of any batch.
+	 *
+	 * @param passed events of the Tasks that became due
 	 */
-	public void removeTask(String listName, Double timeCreated) {
-		lists.get(listName).removeTask(timeCreated);
-		updateView();
+	private void deadlinesPassed(List<ModelEvent> passed) {
+		if (!publisher.hasSubscribers())
+			return;
+		events.add(passed.size());
+		notifications.increment();
+		outbox.add(passed);
+		deliverEvents();
 	}
 
 	/**
-	 * Marks the Task in listName ToDoList created at timeCreated as completed
-	 * 
-	 * @param listName    name of the ToDoList the Task is present in
-	 * @param timeCreated time of creation of the ToDoList
+	 * Queues the event of a change for the view, or adds it to the events of the
+	 * open batch. Called while the locks of the change are held, so the events of
+	 * changes to the same ToDoList are queued in the order the changes were
+	 * applied in; they are delivered by deliverEvents once the locks are released.
+	 * A batch collecting too many events reports a single RELOADED event instead.
+	 *
+	 * @param event the change made
 	 */
-	public void setTaskCompleted(String listName, Double timeCreated) {
-		lists.get(listName).setTaskCompleted(timeCreated);
-		updateView();
+	private void updateView(ModelEvent event) {
+		if (!publisher.hasSubscribers())
+			return;
+		events.increment();
+		Batch batch = batches.get();
+		if (batch.depth == 0) {
+			batches.remove();
+			notifications.increment();
+			outbox.add(List.of(event));
+			return;
+		}
+		List<ModelEvent> events = batch.events;
+		if (!events.isEmpty() && events.get(0).getType() == ModelEvent.Type.RELOADED)
+			return;
+		if (events.size() < EVENT_BACKLOG) {
+			events.add(event);
+		} else {
+			events.clear();
+			events.add(ModelEvent.reloaded());
+		}
 	}
 
 	/**
-	 * Notifies the view to update itself when the Model has changes.
+	 * A batch of changes open on one thread.
 	 */
-	private void updateView() {
-		setChanged();
-		notifyObservers();
+	private static class Batch {
+		int depth;
+		final List<ModelEvent> events = new ArrayList<>();
 	}
 
 }
@@ -0,0 +1,237 @@
+package model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregate statistics of a set of Tasks: how many there are, how many are
+ * completed, how they spread over the priorities, and how many incomplete Tasks
+ * are overdue or due soon. Every ToDoList keeps the statistics of its Tasks, and
+ * the Model those of all its Tasks.
+ *
+ * The statistics are kept up to date by every change to the Tasks rather than
+ * computed when read, so reading them costs the same whatever the number of
+ * Tasks. The counters are LongAdders and the deadlines are counted in stripes
+ * picked by minute, so changes to Tasks due at different minutes do not contend
+ * on them. As every minute is counted in one stripe only, the deadlines a
+ * ToDoList adds at once, from a summary without Task ids, are taken away by the
+ * Tasks one by one from the same stripe. A read taken while Tasks are changing
+ * may see some counters before a change and others after it.
+ */
+public final class TDLStats {
+
+	private static final int PRIORITIES = Priority.values().length;
+
+	private final LongAdder tasks = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder[] byPriority = new LongAdder[PRIORITIES];
+	private final LongAdder[] completedByPriority = new LongAdder[PRIORITIES];
+	/*
+	 * Deadlines of the incomplete Tasks, striped by minute.
+	 */
+	private final DeadlineCounts[] deadlines;
+
+	/**
+	 * Creates empty statistics, counting deadlines in the passed number of stripes.
+	 *
+	 * @param stripes number of stripes, a power of two
+	 */
+	TDLStats(int stripes) {
+		for (int i = 0; i < PRIORITIES; i++) {
+			byPriority[i] = new LongAdder();
+			completedByPriority[i] = new LongAdder();
+		}
+		deadlines = new DeadlineCounts[stripes];
+		for (int i = 0; i < stripes; i++)
+			deadlines[i] = new DeadlineCounts();
+	}
+
+	/**
+	 * Returns the number of stripes suited to statistics changed from every core.
+	 */
+	static int sharedStripes() {
+		return Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+	}
+
+	/**
+	 * Counts or uncounts the Task in its current state.
+	 *
+	 * @param task  the Task
+	 * @param delta 1 to count the Task, -1 to uncount it
+	 */
+	void count(Task task, int delta) {
+		count(task.getPriority().ordinal(), task.isComplete(), task.getDeadlineMinute(), delta);
+	}
+
+	/**
+	 * Counts or uncounts a Task in the passed state.
+	 *
+	 * @param priority ordinal of its Priority
+	 * @param complete whether it is completed
+	 * @param deadline its deadline in minutes, or Deadlines.NONE
+	 * @param delta    1 to count the Task, -1 to uncount it
+	 */
+	void count(int priority, boolean complete, long deadline, int delta) {
+		tasks.add(delta);
+		byPriority[priority].add(delta);
+		if (complete) {
+			completed.add(delta);
+			completedByPriority[priority].add(delta);
+		} else if (deadline != Deadlines.NONE) {
+			stripe(deadline).add(deadline, delta);
+		}
+	}
+
+	/**
+	 * Counts or uncounts every Task counted by other.
+	 *
+	 * @param other the statistics to add
+	 * @param sign  1 to add them, -1 to subtract them
+	 */
+	void addAll(TDLStats other, int sign) {
+		tasks.add(sign * other.tasks.sum());
+		completed.add(sign * other.completed.sum());
+		for (int i = 0; i < PRIORITIES; i++) {
+			byPriority[i].add(sign * other.byPriority[i].sum());
+			completedByPriority[i].add(sign * other.completedByPriority[i].sum());
+		}
+		for (DeadlineCounts stripe : other.deadlines)
+			stripe.forEach((deadline, count) -> stripe(deadline).add(deadline, sign * count));
+	}
+
+	/**
+	 * Counts the Tasks of a ToDoList that is not loaded, as they were summarized
+	 * when it was saved.
+	 *
+	 * @param summary the summary of the Tasks
+	 */
+	void addAll(ListSummary summary) {
+		for (Priority priority : Priority.values()) {
+			long count = summary.getTaskCount(priority);
+			long completedCount = summary.getCompletedCount(priority);
+			tasks.add(count);
+			completed.add(completedCount);
+			byPriority[priority.ordinal()].add(count);
+			completedByPriority[priority.ordinal()].add(completedCount);
+		}
+		for (int i = 0; i < summary.getDeadlineCount(); i++)
+			stripe(summary.getDeadline(i)).add(summary.getDeadline(i), summary.getDueCount(i));
+	}
+
+	/**
+	 * Returns the stripe counting the Tasks due at the passed minute. Takes other
+	 * bits of the hash than the table of the stripe, so that the minutes of one
+	 * stripe still spread over its table.
+	 */
+	private DeadlineCounts stripe(long deadline) {
+		return deadlines[(int) ((deadline * 0x9E3779B97F4A7C15L) >>> 48) & (deadlines.length - 1)];
+	}
+
+	/**
+	 * Returns the earliest minute after the passed one at which an incomplete Task
+	 * is due. Scans every deadline counted.
+	 *
+	 * @param after the minute, as counted by Deadlines
+	 * @return the next deadline, or Deadlines.NONE if there is none
+	 */
+	long nextDeadline(long after) {
+		long next = Deadlines.NONE;
+		for (DeadlineCounts stripe : deadlines) {
+			long minute = stripe.next(after);
+			if (minute != Deadlines.NONE && (next == Deadlines.NONE || minute < next))
+				next = minute;
+		}
+		return next;
+	}
+
+	/**
+	 * Returns the number of Tasks.
+	 *
+	 * @return number of Tasks
+	 */
+	public long getTaskCount() {
+		return tasks.sum();
+	}
+
+	/**
+	 * Returns the number of completed Tasks.
+	 *
+	 * @return number of completed Tasks
+	 */
+	public long getCompletedCount() {
+		return completed.sum();
+	}
+
+	/**
+	 * Returns the percentage of Tasks completed, rounded down.
+	 *
+	 * @return percentage of Tasks completed, 0 when there are no Tasks
+	 */
+	public int getPercentCompleted() {
+		long count = tasks.sum();
+		return count <= 0 ? 0 : (int) (completed.sum() * 100 / count);
+	}
+
+	/**
+	 * Returns the number of Tasks with the passed Priority.
+	 *
+	 * @param priority the Priority
+	 * @return number of Tasks with that Priority
+	 */
+	public long getTaskCount(Priority priority) {
+		return byPriority[priority.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the number of completed Tasks with the passed Priority.
+	 *
+	 * @param priority the Priority
+	 * @return number of completed Tasks with that Priority
+	 */
+	public long getCompletedCount(Priority priority) {
+		return completedByPriority[priority.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the number of incomplete Tasks due before the passed minute. Reads
+	 * are cheapest when the minutes passed to successive reads do not go back.
+	 *
+	 * @param now the minute, as counted by Deadlines
+	 * @return number of overdue Tasks
+	 */
+	public long getOverdueCount(long now) {
+		long overdue = 0;
+		for (DeadlineCounts stripe : deadlines)
+			overdue += stripe.getOverdue(now);
+		return overdue;
+	}
+
+	/**
+	 * Returns the number of incomplete Tasks due from the passed minute on, before
+	 * the given number of hours have passed.
+	 *
+	 * @param now   the minute, as counted by Deadlines
+	 * @param hours length of the window in hours
+	 * @return number of Tasks due in the window
+	 */
+	public long getDueWithinCount(long now, int hours) {
+		long due = 0;
+		for (DeadlineCounts stripe : deadlines)
+			due += stripe.getDueWithin(now, hours * 60L);
+		return due;
+	}
+
+	/**
+	 * Returns the number of incomplete Tasks due at or after one minute and before
+	 * another.
+	 *
+	 * @param from start of the range, as counted by Deadlines, inclusive
+	 * @param to   end of the range, exclusive
+	 * @return number of Tasks due in the range
+	 */
+	public long getDueCount(long from, long to) {
+		long due = 0;
+		for (DeadlineCounts stripe : deadlines)
+			due += stripe.getDue(from, to);
+		return due;
+	}
+}
@@ -10,52 +10,69 @@ import java.util.Date;
  */
 public class Task {
 	/**
-	 *  Name of the Task
+	 *  String representation of the Date of a Task that has no deadline
+	 */
+	public static final String NO_DEADLINE = "MM/DD/YYYY HR:MN";
+	/**
+	 *  Name of the Task, shared with the Tasks of the same name through the
+	 *  StringPool
 	 */
 	private String name;
 	/**
-	 *  Description of the Task
+	 *  Description of the Task, shared like the name
 	 */
 	private String description;
 	/**
-	 *  Deadline for the Task
+	 *  Deadline for the Task in minutes, as counted by Deadlines, or Deadlines.NONE
 	 */
-	private Date deadline;
+	private long deadline;
 	/**
 	 *  Priority of the Task
 	 */
-	private String priority;
+	private Priority priority;
 	/**
 	 *  Whether the Task has been completed
 	 */
 	private boolean isComplete;
 	/**
-	 *  Time of creation of the Task
+	 *  Id of the Task, handed out by the TaskIdGenerator of the Model
 	 */
-	public Double timeCreated;
+	private final long id;
 	/**
-	 *  String representation of the Date
+	 *  Snapshot of the current state of the Task, dropped when the Task changes
 	 */
-	private String strdate;
+	private TaskSnapshot snapshot;
+	/**
+	 *  Timer of the Task in the DeadlineScheduler of its Model while it waits for
+	 *  its deadline, guarded by the lock of the scheduler
+	 */
+	private DeadlineScheduler.Timer timer;
 
 	/**
 	 * The constructor creates a Task object with the properties passed to it.
 	 * 
 	 * @param description Description of the Task
-	 * @param deadline    Deadline for the Task
+	 * @param deadline    Deadline for the Task in minutes, or Deadlines.NONE
 	 * @param priority    Priority of the Task
 	 * @param name        Name of the Task
-	 * @param strdate     String representation of the Date
-	 * @param timeCreated Time of creation of the Task
+	 * @param id          Id of the Task
 	 */
-	public Task(String description, Date deadline, String priority, String name, String strdate, Double timeCreated) {
-		this.description = description;
+	public Task(String description, long deadline, Priority priority, String name, long id) {
+		this.description = StringPool.pool(description);
 		this.deadline = deadline;
 		this.isComplete = false;
-		this.name = name;
-		this.strdate = strdate;
+		this.name = StringPool.pool(name);
 		this.priority = priority;
-		this.timeCreated = timeCreated;
+		this.id = id;
+	}
+
+	/**
+	 * Returns the id of the Task
+	 * 
+	 * @return id of the Task
+	 */
+	public long getId() {
+		return this.id;
 	}
 
 	/**
@@ -68,17 +85,21 @@ public class Task {
 	}
 
 	/**
-	 * Marks the Task as completed.
+	 * Marks the Task as completed. Tasks in a ToDoList are completed through
+	 * ToDoList.setTaskCompleted so that its statistics stay correct.
 	 */
-	public void setComplete() {
+	void setComplete() {
 		this.isComplete = true;
+		this.snapshot = null;
 	}
 
 	/**
-	 * Marks the Task as incomplete.
+	 * Marks the Task as incomplete. Tasks in a ToDoList are changed through
+	 * ToDoList.setTaskIncomplete so that its statistics stay correct.
 	 */
-	public void setIncomplete() {
+	void setIncomplete() {
 		this.isComplete = false;
+		this.snapshot = null;
 	}
 
 	/**
@@ -100,30 +121,53 @@ public class Task {
 	}
 
 	/**
-	 * Updates the Description of the Task.
+	 * Updates the Description of the Task. Descriptions of Tasks in a ToDoList are
+	 * changed through ToDoList.editTask so that its word index stays correct.
 	 * 
 	 * @param description New Description for the Task
 	 */
-	public void setDescription(String description) {
-		this.description = description;
+	void setDescription(String description) {
+		this.description = StringPool.pool(description);
+		this.snapshot = null;
 	}
 
 	/**
-	 * Returns the Deadline of the Task.
+	 * Returns the Deadline of the Task as a Date in the default time zone.
 	 * 
 	 * @return Deadline of the Task
 	 */
 	public Date getDeadline() {
+		return Deadlines.toDate(this.deadline);
+	}
+
+	/**
+	 * Returns the Deadline of the Task in minutes, as counted by Deadlines. Cheaper
+	 * than getDeadline for comparing deadlines.
+	 * 
+	 * @return Deadline of the Task, or Deadlines.NONE
+	 */
+	public long getDeadlineMinute() {
 		return this.deadline;
 	}
 
 	/**
-	 * Updates the Deadline of the Task.
+	 * Updates the Deadline of the Task. Deadlines of Tasks in a ToDoList are
+	 * changed through ToDoList.editTask so that its deadline index stays in order.
 	 * 
-	 * @param deadline of the task
+	 * @param deadline of the task in minutes, or Deadlines.NONE
 	 */
-	public void setDeadline(Date deadline) {
+	void setDeadline(long deadline) {
 		this.deadline = deadline;
+		this.snapshot = null;
+	}
+
+	/**
+	 * Returns whether the Task was given a deadline.
+	 * 
+	 * @return false if the deadline was left as NO_DEADLINE
+	 */
+	public boolean hasDeadline() {
+		return this.deadline != Deadlines.NONE;
 	}
 
 	/**
@@ -131,35 +175,74 @@ public class Task {
 	 * 
 	 * @return priority of the Task
 	 */
-	public String getPriority() {
+	public Priority getPriority() {
 		return this.priority;
 	}
 	
 	/**
-	 * Updates the priority of the task
+	 * Updates the priority of the task. Priorities of Tasks in a ToDoList are
+	 * changed through ToDoList.editTask so that its priority buckets stay correct.
 	 * 
 	 * @param newPriority priority of the Task
 	 */
-	public void setPriority(String newPriority) {
+	void setPriority(Priority newPriority) {
 		this.priority = newPriority;
+		this.snapshot = null;
 	}
 
 	/**
-	 * Updates the Name of the Task
+	 * Updates the Name of the Task. Names of Tasks in a ToDoList are changed
+	 * through ToDoList.editTask so that its word index stays correct.
 	 * 
 	 * @param newName new Name for the Task
 	 */
-	public void setName(String newName) {
-		this.name = newName;
+	void setName(String newName) {
+		this.name = StringPool.pool(newName);
+		this.snapshot = null;
 	}
 
 	/**
-	 * Returns the String representation of the Date stored.
+	 * Returns the String representation of the Deadline, formatted from the
+	 * deadline rather than stored with the Task.
 	 * 
-	 * @return strdate of the Task
+	 * @return the Deadline as "MM/DD/YYYY HR:MN", or NO_DEADLINE
 	 */
 	public String getDateString() {
-		return this.strdate;
+		return Deadlines.format(this.deadline);
+	}
+
+	/**
+	 * Returns an immutable copy of the current state of the Task, reusing the
+	 * last copy if the Task did not change since. Called with the lock of the
+	 * ToDoList of the Task held.
+	 * 
+	 * @return snapshot of the Task
+	 */
+	TaskSnapshot snapshot() {
+		TaskSnapshot current = this.snapshot;
+		if (current == null) {
+			current = new TaskSnapshot(this);
+			this.snapshot = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Returns the pending Timer of the Task.
+	 * 
+	 * @return the Timer, or null if the Task is not waiting for its deadline
+	 */
+	DeadlineScheduler.Timer getTimer() {
+		return this.timer;
+	}
+
+	/**
+	 * Sets the pending Timer of the Task.
+	 * 
+	 * @param timer the Timer, or null once it is no longer pending
+	 */
+	void setTimer(DeadlineScheduler.Timer timer) {
+		this.timer = timer;
 	}
 
 }
\ No newline at end of file
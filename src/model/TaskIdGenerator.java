@@ -0,0 +1,43 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the ids of new Tasks. Ids are taken from a single counter, so they
+ * are unique across every ToDoList of the Model and increase in the order the
+ * Tasks were created, whatever thread creates them and however many are
+ * created at the same instant. Taking an id is one atomic increment, which
+ * never blocks or retries, so threads adding Tasks in parallel do not contend
+ * on anything but that counter.
+ */
+public final class TaskIdGenerator {
+
+	/*
+	 * Last id handed out or restored.
+	 */
+	private final AtomicLong last = new AtomicLong();
+
+	/**
+	 * Returns a new id, greater than every id handed out or restored before.
+	 *
+	 * @return the id
+	 * @throws IllegalStateException if every positive long has been used
+	 */
+	public long next() {
+		long id = last.incrementAndGet();
+		if (id <= 0)
+			throw new IllegalStateException("Task ids exhausted");
+		return id;
+	}
+
+	/**
+	 * Records that a Task with the passed id was restored, so that it is never
+	 * handed out again.
+	 *
+	 * @param id id of the restored Task
+	 */
+	public void restored(long id) {
+		if (last.get() < id)
+			last.accumulateAndGet(id, Math::max);
+	}
+}
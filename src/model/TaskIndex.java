@@ -0,0 +1,212 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index of the words in the names and descriptions of the Tasks of one
+ * ToDoList. Words are the runs of letters and digits of the text, lower-cased.
+ * Every word is paired with the Tasks using it, and the words are kept sorted so
+ * that all the words starting with a prefix are found with one range lookup.
+ *
+ * The index is owned by its ToDoList and guarded by the lock of that list.
+ */
+class TaskIndex {
+
+	/**
+	 * Sorts after every character a word can continue with, to bound the range of
+	 * words starting with a prefix.
+	 */
+	private static final char MAX_CHAR = Character.MAX_VALUE;
+
+	/**
+	 * Tasks using each word, in the order they started using it.
+	 */
+	private final TreeMap<String, TaskMap> postings = new TreeMap<>();
+
+	/**
+	 * Creates an index of the passed Tasks.
+	 *
+	 * @param tasks the Tasks to index
+	 */
+	TaskIndex(Iterable<Task> tasks) {
+		for (Task task : tasks)
+			add(task);
+	}
+
+	/**
+	 * Adds the words of the Task to the index.
+	 *
+	 * @param task the Task to index
+	 */
+	void add(Task task) {
+		for (String word : words(task.getName(), task.getDescription())) {
+			TaskMap tasks = postings.get(word);
+			if (tasks == null) {
+				tasks = new TaskMap(1);
+				postings.put(word, tasks);
+			}
+			tasks.put(task.getId(), task);
+		}
+	}
+
+	/**
+	 * Removes the words of the Task from the index. Must be called before the name
+	 * or description of the Task change.
+	 *
+	 * @param task the Task to remove
+	 */
+	void remove(Task task) {
+		for (String word : words(task.getName(), task.getDescription())) {
+			TaskMap tasks = postings.get(word);
+			if (tasks != null && tasks.remove(task.getId()) != null && tasks.isEmpty())
+				postings.remove(word);
+		}
+	}
+
+	/**
+	 * Returns the Tasks using every one of the passed words. Each word matches the
+	 * indexed words starting with it, so a query can be searched while it is being
+	 * typed. The Tasks matching the longest word, usually the rarest, are looked up
+	 * in the index and checked against the other words.
+	 *
+	 * @param words lower-cased words to look for, as split by words()
+	 * @return the matching Tasks
+	 */
+	List<Task> search(Collection<String> words) {
+		List<Task> result = new ArrayList<>();
+		String longest = null;
+		for (String word : words)
+			if (longest == null || word.length() > longest.length())
+				longest = word;
+		if (longest == null)
+			return result;
+		for (Task task : match(longest))
+			if (words.size() == 1 || uses(task, words))
+				result.add(task);
+		return result;
+	}
+
+	/**
+	 * Returns whether the name or description of the Task uses every one of the
+	 * passed words, each matching the words of the Task starting with it. Splits
+	 * the text of the Task, for Tasks that were not found through an index.
+	 *
+	 * @param task  the Task
+	 * @param words lower-cased words to look for, as split by words()
+	 * @return true if every word is used
+	 */
+	static boolean uses(Task task, Collection<String> words) {
+		return uses(task.getName(), task.getDescription(), words);
+	}
+
+	/**
+	 * Returns whether the passed name or description uses every one of the passed
+	 * words, as uses(Task, Collection) does.
+	 *
+	 * @param name        name of a Task
+	 * @param description description of the Task, or null
+	 * @param words       lower-cased words to look for, as split by words()
+	 * @return true if every word is used
+	 */
+	static boolean uses(String name, String description, Collection<String> words) {
+		Collection<String> taskWords = words(name, description);
+		for (String word : words)
+			if (!startsAny(taskWords, word))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns the first indexed words that start with the prefix, in alphabetical
+	 * order.
+	 *
+	 * @param prefix start of the words
+	 * @param limit  maximum number of words to return
+	 * @return the matching words
+	 */
+	List<String> complete(String prefix, int limit) {
+		List<String> result = new ArrayList<>();
+		for (String word : range(prefix.toLowerCase(Locale.ROOT)).keySet()) {
+			if (result.size() >= limit)
+				break;
+			result.add(word);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the Tasks using a word that starts with the passed one. Avoids a copy
+	 * when at most one indexed word matches.
+	 */
+	private TaskMap match(String word) {
+		NavigableMap<String, TaskMap> range = range(word);
+		Map.Entry<String, TaskMap> first = range.firstEntry();
+		if (first == null)
+			return new TaskMap(1);
+		if (range.higherKey(first.getKey()) == null)
+			return first.getValue();
+		TaskMap union = new TaskMap();
+		for (TaskMap tasks : range.values())
+			for (Task task : tasks)
+				union.put(task.getId(), task);
+		return union;
+	}
+
+	/**
+	 * Returns whether one of the words starts with the passed prefix.
+	 */
+	private static boolean startsAny(Collection<String> words, String prefix) {
+		for (String word : words)
+			if (word.startsWith(prefix))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the postings of the words starting with the passed prefix.
+	 */
+	private NavigableMap<String, TaskMap> range(String prefix) {
+		return postings.subMap(prefix, true, prefix + MAX_CHAR, false);
+	}
+
+	/**
+	 * Splits the passed texts into their distinct lower-cased words. A null text
+	 * has no words.
+	 *
+	 * @param first  first text to split
+	 * @param second second text to split, may be null
+	 * @return the words, in the order they first appear
+	 */
+	static Collection<String> words(String first, String second) {
+		Collection<String> words = new LinkedHashSet<>();
+		split(first, words);
+		split(second, words);
+		return words;
+	}
+
+	/**
+	 * Adds the words of the text to the collection.
+	 */
+	private static void split(String text, Collection<String> words) {
+		if (text == null)
+			return;
+		int length = text.length();
+		int pos = 0;
+		while (pos < length) {
+			while (pos < length && !Character.isLetterOrDigit(text.charAt(pos)))
+				pos++;
+			int start = pos;
+			while (pos < length && Character.isLetterOrDigit(text.charAt(pos)))
+				pos++;
+			if (pos > start)
+				words.add(text.substring(start, pos).toLowerCase(Locale.ROOT));
+		}
+	}
+}
@@ -0,0 +1,388 @@
+package model;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Map from the id of a Task to the Task, iterated in the order the Tasks were
+ * inserted in, like a LinkedHashMap. Keys are primitive longs, so lookups do not
+ * box them, and the map is made of three flat arrays instead of one node per
+ * entry:
+ *
+ * - keys and values hold the entries in insertion order, a removed entry being
+ * marked by a null value until the arrays are compacted,
+ * - table is an open-addressing hash table with linear probing holding the
+ * index of an entry plus one, zero marking a free slot.
+ *
+ * This costs about 20 bytes per entry where a LinkedHashMap with Double keys
+ * costs about 70.
+ */
+public class TaskMap implements Iterable<Task> {
+
+	private static final int DEFAULT_CAPACITY = 8;
+	private static final int MIN_CAPACITY = 2;
+
+	/**
+	 * Hash table of entry indices plus one, always at least twice as long as the
+	 * entry arrays.
+	 */
+	private int[] table;
+	/**
+	 * Keys of the entries, in insertion order.
+	 */
+	private long[] keys;
+	/**
+	 * Values of the entries, in insertion order. Null for removed entries.
+	 */
+	private Task[] values;
+	/**
+	 * Number of entry slots used, including removed entries.
+	 */
+	private int entries;
+	/**
+	 * Number of entries that are not removed.
+	 */
+	private int size;
+	/**
+	 * Number of structural modifications, used to detect modification during
+	 * iteration.
+	 */
+	private int modCount;
+
+	/**
+	 * Creates an empty TaskMap.
+	 */
+	public TaskMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty TaskMap that can hold the passed number of Tasks without
+	 * growing. Small capacities suit the many small maps of an index.
+	 *
+	 * @param capacity expected number of Tasks
+	 */
+	public TaskMap(int capacity) {
+		capacity = Math.max(MIN_CAPACITY, capacity);
+		keys = new long[capacity];
+		values = new Task[capacity];
+		table = new int[tableSizeFor(capacity)];
+	}
+
+	/**
+	 * Returns the number of Tasks in the map.
+	 *
+	 * @return number of Tasks
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether the map holds no Tasks.
+	 *
+	 * @return true if the map is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the Task with the passed id.
+	 *
+	 * @param id id of the Task
+	 * @return the Task, or null if there is none with that id
+	 */
+	public Task get(long id) {
+		int slot = find(id);
+		return slot < 0 ? null : values[table[slot] - 1];
+	}
+
+	/**
+	 * Returns whether the map holds a Task with the passed id.
+	 *
+	 * @param id id of the Task
+	 * @return true if there is a Task with that id
+	 */
+	public boolean containsKey(long id) {
+		return find(id) >= 0;
+	}
+
+	/**
+	 * Stores the Task under the passed id. Replacing a Task keeps the position of
+	 * the id in the iteration order.
+	 *
+	 * @param id   id of the Task
+	 * @param task the Task
+	 * @return the Task previously stored under the id, or null
+	 */
+	public Task put(long id, Task task) {
+		if (task == null)
+			throw new NullPointerException("TaskMap does not hold null Tasks");
+		int slot = find(id);
+		if (slot >= 0) {
+			int entry = table[slot] - 1;
+			Task previous = values[entry];
+			values[entry] = task;
+			return previous;
+		}
+		if (entries == keys.length)
+			makeRoom();
+		keys[entries] = id;
+		values[entries] = task;
+		entries++;
+		insert(id, entries);
+		size++;
+		modCount++;
+		return null;
+	}
+
+	/**
+	 * Removes the Task with the passed id.
+	 *
+	 * @param id id of the Task
+	 * @return the removed Task, or null if there was none with that id
+	 */
+	public Task remove(long id) {
+		int slot = find(id);
+		if (slot < 0)
+			return null;
+		int entry = table[slot] - 1;
+		Task removed = values[entry];
+		values[entry] = null;
+		deleteSlot(slot);
+		size--;
+		modCount++;
+		if (entry == entries - 1)
+			entries--;
+		return removed;
+	}
+
+	/**
+	 * Removes every Task from the map.
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+		Arrays.fill(values, 0, entries, null);
+		entries = 0;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Returns the Tasks in insertion order.
+	 *
+	 * @return Iterator over the Tasks
+	 */
+	@Override
+	public Iterator<Task> iterator() {
+		return iterator(0);
+	}
+
+	/**
+	 * Returns the Tasks that follow the Task with the passed id, in insertion
+	 * order, to resume an iteration where it stopped.
+	 *
+	 * @param id id of the Task to start after
+	 * @return Iterator over the following Tasks, or null if there is no Task with
+	 *         that id
+	 */
+	public Iterator<Task> iteratorAfter(long id) {
+		int slot = find(id);
+		return slot < 0 ? null : iterator(table[slot]);
+	}
+
+	/**
+	 * Returns the position of the Task with the passed id in the insertion order.
+	 * Positions only compare Tasks of the map as it is, as they change once
+	 * removed entries are dropped.
+	 *
+	 * @param id id of the Task
+	 * @return position of the Task, or -1 if there is no Task with that id
+	 */
+	int positionOf(long id) {
+		int slot = find(id);
+		return slot < 0 ? -1 : table[slot] - 1;
+	}
+
+	/**
+	 * Returns the Tasks in insertion order from the passed entry on.
+	 */
+	private Iterator<Task> iterator(int start) {
+		return new Iterator<Task>() {
+			private int next = advance(start);
+			private final int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return next < entries;
+			}
+
+			@Override
+			public Task next() {
+				if (modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+				if (next >= entries)
+					throw new NoSuchElementException();
+				Task task = values[next];
+				next = advance(next + 1);
+				return task;
+			}
+		};
+	}
+
+	/**
+	 * Returns the ids of the Tasks in insertion order, without boxing them.
+	 *
+	 * @return Iterator over the ids
+	 */
+	public PrimitiveIterator.OfLong keyIterator() {
+		return new PrimitiveIterator.OfLong() {
+			private int next = advance(0);
+			private final int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return next < entries;
+			}
+
+			@Override
+			public long nextLong() {
+				if (modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+				if (next >= entries)
+					throw new NoSuchElementException();
+				long key = keys[next];
+				next = advance(next + 1);
+				return key;
+			}
+		};
+	}
+
+	/**
+	 * Returns a read-only view of the Tasks in insertion order.
+	 *
+	 * @return Collection of the Tasks
+	 */
+	public Collection<Task> values() {
+		return new AbstractCollection<Task>() {
+			@Override
+			public Iterator<Task> iterator() {
+				return TaskMap.this.iterator();
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Returns the index of the first entry at or after the passed one that has not
+	 * been removed.
+	 */
+	private int advance(int entry) {
+		while (entry < entries && values[entry] == null)
+			entry++;
+		return entry;
+	}
+
+	/**
+	 * Returns the slot of the table holding the passed key, or -1.
+	 */
+	private int find(long key) {
+		int mask = table.length - 1;
+		int slot = hash(key) & mask;
+		while (true) {
+			int entry = table[slot];
+			if (entry == 0)
+				return -1;
+			if (keys[entry - 1] == key)
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Stores the entry reference in the first free slot for the key.
+	 */
+	private void insert(long key, int entryReference) {
+		int mask = table.length - 1;
+		int slot = hash(key) & mask;
+		while (table[slot] != 0)
+			slot = (slot + 1) & mask;
+		table[slot] = entryReference;
+	}
+
+	/**
+	 * Frees a slot of the table, shifting back the entries that probed past it so
+	 * that no tombstones are needed in the table.
+	 */
+	private void deleteSlot(int slot) {
+		int mask = table.length - 1;
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			int entry = table[next];
+			if (entry == 0)
+				break;
+			int home = hash(keys[entry - 1]) & mask;
+			// move the entry back unless its home slot lies cyclically in (slot, next]
+			boolean stays = slot <= next ? (slot < home && home <= next) : (slot < home || home <= next);
+			if (!stays) {
+				table[slot] = entry;
+				slot = next;
+			}
+		}
+		table[slot] = 0;
+	}
+
+	/**
+	 * Makes room for one more entry, either by dropping the removed entries when
+	 * they make up at least half of the arrays or by growing them.
+	 */
+	private void makeRoom() {
+		int capacity = keys.length;
+		if (entries - size < capacity / 2)
+			capacity = capacity + (capacity >> 1);
+		long[] newKeys = new long[capacity];
+		Task[] newValues = new Task[capacity];
+		int live = 0;
+		for (int i = 0; i < entries; i++) {
+			if (values[i] != null) {
+				newKeys[live] = keys[i];
+				newValues[live] = values[i];
+				live++;
+			}
+		}
+		keys = newKeys;
+		values = newValues;
+		entries = live;
+		int tableSize = tableSizeFor(capacity);
+		if (tableSize != table.length)
+			table = new int[tableSize];
+		else
+			Arrays.fill(table, 0);
+		for (int i = 0; i < entries; i++)
+			insert(keys[i], i + 1);
+		modCount++;
+	}
+
+	/**
+	 * Returns the smallest power of two that is at least twice the capacity.
+	 */
+	private static int tableSizeFor(int capacity) {
+		return Integer.highestOneBit(capacity * 2 - 1) << 1;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
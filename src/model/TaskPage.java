@@ -0,0 +1,54 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of the Tasks matching a TaskQuery, with the cursor the next page
+ * starts at.
+ *
+ * @param <T> type the Tasks of the page are given as
+ */
+public final class TaskPage<T> {
+
+	private final List<T> tasks;
+	private final TaskQuery.Cursor next;
+
+	/**
+	 * Creates a page.
+	 *
+	 * @param tasks the Tasks of the page, owned by the page from now on
+	 * @param next  cursor of the next page, or null if this page is the last
+	 */
+	TaskPage(List<T> tasks, TaskQuery.Cursor next) {
+		this.tasks = Collections.unmodifiableList(tasks);
+		this.next = next;
+	}
+
+	/**
+	 * Returns the Tasks of the page, in the order of the query.
+	 *
+	 * @return read-only List of the Tasks
+	 */
+	public List<T> getTasks() {
+		return tasks;
+	}
+
+	/**
+	 * Returns whether more Tasks match the query after this page.
+	 *
+	 * @return true if there is a next page
+	 */
+	public boolean hasNext() {
+		return next != null;
+	}
+
+	/**
+	 * Returns the cursor to pass to TaskQuery.after for the next page.
+	 *
+	 * @return the cursor, or null if this page is the last
+	 */
+	public TaskQuery.Cursor getNext() {
+		return next;
+	}
+}
@@ -0,0 +1,401 @@
+package model;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Immutable description of the Tasks of a ToDoList to read one page at a time:
+ * which Tasks match, in what order, how many a page holds and where the page
+ * starts. Every method returns a new query, so queries can be built from a
+ * shared base, as in
+ *
+ * <pre>
+ * TaskQuery.all().completed(false).orderBy(TaskQuery.Order.DEADLINE).limit(50)
+ * </pre>
+ *
+ * A query is evaluated by ToDoList.query, which walks the Tasks in the order of
+ * the query and stops as soon as the page is full, so a page costs about as much
+ * as the Tasks it has to look at rather than as the whole list. The deadline
+ * index and the priority buckets of the list provide the orders without sorting,
+ * and the word index of the list, once built, provides the Tasks matching
+ * words.
+ *
+ * TDLModel.query evaluates a query over every list at once, in parallel.
+ */
+public final class TaskQuery {
+
+	/**
+	 * Orders the Tasks of a page can be listed in.
+	 */
+	public enum Order {
+		/**
+		 * The order the Tasks were added in, as getAllTasks lists them.
+		 */
+		INSERTION,
+		/**
+		 * By deadline as DeadlineSorter orders them, the Tasks without a deadline
+		 * first in insertion order, and Tasks sharing a deadline by id.
+		 */
+		DEADLINE,
+		/**
+		 * By Priority as PrioritySorter orders them, most urgent first, and Tasks
+		 * sharing a Priority in the order they were given it.
+		 */
+		PRIORITY
+	}
+
+	/**
+	 * Position right after the last Task of a page, from which the next page of
+	 * the same query starts. Holds the sort key and id of that Task, so the next
+	 * page starts at the right place even if the list changed in the meantime. If
+	 * the Task was removed or moved since, or when the Tasks come from the word
+	 * index, the page starts at the same number of matching Tasks from the start
+	 * instead.
+	 */
+	public static final class Cursor {
+		private final Order order;
+		private final long key;
+		private final long id;
+		private final int offset;
+
+		Cursor(Order order, long key, long id, int offset) {
+			this.order = order;
+			this.key = key;
+			this.id = id;
+			this.offset = offset;
+		}
+
+		Order getOrder() {
+			return order;
+		}
+
+		/**
+		 * Returns the deadline or the Priority ordinal of the last Task, depending on
+		 * the order.
+		 */
+		long getKey() {
+			return key;
+		}
+
+		long getId() {
+			return id;
+		}
+
+		/**
+		 * Returns the number of matching Tasks before the cursor.
+		 */
+		int getOffset() {
+			return offset;
+		}
+	}
+
+	private static final TaskQuery ALL = new TaskQuery(null, 0, false, 0, 0, null, null, Order.INSERTION,
+			Integer.MAX_VALUE, null);
+
+	/**
+	 * Completion the Tasks must have, or null for any.
+	 */
+	private final Boolean completed;
+	/**
+	 * Bit set of the ordinals of the Priorities the Tasks must have, 0 for any.
+	 */
+	private final int priorities;
+	/**
+	 * Whether the Tasks must be due in [from, to).
+	 */
+	private final boolean ranged;
+	private final long from;
+	private final long to;
+	/**
+	 * Words the Tasks must use, as split by TaskIndex.words, or null for any.
+	 */
+	private final String text;
+	private final Collection<String> words;
+	private final Order order;
+	private final int limit;
+	private final Cursor after;
+
+	private TaskQuery(Boolean completed, int priorities, boolean ranged, long from, long to, String text,
+			Collection<String> words, Order order, int limit, Cursor after) {
+		this.completed = completed;
+		this.priorities = priorities;
+		this.ranged = ranged;
+		this.from = from;
+		this.to = to;
+		this.text = text;
+		this.words = words;
+		this.order = order;
+		this.limit = limit;
+		this.after = after;
+	}
+
+	/**
+	 * Returns the query matching every Task in insertion order, in one page.
+	 *
+	 * @return the query of every Task
+	 */
+	public static TaskQuery all() {
+		return ALL;
+	}
+
+	/**
+	 * Keeps the Tasks that are completed, or those that are not.
+	 *
+	 * @param completed true for the completed Tasks, false for the others
+	 * @return the narrowed query
+	 */
+	public TaskQuery completed(boolean completed) {
+		return new TaskQuery(completed, priorities, ranged, from, to, text, words, order, limit, after);
+	}
+
+	/**
+	 * Keeps the Tasks that have one of the passed Priorities.
+	 *
+	 * @param priorities the Priorities to keep
+	 * @return the narrowed query
+	 */
+	public TaskQuery withPriority(Priority... priorities) {
+		int mask = 0;
+		for (Priority priority : priorities)
+			mask |= 1 << priority.ordinal();
+		if (mask == 0)
+			throw new IllegalArgumentException("No priority to keep");
+		return new TaskQuery(completed, mask, ranged, from, to, text, words, order, limit, after);
+	}
+
+	/**
+	 * Keeps the Tasks whose deadline is at or after from and before to. Tasks
+	 * without a deadline are left out.
+	 *
+	 * @param from start of the range in minutes, as counted by Deadlines, inclusive
+	 * @param to   end of the range in minutes, exclusive
+	 * @return the narrowed query
+	 */
+	public TaskQuery dueBetween(long from, long to) {
+		return new TaskQuery(completed, priorities, true, from, to, text, words, order, limit, after);
+	}
+
+	/**
+	 * Keeps the Tasks whose deadline is at or after from and before to. Tasks
+	 * without a deadline are left out.
+	 *
+	 * @param from start of the range, inclusive
+	 * @param to   end of the range, exclusive
+	 * @return the narrowed query
+	 */
+	public TaskQuery dueBetween(Date from, Date to) {
+		return dueBetween(Deadlines.fromDate(from), Deadlines.fromDate(to));
+	}
+
+	/**
+	 * Keeps the Tasks whose name or description uses every word of the passed
+	 * text, each word also matching the longer words starting with it, as
+	 * ToDoList.search matches them.
+	 *
+	 * @param text words to look for
+	 * @return the narrowed query
+	 */
+	public TaskQuery matching(String text) {
+		return new TaskQuery(completed, priorities, ranged, from, to, text, TaskIndex.words(text, null), order, limit,
+				after);
+	}
+
+	/**
+	 * Lists the Tasks in the passed order.
+	 *
+	 * @param order the order
+	 * @return the reordered query
+	 */
+	public TaskQuery orderBy(Order order) {
+		if (order == null)
+			throw new NullPointerException("Order is null");
+		return new TaskQuery(completed, priorities, ranged, from, to, text, words, order, limit, after);
+	}
+
+	/**
+	 * Limits the number of Tasks of a page.
+	 *
+	 * @param limit maximum number of Tasks of a page, at least 1
+	 * @return the limited query
+	 */
+	public TaskQuery limit(int limit) {
+		if (limit < 1)
+			throw new IllegalArgumentException("Limit must be positive: " + limit);
+		return new TaskQuery(completed, priorities, ranged, from, to, text, words, order, limit, after);
+	}
+
+	/**
+	 * Starts the page at the passed cursor, returned with the previous page of a
+	 * query in the same order.
+	 *
+	 * @param cursor cursor of the previous page, or null to start from the first
+	 *               Task
+	 * @return the query of the next page
+	 */
+	public TaskQuery after(Cursor cursor) {
+		if (cursor != null && cursor.getOrder() != order)
+			throw new IllegalArgumentException("Cursor of a query ordered by " + cursor.getOrder());
+		return new TaskQuery(completed, priorities, ranged, from, to, text, words, order, limit, cursor);
+	}
+
+	/**
+	 * Returns the order of the Tasks.
+	 *
+	 * @return the order
+	 */
+	public Order getOrder() {
+		return order;
+	}
+
+	/**
+	 * Returns the maximum number of Tasks of a page.
+	 *
+	 * @return the limit, Integer.MAX_VALUE if there is none
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Returns the cursor the page starts at.
+	 *
+	 * @return the cursor, or null if the page starts from the first Task
+	 */
+	public Cursor getCursor() {
+		return after;
+	}
+
+	/**
+	 * Returns the words the Tasks must use, or null if the query has none.
+	 */
+	Collection<String> getWords() {
+		return words == null || words.isEmpty() ? null : words;
+	}
+
+	/**
+	 * Returns whether the query keeps Tasks of the passed Priority.
+	 */
+	boolean keeps(Priority priority) {
+		return priorities == 0 || (priorities & (1 << priority.ordinal())) != 0;
+	}
+
+	/**
+	 * Returns whether the query only keeps Tasks due in a range.
+	 */
+	boolean isRanged() {
+		return ranged;
+	}
+
+	long getFrom() {
+		return from;
+	}
+
+	long getTo() {
+		return to;
+	}
+
+	/**
+	 * Returns whether the Task matches the query.
+	 *
+	 * @param task       the Task
+	 * @param checkWords whether to check the words, false if the Task was found
+	 *                   through the word index already
+	 */
+	boolean matches(Task task, boolean checkWords) {
+		if (!matches(task.getPriority().ordinal(), task.isComplete(), task.getDeadlineMinute()))
+			return false;
+		return !checkWords || getWords() == null || TaskIndex.uses(task, words);
+	}
+
+	/**
+	 * Returns whether a Task in the passed state matches the query, leaving out
+	 * the words.
+	 *
+	 * @param priority ordinal of the Priority of the Task
+	 * @param complete whether the Task is completed
+	 * @param deadline deadline of the Task in minutes, or Deadlines.NONE
+	 */
+	boolean matches(int priority, boolean complete, long deadline) {
+		if (completed != null && complete != completed)
+			return false;
+		if (priorities != 0 && (priorities & (1 << priority)) == 0)
+			return false;
+		return !ranged || deadline != Deadlines.NONE && deadline >= from && deadline < to;
+	}
+
+	/**
+	 * Returns the cursor right after the passed Task, the last of a page.
+	 *
+	 * @param last   last Task of the page
+	 * @param offset number of matching Tasks up to the last one included
+	 */
+	Cursor cursorAfter(Task last, int offset) {
+		return cursorAfter(keyOf(last), last.getId(), offset);
+	}
+
+	/**
+	 * Returns the cursor right after the Task with the passed sort key and id, the
+	 * last of a page.
+	 *
+	 * @param key    sort key of the last Task of the page, as keyOf gives it
+	 * @param id     id of that Task
+	 * @param offset number of matching Tasks up to the last one included
+	 */
+	Cursor cursorAfter(long key, long id, int offset) {
+		return new Cursor(order, key, id, offset);
+	}
+
+	/**
+	 * Returns the sort key of the Task in the order of the query: its deadline,
+	 * its Priority ordinal, or 0 in insertion order. Tasks of a page have
+	 * ascending keys.
+	 */
+	long keyOf(Task task) {
+		if (order == Order.DEADLINE)
+			return task.getDeadlineMinute();
+		if (order == Order.PRIORITY)
+			return task.getPriority().ordinal();
+		return 0;
+	}
+
+	/**
+	 * Returns whether Tasks with the passed statistics may match the query, false
+	 * if the statistics show that none does. Only looks at the counts, so it
+	 * costs the same whatever the number of Tasks.
+	 *
+	 * @param stats statistics of the Tasks of a ToDoList
+	 */
+	boolean mayMatch(TDLStats stats) {
+		long candidates = 0;
+		for (Priority priority : Priority.values()) {
+			if (!keeps(priority))
+				continue;
+			long count = stats.getTaskCount(priority);
+			long completedCount = stats.getCompletedCount(priority);
+			if (completed == null)
+				candidates += count;
+			else
+				candidates += completed ? completedCount : count - completedCount;
+		}
+		if (candidates <= 0)
+			return false;
+		// only the deadlines of incomplete Tasks are counted
+		return !ranged || !Boolean.FALSE.equals(completed) || stats.getDueCount(from, to) > 0;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder query = new StringBuilder("TaskQuery[").append(order);
+		if (completed != null)
+			query.append(completed ? ", completed" : ", incomplete");
+		if (priorities != 0)
+			query.append(", priorities ").append(Integer.toBinaryString(priorities));
+		if (ranged)
+			query.append(", due ").append(from).append('-').append(to);
+		if (getWords() != null)
+			query.append(", matching \"").append(text).append('"');
+		if (limit != Integer.MAX_VALUE)
+			query.append(", limit ").append(limit);
+		return query.append(']').toString();
+	}
+}
@@ -0,0 +1,118 @@
+package model;
+
+import java.util.Date;
+
+/**
+ * Immutable copy of the state of a Task at one point in time. Snapshots of Tasks
+ * that did not change are shared between the snapshots of their ToDoList, so
+ * taking a new snapshot only copies the Tasks that changed since the last one.
+ */
+public final class TaskSnapshot {
+
+	private final long id;
+	private final String name;
+	private final String description;
+	/**
+	 * Deadline in minutes, as counted by Deadlines.
+	 */
+	private final long deadline;
+	private final Priority priority;
+	private final boolean complete;
+
+	/**
+	 * Copies the current state of the passed Task.
+	 *
+	 * @param task the Task to copy
+	 */
+	TaskSnapshot(Task task) {
+		this.id = task.getId();
+		this.name = task.getName();
+		this.description = task.getDescription();
+		this.deadline = task.getDeadlineMinute();
+		this.priority = task.getPriority();
+		this.complete = task.isComplete();
+	}
+
+	/**
+	 * Returns the id of the Task
+	 *
+	 * @return id of the Task
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the name of the Task
+	 *
+	 * @return Name of the Task
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the Description of the Task.
+	 *
+	 * @return Description of the Task
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Returns the Deadline of the Task as a new Date, so the snapshot can not be
+	 * changed through it.
+	 *
+	 * @return Deadline of the Task
+	 */
+	public Date getDeadline() {
+		return Deadlines.toDate(deadline);
+	}
+
+	/**
+	 * Returns the Deadline of the Task in minutes, as counted by Deadlines.
+	 *
+	 * @return Deadline of the Task, or Deadlines.NONE
+	 */
+	public long getDeadlineMinute() {
+		return deadline;
+	}
+
+	/**
+	 * Returns the String representation of the Deadline, formatted from the
+	 * deadline.
+	 *
+	 * @return the Deadline as "MM/DD/YYYY HR:MN", or Task.NO_DEADLINE
+	 */
+	public String getDateString() {
+		return Deadlines.format(deadline);
+	}
+
+	/**
+	 * Returns whether the Task was given a deadline.
+	 *
+	 * @return false if the deadline was left as NO_DEADLINE
+	 */
+	public boolean hasDeadline() {
+		return deadline != Deadlines.NONE;
+	}
+
+	/**
+	 * Returns the priority of the Task.
+	 *
+	 * @return priority of the Task
+	 */
+	public Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Returns whether the Task had been completed.
+	 *
+	 * @return true if the Task was completed
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+}
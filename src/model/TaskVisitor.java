@@ -0,0 +1,18 @@
+package model;
+
+import java.io.IOException;
+
+/**
+ * Receives the Tasks of a ToDoList one at a time, such as an export writing
+ * each of them out as it comes.
+ */
+public interface TaskVisitor {
+
+	/**
+	 * Called for every Task of the ToDoList visited.
+	 *
+	 * @param task the Task, which must not be kept after the visit
+	 * @throws IOException if the Task could not be handled
+	 */
+	void visit(Task task) throws IOException;
+}
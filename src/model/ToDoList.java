@@ -1,35 +1,160 @@
 package model;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * @author Kevin Kankia
  * Represents Todolist that contains task objects in it.
+ *
+ * Each ToDoList is guarded by its own read/write lock: its methods take the
+ * lock themselves, and code iterating one of the live views it returns, such as
+ * getAllTasks, must hold readLock() while doing so.
+ *
+ * A ToDoList read from a ListStore may be left unloaded: it then only holds its
+ * name and the statistics of its Tasks, and reads its Tasks from the store the
+ * first time they are used. The ListCache of its Model evicts the Tasks of the
+ * lists used least recently again once they take too much memory, as long as
+ * the store holds a current copy of them. Both happen behind the methods of the
+ * list, so callers never see the difference. A live view taken without holding
+ * readLock() stays usable once the list is evicted, but no longer follows it.
  */
 public class ToDoList {
 
 	/**
 	 *  Name of the ToDoList
 	 */
-	private String name;
+	private volatile String name;
 	/**
-	 *  Number of Tasks in the ToDoList
+	 *  Aggregate statistics of the Tasks in the ToDoList
 	 */
-	private int count;
+	private final TDLStats stats;
 	/**
-	 *  Number of Tasks completed in the ToDoList
+	 *  Statistics of the Model the ToDoList belongs to, if any
 	 */
-	private int completed;
+	private TDLStats modelStats;
+	/**
+	 *  Scheduler of the deadlines of the Model the ToDoList belongs to, if any
+	 */
+	private DeadlineScheduler scheduler;
+	/**
+	 *  Greatest generated id of the Tasks added to the ToDoList
+	 */
+	private long lastId;
 
 	/*
-	 * HashMap pairing the time of creation of a Task to the Task created. Uses the
-	 * fact that two Tasks can not be created at the same time to save the Tasks in
-	 * a way such that the Controller can refer to the time of creation to refer to
-	 * a specific Task without having to store the Task in it.
+	 * Map pairing the id of a Task to the Task, in insertion order. Lets the
+	 * Controller refer to a specific Task by its id without having to store the
+	 * Task in it.
 	 * 
 	 */
-	private LinkedHashMap<Double, Task> tasks;
+	private TaskMap tasks;
+
+	/*
+	 * Orders Tasks by deadline, then by id so that Tasks sharing a deadline are
+	 * still distinct.
+	 */
+	private static final Comparator<Task> DEADLINE_ORDER = Comparator
+			.comparingLong(Task::getDeadlineMinute).thenComparingLong(Task::getId);
+
+	/*
+	 * Index of the Tasks that have a deadline, ordered by deadline. Kept up to date
+	 * by addTask, editTask and removeTask so that deadline queries never have to
+	 * sort the Tasks.
+	 */
+	private TreeSet<Task> deadlines;
+
+	/*
+	 * Tasks created without a deadline, in insertion order.
+	 */
+	private TaskMap noDeadline;
+
+	/*
+	 * One bucket per Priority, indexed by its ordinal, each holding the Tasks with
+	 * that Priority in the order they were given it.
+	 */
+	private TaskMap[] priorities;
+
+	/*
+	 * Index of the words of the names and descriptions of the Tasks. Built by the
+	 * first search, or by buildIndex, and kept up to date from then on.
+	 */
+	private TaskIndex textIndex;
+
+	/*
+	 * Guards the Tasks, the indexes and the counters of this ToDoList.
+	 */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/*
+	 * Snapshot of the ToDoList as it is now, dropped by every change.
+	 */
+	private volatile ListSnapshot snapshot;
+
+	/*
+	 * Stamp given to the ToDoList by its last change. Stamps are unique across
+	 * every ToDoList, so a saved copy of a list is still current as long as the
+	 * list has the stamp it had when the copy was taken.
+	 */
+	private volatile long changeStamp;
+
+	/*
+	 * Source of the change stamps.
+	 */
+	private static final AtomicLong CHANGE_STAMPS = new AtomicLong();
+
+	/*
+	 * Store the Tasks are read back from once evicted, or null if they are never
+	 * evicted.
+	 */
+	private volatile ListStore store;
+
+	/*
+	 * Whether the Tasks and their indexes are in memory. Only set while holding
+	 * the write lock, or the read lock and the monitor of loading, so a thread
+	 * holding either lock sees the Tasks stay loaded.
+	 */
+	private volatile boolean loaded = true;
+
+	/*
+	 * Serializes the threads loading the Tasks under the read lock.
+	 */
+	private final Object loading = new Object();
+
+	/*
+	 * Time of the last use of the Tasks, as given by System.nanoTime. Written
+	 * without synchronization, as the cache only needs an approximate order.
+	 */
+	private long lastAccess;
+
+	/*
+	 * Minute every deadline of the Tasks had fired by when they were last evicted.
+	 */
+	private long evictedAt = Long.MIN_VALUE;
+
+	/*
+	 * Wake-up of the ToDoList in the scheduler while it is not loaded, guarded by
+	 * the lock of the scheduler.
+	 */
+	private DeadlineScheduler.Timer wakeup;
+
+	/*
+	 * Cache of the Model the ToDoList belongs to, if any.
+	 */
+	private ListCache cache;
 
 	/**
 	 * The constructor creates a new ToDoList with the name passed to it.
@@ -39,9 +164,35 @@ public class ToDoList {
 	 */
 	public ToDoList(String name) {
 		this.name = name;
-		this.count = 0;
-		this.completed = 0;
-		this.tasks = new LinkedHashMap<>();
+		this.stats = new TDLStats(1);
+		this.changeStamp = CHANGE_STAMPS.incrementAndGet();
+		this.tasks = new TaskMap();
+		this.deadlines = new TreeSet<>(DEADLINE_ORDER);
+		this.noDeadline = new TaskMap();
+		this.priorities = new TaskMap[Priority.values().length];
+		for (int i = 0; i < priorities.length; i++)
+			priorities[i] = new TaskMap();
+	}
+
+	/**
+	 * Creates a ToDoList whose Tasks are left in the passed store until they are
+	 * first used, counting them in its statistics as they were summarized.
+	 *
+	 * @param summary summary of the saved Tasks of the ToDoList
+	 * @param store   store holding a copy of the ToDoList
+	 * @return the ToDoList, not loaded
+	 */
+	public static ToDoList unloaded(ListSummary summary, ListStore store) {
+		ToDoList list = new ToDoList(summary.getName());
+		list.stats.addAll(summary);
+		list.lastId = summary.getLastId();
+		list.store = store;
+		list.tasks = null;
+		list.deadlines = null;
+		list.noDeadline = null;
+		list.priorities = null;
+		list.loaded = false;
+		return list;
 	}
 
 	/**
@@ -54,12 +205,37 @@ public class ToDoList {
 	}
 
 	/**
-	 * Returns the HashMap of all the Tasks inside this list.
+	 * Returns the lock to hold while reading the live views of this ToDoList from
+	 * a thread other than the one changing it.
 	 * 
-	 * @return HashMap time of creation -> Task
+	 * @return the read lock of this ToDoList
 	 */
-	public LinkedHashMap<Double, Task> getAllTasks() {
-		return tasks;
+	public Lock readLock() {
+		return lock.readLock();
+	}
+
+	/**
+	 * Returns the lock the Model holds while changing this ToDoList.
+	 * 
+	 * @return the write lock of this ToDoList
+	 */
+	Lock writeLock() {
+		return lock.writeLock();
+	}
+
+	/**
+	 * Returns the map of all the Tasks inside this list. The map is live, so
+	 * readers on other threads have to hold readLock() while using it.
+	 * 
+	 * @return TaskMap id -> Task
+	 */
+	public TaskMap getAllTasks() {
+		TaskMap current;
+		do {
+			ensureLoaded();
+			current = tasks;
+		} while (current == null);
+		return current;
 	}
 
 	/**
@@ -68,7 +244,99 @@ public class ToDoList {
 	 * @param name new name for the ToDoList
 	 */
 	public void setName(String name) {
+		ensureLoaded();
 		this.name = name;
+		changed();
+	}
+
+	/**
+	 * Returns an immutable snapshot of this ToDoList. The snapshot is cached until
+	 * the list changes, and a new one only copies the Tasks that changed, so
+	 * taking snapshots of a list that changes rarely is cheap.
+	 * 
+	 * @return snapshot of the ToDoList as it is now
+	 */
+	public ListSnapshot snapshot() {
+		ListSnapshot current = snapshot;
+		if (current != null)
+			return current;
+		lock.readLock().lock();
+		try {
+			ensureLoaded();
+			current = snapshot;
+			if (current == null) {
+				TaskSnapshot[] copies = new TaskSnapshot[tasks.size()];
+				int i = 0;
+				for (Task task : tasks)
+					copies[i++] = task.snapshot();
+				current = new ListSnapshot(name, copies, changeStamp);
+				snapshot = current;
+			}
+			return current;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the snapshot of this ToDoList, or a stub if its Tasks are not
+	 * loaded, so that a save never loads them.
+	 *
+	 * @return snapshot of the ToDoList as it is now
+	 */
+	ListSnapshot snapshotIfLoaded() {
+		lock.readLock().lock();
+		try {
+			if (!loaded)
+				return new ListSnapshot(name, (int) stats.getTaskCount(), (int) stats.getCompletedCount(),
+						changeStamp);
+		} finally {
+			lock.readLock().unlock();
+		}
+		return snapshot();
+	}
+
+	/**
+	 * Passes every Task of this ToDoList to the visitor, in the order they were
+	 * added, as they are at one instant: the read lock is held throughout the
+	 * visit. Tasks that are not loaded are read from the store for the visit
+	 * alone, and dropped afterwards rather than kept in memory, so visiting every
+	 * list neither loads them all nor evicts the lists in use.
+	 *
+	 * @param visitor receives every Task
+	 * @return number of Tasks visited
+	 * @throws IOException if the visitor failed or the Tasks could not be read
+	 *                     from the store
+	 */
+	public int forEachTask(TaskVisitor visitor) throws IOException {
+		lock.readLock().lock();
+		try {
+			TaskMap visited = loaded ? tasks : store.load(name).tasks;
+			for (Task task : visited)
+				visitor.visit(task);
+			return visited.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sets the store the Tasks can be evicted to, unless the list has one already.
+	 *
+	 * @param store the store, or null
+	 */
+	void setStore(ListStore store) {
+		if (this.store == null)
+			this.store = store;
+	}
+
+	/**
+	 * Returns whether the Tasks of this ToDoList are in memory.
+	 *
+	 * @return false if they are left in its store
+	 */
+	public boolean isLoaded() {
+		return loaded;
 	}
 
 	/**
@@ -77,9 +345,71 @@ public class ToDoList {
 	 * @return int percentage of Tasks completed in this ToDoList
 	 */
 	public int getPercentCompleted() {
-		if (this.count == 0)
-			return 0;
-		return (this.completed / this.count) * 100;
+		return stats.getPercentCompleted();
+	}
+
+	/**
+	 * Returns the stamp given to this ToDoList by its last change. The list is
+	 * dirty for a saved copy of it as long as it has another stamp than the copy.
+	 * 
+	 * @return the change stamp, unique across every ToDoList
+	 */
+	public long getChangeStamp() {
+		return changeStamp;
+	}
+
+	/**
+	 * Returns the aggregate statistics of the Tasks in the ToDoList, kept up to
+	 * date by every change.
+	 * 
+	 * @return statistics of this ToDoList
+	 */
+	public TDLStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Adds the statistics of this ToDoList to those of the Model it is added to
+	 * and schedules the deadlines of its incomplete Tasks, and keeps both up to
+	 * date from then on.
+	 * 
+	 * @param modelStats statistics of the Model
+	 * @param scheduler  scheduler of the deadlines of the Model
+	 * @param cache      cache of the Model, told when the Tasks are loaded
+	 */
+	void attach(TDLStats modelStats, DeadlineScheduler scheduler, ListCache cache) {
+		lock.writeLock().lock();
+		try {
+			this.modelStats = modelStats;
+			this.scheduler = scheduler;
+			this.cache = cache;
+			modelStats.addAll(stats, 1);
+			if (loaded)
+				scheduler.scheduleAll(this, tasks);
+			else
+				scheduler.sleep(this, evictedAt);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes the statistics of this ToDoList from those of the Model it is
+	 * removed from, and cancels the deadlines of its Tasks.
+	 */
+	void detach() {
+		lock.writeLock().lock();
+		try {
+			if (modelStats != null)
+				modelStats.addAll(stats, -1);
+			if (scheduler != null)
+				scheduler.cancelAll(this, tasks);
+			modelStats = null;
+			scheduler = null;
+			cache = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/**
@@ -87,55 +417,759 @@ public class ToDoList {
 	 * 
 	 * @param taskName        name for the new Task
 	 * @param taskDescription Description for the new Task
-	 * @param taskDeadline    Deadline for the new Task
-	 * @param timeCreated     Time at which the new Task is created
-	 * @param strdate         String representation of the date
+	 * @param taskDeadline    Deadline for the new Task in minutes, or Deadlines.NONE
+	 * @param id              Id of the new Task
 	 * @param priority        Priority of the Task
 	 */
-	public void addTask(String taskName, String taskDescription, Date taskDeadline, Double timeCreated, String strdate,
-			String priority) {
-		tasks.put(timeCreated, new Task(taskDescription, taskDeadline, priority, taskName, strdate, timeCreated));
-		count++;
+	public void addTask(String taskName, String taskDescription, long taskDeadline, long id, Priority priority) {
+		Task task = new Task(taskDescription, taskDeadline, priority, taskName, id);
+		lock.writeLock().lock();
+		try {
+			ensureLoaded();
+			Task replaced = tasks.put(id, task);
+			if (replaced != null) {
+				unindex(replaced);
+				count(replaced, -1);
+			}
+			index(task);
+			count(task, 1);
+			if (id > lastId)
+				lastId = id;
+			changed();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Updates the Task with the passed id. Deadlines of Tasks in a ToDoList must be
+	 * changed through this method so that the deadline index stays in order.
+	 * 
+	 * @param id              Id of the Task
+	 * @param taskName        new Name for the Task
+	 * @param taskDescription new Description for the Task
+	 * @param taskDeadline    new Deadline for the Task in minutes, or Deadlines.NONE
+	 * @param priority        new Priority for the Task
+	 */
+	public void editTask(long id, String taskName, String taskDescription, long taskDeadline, Priority priority) {
+		lock.writeLock().lock();
+		try {
+			ensureLoaded();
+			Task task = tasks.get(id);
+			unindex(task);
+			count(task, -1);
+			task.setName(taskName);
+			task.setDescription(taskDescription);
+			task.setPriority(priority);
+			task.setDeadline(taskDeadline);
+			index(task);
+			count(task, 1);
+			changed();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the Task with the passed id in this ToDoList. The id of each task is
+	 * unique
+	 * 
+	 * @param id id of task wanted
+	 * @return Task with that id
+	 */
+	public Task getTask(long id) {
+		lock.readLock().lock();
+		try {
+			ensureLoaded();
+			return tasks.get(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Deletes the Task with the passed id in this ToDoList.
+	 * 
+	 * @param id Id of the Task
+	 */
+	public void removeTask(long id) {
+		lock.writeLock().lock();
+		try {
+			ensureLoaded();
+			Task removed = tasks.remove(id);
+			if (removed == null)
+				return;
+			unindex(removed);
+			count(removed, -1);
+			changed();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Marks the Task with the passed id as completed. Does nothing if it already
+	 * is.
+	 * 
+	 * @param id id of the Task
+	 */
+	public void setTaskCompleted(long id) {
+		lock.writeLock().lock();
+		try {
+			ensureLoaded();
+			Task task = tasks.get(id);
+			if (task.isComplete())
+				return;
+			count(task, -1);
+			task.setComplete();
+			count(task, 1);
+			changed();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Marks the Task with the passed id as incomplete. Does nothing if it already
+	 * is.
+	 * 
+	 * @param id id of the Task
+	 */
+	public void setTaskIncomplete(long id) {
+		lock.writeLock().lock();
+		try {
+			ensureLoaded();
+			Task task = tasks.get(id);
+			if (!task.isComplete())
+				return;
+			count(task, -1);
+			task.setIncomplete();
+			count(task, 1);
+			changed();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the Tasks that have a deadline, ordered by deadline. The view is live,
+	 * so readers on other threads have to hold readLock() while using it.
+	 * 
+	 * @return read-only view of the Tasks ordered by deadline
+	 */
+	public Collection<Task> getTasksByDeadline() {
+		TreeSet<Task> current;
+		do {
+			ensureLoaded();
+			current = deadlines;
+		} while (current == null);
+		return Collections.unmodifiableNavigableSet(current);
 	}
 
 	/**
-	 * Returns the Task created at timeCreated in this ToDoList Time of creation for
-	 * each task is unique
+	 * Returns the Tasks that were created without a deadline, in insertion order.
+	 * The view is live, so readers on other threads have to hold readLock() while
+	 * using it.
 	 * 
-	 * @param timeCreated time of creation of task wanted
-	 * @return Task created at timeCreated
+	 * @return read-only view of the Tasks without a deadline
 	 */
-	public Task getTask(Double timeCreated) {
-		return tasks.get(timeCreated);
+	public Collection<Task> getTasksWithoutDeadline() {
+		TaskMap current;
+		do {
+			ensureLoaded();
+			current = noDeadline;
+		} while (current == null);
+		return current.values();
 	}
 
 	/**
-	 * Deletes the Task created at timeCreated in this ToDoList.
+	 * Returns the Tasks whose deadline is at or after from and before to, ordered
+	 * by deadline.
 	 * 
-	 * @param timeCreated Time of creation of the Task
+	 * @param from start of the range, inclusive
+	 * @param to   end of the range, exclusive
+	 * @return List of the Tasks due in the range
 	 */
-	public void removeTask(Double timeCreated) {
-		tasks.remove(timeCreated);
-		count--;
+	public List<Task> getTasksDueBetween(Date from, Date to) {
+		return getTasksDueBetween(Deadlines.fromDate(from), Deadlines.fromDate(to));
 	}
 
 	/**
-	 * Marks the Task created at timeCreated as completed.
+	 * Returns the Tasks whose deadline is at or after from and before to, ordered
+	 * by deadline.
 	 * 
-	 * @param timeCreated time of creation of the ToDoList
+	 * @param from start of the range in minutes, as counted by Deadlines, inclusive
+	 * @param to   end of the range in minutes, exclusive
+	 * @return List of the Tasks due in the range
 	 */
-	public void setTaskCompleted(Double timeCreated) {
-		tasks.get(timeCreated).setComplete();
-		completed++;
+	public List<Task> getTasksDueBetween(long from, long to) {
+		if (from >= to)
+			return new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			ensureLoaded();
+			return new ArrayList<>(deadlines.subSet(probe(from), true, probe(to), false));
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	/**
-	 * Marks the Task created at timeCreated as incomplete.
+	 * Returns the next incomplete Tasks that are due at or after the passed time,
+	 * ordered by deadline.
 	 * 
-	 * @param timeCreated time of creation of the ToDoList
+	 * @param now   time to look from
+	 * @param limit maximum number of Tasks to return
+	 * @return List of at most limit Tasks
+	 */
+	public List<Task> getNextDue(Date now, int limit) {
+		return getNextDue(Deadlines.fromDate(now), limit);
+	}
+
+	/**
+	 * Returns the next incomplete Tasks that are due at or after the passed time,
+	 * ordered by deadline.
+	 * 
+	 * @param now   time to look from in minutes, as counted by Deadlines
+	 * @param limit maximum number of Tasks to return
+	 * @return List of at most limit Tasks
+	 */
+	public List<Task> getNextDue(long now, int limit) {
+		lock.readLock().lock();
+		try {
+			ensureLoaded();
+			return firstIncomplete(deadlines.tailSet(probe(now), true), limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the incomplete Tasks whose deadline is before the passed time, most
+	 * overdue first.
+	 * 
+	 * @param now time to compare the deadlines to
+	 * @return List of the overdue Tasks
+	 */
+	public List<Task> getOverdue(Date now) {
+		return getOverdue(Deadlines.fromDate(now));
+	}
+
+	/**
+	 * Returns the incomplete Tasks whose deadline is before the passed time, most
+	 * overdue first.
+	 * 
+	 * @param now time to compare the deadlines to in minutes, as counted by
+	 *            Deadlines
+	 * @return List of the overdue Tasks
+	 */
+	public List<Task> getOverdue(long now) {
+		lock.readLock().lock();
+		try {
+			ensureLoaded();
+			return firstIncomplete(deadlines.headSet(probe(now), false), Integer.MAX_VALUE);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the Tasks with the passed Priority, in the order they were given it.
+	 * The view is live, so readers on other threads have to hold readLock() while
+	 * using it.
+	 * 
+	 * @param priority Priority of the Tasks
+	 * @return read-only view of the Tasks with that Priority
+	 */
+	public Collection<Task> getTasksWithPriority(Priority priority) {
+		TaskMap[] current;
+		do {
+			ensureLoaded();
+			current = priorities;
+		} while (current == null);
+		return current[priority.ordinal()].values();
+	}
+
+	/**
+	 * Returns all Tasks ordered by Priority, most urgent first. Built by
+	 * concatenating the priority buckets, so no comparisons are needed.
+	 * 
+	 * @return List of the Tasks ordered by Priority
+	 */
+	public List<Task> getTasksByPriority() {
+		lock.readLock().lock();
+		try {
+			ensureLoaded();
+			List<Task> result = new ArrayList<>(tasks.size());
+			for (TaskMap bucket : priorities)
+				result.addAll(bucket.values());
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the Tasks whose name or description uses every word of the query.
+	 * Each word of the query also matches the longer words starting with it, so
+	 * the query can be searched while it is being typed. Words are compared
+	 * without regard to case.
+	 * 
+	 * @param query words to look for
+	 * @return List of the matching Tasks
+	 */
+	public List<Task> search(String query) {
+		return search(TaskIndex.words(query, null));
+	}
+
+	/**
+	 * Returns the Tasks whose name or description uses every one of the words, as
+	 * split by TaskIndex.words.
+	 */
+	List<Task> search(Collection<String> words) {
+		lock.readLock().lock();
+		try {
+			ensureLoaded();
+			if (textIndex != null)
+				return textIndex.search(words);
+		} finally {
+			lock.readLock().unlock();
+		}
+		buildIndex();
+		return search(words);
+	}
+
+	/**
+	 * Returns one page of the Tasks matching the query, in its order. The Tasks
+	 * are walked in that order straight from the indexes of the list, and the walk
+	 * stops as soon as the page is full, so a page costs about as much as the
+	 * Tasks looked at to fill it, however long the list. A query matching words
+	 * takes the matching Tasks from the word index once it is built, and checks
+	 * the words of every Task walked otherwise.
+	 * 
+	 * @param query the query
+	 * @return the page
+	 */
+	public TaskPage<Task> query(TaskQuery query) {
+		TaskQuery.Cursor after = query.getCursor();
+		if (after != null && after.getOrder() != query.getOrder())
+			throw new IllegalArgumentException("Cursor of a query ordered by " + after.getOrder());
+		lock.readLock().lock();
+		try {
+			ensureLoaded();
+			boolean indexed = query.getWords() != null && textIndex != null;
+			Iterator<Task> source = indexed ? indexed(query, after) : walk(query, after);
+			int skip = 0;
+			if (source == null) {
+				// the last Task of the previous page is gone, so start at its offset
+				source = indexed ? indexed(query, null) : walk(query, null);
+				skip = after.getOffset();
+			}
+			int offset = after == null ? 0 : after.getOffset();
+			List<Task> page = new ArrayList<>(Math.min(query.getLimit(), 64));
+			while (source.hasNext()) {
+				Task task = source.next();
+				if (!query.matches(task, !indexed))
+					continue;
+				if (skip > 0) {
+					skip--;
+					continue;
+				}
+				if (page.size() == query.getLimit())
+					return new TaskPage<>(page, query.cursorAfter(page.get(page.size() - 1), offset + page.size()));
+				page.add(task);
+			}
+			return new TaskPage<>(page, null);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the first words used by the Tasks that start with the prefix, in
+	 * alphabetical order, to complete a word being typed.
+	 * 
+	 * @param prefix start of the words
+	 * @param limit  maximum number of words to return
+	 * @return List of the matching words
+	 */
+	public List<String> completeWord(String prefix, int limit) {
+		lock.readLock().lock();
+		try {
+			ensureLoaded();
+			if (textIndex != null)
+				return textIndex.complete(prefix, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+		buildIndex();
+		return completeWord(prefix, limit);
+	}
+
+	/**
+	 * Returns the greatest id handed out by a TaskIdGenerator among the Tasks
+	 * added to this ToDoList, even if they were removed since.
+	 * 
+	 * @return greatest generated id, or 0
+	 */
+	long getLastId() {
+		lock.readLock().lock();
+		try {
+			return lastId;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Builds the word index of this ToDoList unless it was built already. Called
+	 * by the first search, or ahead of it once the data has been loaded.
+	 */
+	void buildIndex() {
+		lock.writeLock().lock();
+		try {
+			ensureLoaded();
+			if (textIndex == null)
+				textIndex = new TaskIndex(tasks);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Evicts the Tasks of this ToDoList, leaving them in its store. Fails without
+	 * waiting if the list is in use, if its store does not hold a current copy of
+	 * it, or if one of its Tasks is about to be due.
+	 *
+	 * @return true if the Tasks were evicted
+	 */
+	boolean evict() {
+		ListStore saved = store;
+		if (!loaded || saved == null || lock.isWriteLockedByCurrentThread() || !lock.writeLock().tryLock())
+			return false;
+		try {
+			if (!loaded || scheduler == null || !saved.isSaved(name, changeStamp))
+				return false;
+			long fired = scheduler.unload(this, tasks);
+			if (fired == Deadlines.NONE)
+				return false;
+			evictedAt = fired;
+			loaded = false;
+			tasks = null;
+			deadlines = null;
+			noDeadline = null;
+			priorities = null;
+			textIndex = null;
+			snapshot = null;
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Loads the Tasks of this ToDoList once its wake-up fired, so that their
+	 * deadlines are scheduled again. If they can not be read, the wake-up is set
+	 * again for the next minute before the failure is passed on.
+	 *
+	 * @throws UncheckedIOException if the Tasks could not be read
+	 */
+	void wake() {
+		try {
+			ensureLoaded();
+		}
+		catch (RuntimeException e) {
+			lock.writeLock().lock();
+			try {
+				if (scheduler != null && !loaded)
+					scheduler.retry(this);
+			} finally {
+				lock.writeLock().unlock();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the wake-up of this ToDoList in the scheduler.
+	 */
+	DeadlineScheduler.Timer getWakeup() {
+		return wakeup;
+	}
+
+	/**
+	 * Sets the wake-up of this ToDoList in the scheduler.
+	 */
+	void setWakeup(DeadlineScheduler.Timer wakeup) {
+		this.wakeup = wakeup;
+	}
+
+	/**
+	 * Returns the time the Tasks of this ToDoList were last used, as given by
+	 * System.nanoTime.
+	 */
+	long getLastAccess() {
+		return lastAccess;
+	}
+
+	/**
+	 * Records a use of the Tasks, reading them from the store first if they are
+	 * not loaded.
+	 */
+	private void ensureLoaded() {
+		lastAccess = System.nanoTime();
+		if (!loaded)
+			load();
+	}
+
+	/**
+	 * Reads the Tasks from the store and schedules their deadlines, then lets the
+	 * cache evict other lists. The read lock keeps the list from being evicted
+	 * meanwhile, and is reentrant for a thread holding the write lock.
+	 */
+	private void load() {
+		ListCache current;
+		lock.readLock().lock();
+		try {
+			current = cache;
+			synchronized (loading) {
+				if (loaded)
+					return;
+				ToDoList saved;
+				try {
+					saved = store.load(name);
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException("Tasks of list " + name + " could not be read", e);
+				}
+				// the statistics were counted from the summary already
+				tasks = saved.tasks;
+				deadlines = saved.deadlines;
+				noDeadline = saved.noDeadline;
+				priorities = saved.priorities;
+				textIndex = null;
+				if (scheduler != null)
+					scheduler.restore(this, tasks, evictedAt);
+				loaded = true;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		if (current != null)
+			current.loaded(this);
+	}
+
+	/**
+	 * Returns the Tasks the query may match in its order, from the cursor on, or
+	 * null if the last Task before the cursor is no longer where it was.
+	 */
+	private Iterator<Task> walk(TaskQuery query, TaskQuery.Cursor after) {
+		switch (query.getOrder()) {
+		case DEADLINE:
+			return walkByDeadline(query, after);
+		case PRIORITY:
+			return walkByPriority(query, after);
+		default:
+			return after == null ? tasks.iterator() : tasks.iteratorAfter(after.getId());
+		}
+	}
+
+	/**
+	 * Walks the Tasks without a deadline unless the query has a deadline range,
+	 * then the range of the deadline index the query covers.
+	 */
+	private Iterator<Task> walkByDeadline(TaskQuery query, TaskQuery.Cursor after) {
+		List<Iterator<Task>> parts = new ArrayList<>(2);
+		boolean dated = after != null && after.getKey() != Deadlines.NONE;
+		if (!query.isRanged() && !dated) {
+			Iterator<Task> undated = after == null ? noDeadline.iterator() : noDeadline.iteratorAfter(after.getId());
+			if (undated == null)
+				return null;
+			parts.add(undated);
+		}
+		Task low = query.isRanged() ? probe(query.getFrom()) : null;
+		boolean lowInclusive = true;
+		if (dated) {
+			Task cursor = probe(after.getKey(), after.getId());
+			if (low == null || DEADLINE_ORDER.compare(cursor, low) >= 0) {
+				low = cursor;
+				lowInclusive = false;
+			}
+		}
+		NavigableSet<Task> range = low == null ? deadlines : deadlines.tailSet(low, lowInclusive);
+		if (query.isRanged()) {
+			Task high = probe(query.getTo());
+			if (DEADLINE_ORDER.compare(low, high) >= 0)
+				range = Collections.emptyNavigableSet();
+			else
+				range = range.headSet(high, false);
+		}
+		parts.add(range.iterator());
+		return chain(parts);
+	}
+
+	/**
+	 * Walks the priority buckets the query keeps, most urgent first.
+	 */
+	private Iterator<Task> walkByPriority(TaskQuery query, TaskQuery.Cursor after) {
+		Priority[] all = Priority.values();
+		List<Iterator<Task>> parts = new ArrayList<>(all.length);
+		int first = after == null ? 0 : (int) after.getKey();
+		for (int i = first; i < all.length; i++) {
+			if (!query.keeps(all[i]))
+				continue;
+			Iterator<Task> bucket = after != null && i == first ? priorities[i].iteratorAfter(after.getId())
+					: priorities[i].iterator();
+			if (bucket == null)
+				return null;
+			parts.add(bucket);
+		}
+		return chain(parts);
+	}
+
+	/**
+	 * Returns the Tasks of the word index using the words of the query, sorted in
+	 * its order, from the cursor on, or null if the last Task before the cursor
+	 * no longer uses them.
+	 */
+	private Iterator<Task> indexed(TaskQuery query, TaskQuery.Cursor after) {
+		List<Task> found = textIndex.search(query.getWords());
+		found.sort(orderOf(query.getOrder()));
+		if (after == null)
+			return found.iterator();
+		for (int i = 0; i < found.size(); i++)
+			if (found.get(i).getId() == after.getId())
+				return found.listIterator(i + 1);
+		return null;
+	}
+
+	/**
+	 * Returns the comparator of the Tasks of this list in the passed order, the
+	 * order they are walked in by walk.
+	 */
+	private Comparator<Task> orderOf(TaskQuery.Order order) {
+		switch (order) {
+		case DEADLINE:
+			return Comparator.comparingLong(Task::getDeadlineMinute).thenComparingLong(
+					task -> task.hasDeadline() ? task.getId() : noDeadline.positionOf(task.getId()));
+		case PRIORITY:
+			return Comparator.comparingInt((Task task) -> task.getPriority().ordinal())
+					.thenComparingInt(task -> priorities[task.getPriority().ordinal()].positionOf(task.getId()));
+		default:
+			return Comparator.comparingInt(task -> tasks.positionOf(task.getId()));
+		}
+	}
+
+	/**
+	 * Returns the Tasks of the passed iterators one after the other.
+	 */
+	private static Iterator<Task> chain(List<Iterator<Task>> parts) {
+		return new Iterator<Task>() {
+			private int part;
+
+			@Override
+			public boolean hasNext() {
+				while (part < parts.size()) {
+					if (parts.get(part).hasNext())
+						return true;
+					part++;
+				}
+				return false;
+			}
+
+			@Override
+			public Task next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return parts.get(part).next();
+			}
+		};
+	}
+
+	/**
+	 * Returns the first incomplete Tasks of the passed set, in its order.
+	 */
+	private static List<Task> firstIncomplete(NavigableSet<Task> range, int limit) {
+		List<Task> result = new ArrayList<>();
+		for (Task task : range) {
+			if (result.size() >= limit)
+				break;
+			if (!task.isComplete())
+				result.add(task);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a Task that sorts before every Task due at the passed time, to be
+	 * used as a bound in the deadline index.
+	 */
+	private static Task probe(long deadline) {
+		return probe(deadline, Long.MIN_VALUE);
+	}
+
+	/**
+	 * Returns a Task that sorts like the Task with the passed deadline and id in
+	 * the deadline index.
+	 */
+	private static Task probe(long deadline, long id) {
+		return new Task(null, deadline, null, null, id);
+	}
+
+	/**
+	 * Adds the Task to its priority bucket, to the deadline index or to the Tasks
+	 * without a deadline, and to the word index once it is built.
+	 */
+	private void index(Task task) {
+		priorities[task.getPriority().ordinal()].put(task.getId(), task);
+		if (textIndex != null)
+			textIndex.add(task);
+		if (task.hasDeadline())
+			deadlines.add(task);
+		else
+			noDeadline.put(task.getId(), task);
+	}
+
+	/**
+	 * Marks the ToDoList as changed, dropping its snapshot and giving it a new
+	 * change stamp.
+	 */
+	private void changed() {
+		snapshot = null;
+		changeStamp = CHANGE_STAMPS.incrementAndGet();
+	}
+
+	/**
+	 * Counts or uncounts the Task in the statistics of this ToDoList and of its
+	 * Model, and schedules or cancels its deadline.
+	 */
+	private void count(Task task, int delta) {
+		stats.count(task, delta);
+		if (modelStats != null)
+			modelStats.count(task, delta);
+		if (scheduler != null) {
+			// only the holder of the list lock sets a Timer, so one read as null is
+			// not pending, and the scheduler is only locked for Tasks that had one
+			if (delta < 0) {
+				if (task.getTimer() != null)
+					scheduler.cancel(task);
+			}
+			else if (!task.isComplete() && task.hasDeadline())
+				scheduler.schedule(this, task);
+		}
+	}
+
+	/**
+	 * Removes the Task from its priority bucket, from the deadline index or from
+	 * the Tasks without a deadline, and from the word index once it is built.
 	 */
-	public void setTaskIncomplete(Double timeCreated) {
-		tasks.get(timeCreated).setIncomplete();
-		completed--;
+	private void unindex(Task task) {
+		priorities[task.getPriority().ordinal()].remove(task.getId());
+		if (textIndex != null)
+			textIndex.remove(task);
+		if (task.hasDeadline())
+			deadlines.remove(task);
+		else
+			noDeadline.remove(task.getId());
 	}
 }
@@ -0,0 +1,89 @@
+package controller;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.Deadlines;
+import model.Task;
+import model.ToDoList;
+
+/**
+ * Checks that TextDataParser reads the deadlines of lines written by the saveData
+ * of the text format as the deadlines that were typed in, although it wrote the
+ * month counted from 0.
+ *
+ * Throws an AssertionError on the first failure:
+ *
+ * javac -d out $(find src test -name '*.java')
+ * java -cp out controller.TextDataParserTest
+ */
+public class TextDataParserTest {
+
+	private static final AtomicLong IDS = new AtomicLong();
+
+	public static void main(String[] args) {
+		// the Dates of the text format are in the default time zone, which must
+		// not skip the hours typed in
+		TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+		readsSavedLine();
+		readsRandomDeadlines();
+		readsNoDeadline();
+		System.out.println("OK");
+	}
+
+	private static void readsSavedLine() {
+		ToDoList list = new TextDataParser(IDS::incrementAndGet)
+				.parseList("work==1.7E12~~pay rent~~empty~~00/15/2024 10:00~~High~~true``");
+		Task task = list.getAllTasks().values().iterator().next();
+		check(task.getDateString().equals("01/15/2024 10:00"), "00/15/2024 is read as " + task.getDateString());
+		check(task.getDescription() == null, "the missing description is read as " + task.getDescription());
+		check(task.isComplete(), "the Task is not read as completed");
+	}
+
+	private static void readsRandomDeadlines() {
+		Random random = new Random(1);
+		// days that do not roll over, as the Dates of the text format were 1900
+		// years late and did not agree on leap years
+		for (int i = 0; i < 100_000; i++) {
+			String typed = String.format("%02d/%02d/%04d %02d:%02d", 1 + random.nextInt(12), 1 + random.nextInt(28),
+					1000 + random.nextInt(8999), random.nextInt(24), random.nextInt(60));
+			long read = deadlineOf(saved(typed));
+			check(read == Deadlines.parse(typed), typed + " is read as " + Deadlines.format(read));
+		}
+		check(deadlineOf(saved("12/31/9998 23:59")) == Deadlines.parse("12/31/9998 23:59"), "12/31/9998 23:59");
+	}
+
+	private static void readsNoDeadline() {
+		check(deadlineOf(saved(Task.NO_DEADLINE)) == Deadlines.NONE, "no deadline is not read as NONE");
+	}
+
+	/**
+	 * Returns the line saveData wrote for a list with one Task whose deadline was
+	 * typed as the passed text.
+	 */
+	@SuppressWarnings("deprecation")
+	private static String saved(String typed) {
+		String deadline = Task.NO_DEADLINE;
+		if (!typed.equals(Task.NO_DEADLINE)) {
+			// as getDateObject read it and saveData wrote it
+			Date date = new Date(Integer.parseInt(typed.substring(6, 10)), Integer.parseInt(typed.substring(0, 2)) - 1,
+					Integer.parseInt(typed.substring(3, 5)), Integer.parseInt(typed.substring(11, 13)),
+					Integer.parseInt(typed.substring(14, 16)));
+			deadline = String.format("%02d/%02d/%d %02d:%02d", date.getMonth(), date.getDate(), date.getYear(),
+					date.getHours(), date.getMinutes());
+		}
+		return "list==1.7E12~~task~~description~~" + deadline + "~~Medium~~false``";
+	}
+
+	private static long deadlineOf(String line) {
+		ToDoList list = new TextDataParser(IDS::incrementAndGet).parseList(line);
+		return list.getAllTasks().values().iterator().next().getDeadlineMinute();
+	}
+
+	private static void check(boolean condition, String failure) {
+		if (!condition)
+			throw new AssertionError(failure);
+	}
+}
@@ -0,0 +1,129 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/**
+ * Checks that Deadlines parses what it formats and formats what it parses, over
+ * the whole range of four-digit years, that both agree with java.time, and that
+ * text which is not of the form "MM/DD/YYYY HR:MN" is rejected.
+ *
+ * Throws an AssertionError on the first failure:
+ *
+ * javac -d out $(find src test -name '*.java')
+ * java -cp out model.DeadlinesTest
+ */
+public class DeadlinesTest {
+
+	private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("MM/dd/uuuu HH:mm");
+	private static final long FIRST = minuteOf(LocalDateTime.of(0, 1, 1, 0, 0));
+	private static final long END = minuteOf(LocalDateTime.of(10000, 1, 1, 0, 0));
+
+	public static void main(String[] args) {
+		roundTripsEveryDay();
+		roundTripsEveryMinuteOfLeapDays();
+		roundTripsRandomMinutes();
+		roundTripsNone();
+		rollsOverFields();
+		rejectsMalformedText();
+		rejectsYearsWithoutFourDigits();
+		System.out.println("OK");
+	}
+
+	/**
+	 * Every day from 01/01/0000 to 12/31/9999, at a minute that moves through the
+	 * day.
+	 */
+	private static void roundTripsEveryDay() {
+		long minute = 0;
+		for (long day = FIRST / (24 * 60); day < END / (24 * 60); day++) {
+			roundTrip(day * 24 * 60 + minute);
+			minute = (minute + 37) % (24 * 60);
+		}
+	}
+
+	private static void roundTripsEveryMinuteOfLeapDays() {
+		for (int year : new int[] { 0, 1600, 2000, 2024, 9996 }) {
+			long start = minuteOf(LocalDateTime.of(year, 2, 28, 0, 0));
+			for (long minute = start; minute < start + 3 * 24 * 60; minute++)
+				roundTrip(minute);
+		}
+		check(Deadlines.format(Deadlines.parse("02/29/1900 00:00")).equals("03/01/1900 00:00"),
+				"02/29/1900 is not read as 03/01/1900");
+	}
+
+	private static void roundTripsRandomMinutes() {
+		Random random = new Random(1);
+		for (int i = 0; i < 1_000_000; i++)
+			roundTrip(FIRST + (long) (random.nextDouble() * (END - FIRST)));
+		roundTrip(FIRST);
+		roundTrip(END - 1);
+	}
+
+	private static void roundTripsNone() {
+		check(Deadlines.format(Deadlines.NONE).equals(Task.NO_DEADLINE), "NONE is not formatted as no deadline");
+		check(Deadlines.parse(Task.NO_DEADLINE) == Deadlines.NONE, "no deadline is not parsed as NONE");
+		char[] text = new char[Deadlines.LENGTH + 2];
+		check(Deadlines.format(Deadlines.NONE, text, 2) == text.length, "format does not return the end");
+		check(new String(text, 2, Deadlines.LENGTH).equals(Task.NO_DEADLINE), "NONE is not written at the offset");
+	}
+
+	private static void rollsOverFields() {
+		check(Deadlines.format(Deadlines.parse("13/01/2024 00:00")).equals("01/01/2025 00:00"), "month 13");
+		check(Deadlines.format(Deadlines.parse("00/01/2024 00:00")).equals("12/01/2023 00:00"), "month 0");
+		check(Deadlines.format(Deadlines.parse("01/32/2024 00:00")).equals("02/01/2024 00:00"), "day 32");
+		check(Deadlines.format(Deadlines.parse("01/01/2024 24:00")).equals("01/02/2024 00:00"), "hour 24");
+		check(Deadlines.format(Deadlines.parse("01/01/2024 23:60")).equals("01/02/2024 00:00"), "minute 60");
+	}
+
+	private static void rejectsMalformedText() {
+		String[] malformed = { "", "01/02/2024 10:0", "01/02/2024 10:000", "01-02-2024 10:00", "01/02-2024 10:00",
+				"01/02/2024T10:00", "01/02/2024 10.00", "0a/02/2024 10:00", "01/02/2O24 10:00", "01/02/2024 1x:00",
+				"MM/DD/YYYY HR:MX", "01/02/+024 10:00", "01/02/2024 -1:00" };
+		for (String text : malformed)
+			rejects(text);
+	}
+
+	private static void rejectsYearsWithoutFourDigits() {
+		rejects("13/01/9999 00:00");
+		rejects("12/31/9999 24:00");
+		rejects("00/01/0000 00:00");
+		try {
+			Deadlines.format(END);
+			throw new AssertionError("year 10000 was formatted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Checks that the minute is formatted as java.time formats it and is parsed
+	 * back to itself.
+	 */
+	private static void roundTrip(long minute) {
+		String text = Deadlines.format(minute);
+		String expected = LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC).format(FORMAT);
+		check(text.equals(expected), minute + " is formatted as " + text + " instead of " + expected);
+		check(Deadlines.parse(text) == minute, text + " is parsed as " + Deadlines.parse(text) + " instead of " + minute);
+	}
+
+	private static void rejects(String text) {
+		try {
+			long parsed = Deadlines.parse(text);
+			throw new AssertionError("\"" + text + "\" was parsed as " + parsed);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static long minuteOf(LocalDateTime time) {
+		return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+	}
+
+	private static void check(boolean condition, String failure) {
+		if (!condition)
+			throw new AssertionError(failure);
+	}
+}